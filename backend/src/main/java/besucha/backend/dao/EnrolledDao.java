@@ -5,9 +5,13 @@ import javax.validation.constraints.NotNull;
 
 /**
  * An EnrolledDao object that manages the "enrolled" table in MySQL.
+ * The table is indexed by student and by section, so either one's rows can be found without a scan.
  */
 @Entity
-@Table(name = "enrolled")
+@Table(name = "enrolled", indexes = {
+		@Index(name = "enrolled_student_idx", columnList = "student_id"),
+		@Index(name = "enrolled_section_idx", columnList = "section_id")
+})
 public class EnrolledDao {
 
 	@EmbeddedId
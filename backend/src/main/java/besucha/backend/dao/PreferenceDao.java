@@ -5,9 +5,11 @@ import javax.validation.constraints.NotNull;
 
 /**
  * PreferenceDao object that manages the "preference" table in MySQL.
+ * A student can request a section only once, which the table enforces with a unique constraint.
  */
 @Entity
-@Table(name = "preference")
+@Table(name = "preference", uniqueConstraints =
+        @UniqueConstraint(name = "preference_student_section_uk", columnNames = {"student_id", "section_id"}))
 public class PreferenceDao {
 
     /**
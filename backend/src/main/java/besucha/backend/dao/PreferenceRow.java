@@ -0,0 +1,35 @@
+package besucha.backend.dao;
+
+/**
+ * One row of the "preference" table, read without loading its StudentDao and SectionDao objects.
+ */
+public class PreferenceRow {
+
+	private final int studentId;
+	private final int sectionId;
+	private final boolean isRequired;
+	private final int preferenceRank;
+
+	public PreferenceRow(int studentId, int sectionId, boolean isRequired, int preferenceRank) {
+		this.studentId = studentId;
+		this.sectionId = sectionId;
+		this.isRequired = isRequired;
+		this.preferenceRank = preferenceRank;
+	}
+
+	public int getStudentId() {
+		return studentId;
+	}
+
+	public int getSectionId() {
+		return sectionId;
+	}
+
+	public boolean isRequired() {
+		return isRequired;
+	}
+
+	public int getPreferenceRank() {
+		return preferenceRank;
+	}
+}
@@ -0,0 +1,67 @@
+package besucha.backend.dao;
+
+import javax.persistence.*;
+
+/**
+ * RunDao object that manages the "run" table in MySQL.
+ * Each row records an enrollment run whose results were saved, with what is needed to reproduce
+ * or extend its lottery later.
+ */
+@Entity
+@Table(name = "run")
+public class RunDao {
+
+	/**
+	 * RunDao ID. Later runs have higher ids.
+	 */
+	@Id
+	@Column(name = "run_id")
+	@GeneratedValue
+	private int runId;
+
+	/**
+	 * Seed of the run's student lottery.
+	 */
+	private long seed;
+
+	/**
+	 * Name of the algorithm that enrolled the run, as an AlgorithmType name.
+	 */
+	private String algorithm;
+
+	public RunDao() {}
+
+	public RunDao(long seed, String algorithm) {
+		this.seed = seed;
+		this.algorithm = algorithm;
+	}
+
+	public int getRunId() {
+		return runId;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public void setAlgorithm(String algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	@Override
+	public String toString() {
+		return "RunDao{" +
+				"runId=" + runId +
+				", seed=" + seed +
+				", algorithm='" + algorithm + '\'' +
+				'}';
+	}
+}
@@ -52,6 +52,11 @@ public class StudentSectionKey implements Serializable {
 		return sectionId == that.sectionId;
 	}
 
+	@Override
+	public int hashCode() {
+		return 31 * studentId + sectionId;
+	}
+
 
 	@Override
 	public String toString() {
@@ -4,9 +4,13 @@ import javax.persistence.*;
 
 /**
  * WaitlistDao object that manages the "waitlist" table in MySQL.
+ * The table is indexed by student, and by section and position so a section's waitlist is read in order.
  */
 @Entity
-@Table(name = "waitlist")
+@Table(name = "waitlist", indexes = {
+		@Index(name = "waitlist_student_idx", columnList = "student_id"),
+		@Index(name = "waitlist_section_position_idx", columnList = "section_id, position")
+})
 public class WaitlistDao {
 
 	@EmbeddedId
@@ -0,0 +1,291 @@
+package besucha.backend.model.algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The state of a BalancedConflictAlgorithm run between two priority levels, enough to carry on
+ * from there: the lottery seed, which the lottery is drawn from again, every student's priority
+ * offset, the requests still waiting and the sections still open, and every section's enrolled
+ * list and waitlist in order. Queue keys are not kept, as they follow from the rest.
+ * Since the state is kept by index, the checkpoint also holds a fingerprint of what the indices
+ * stand for: the student and section ids in index order, and every student's requests in order,
+ * so it is not resumed on a course system imported in another order or with other data.
+ * Checkpoints are written in a compact binary form: a header naming the course system's size,
+ * then variable-length ints, so a student index usually takes two or three bytes.
+ */
+public class AlgorithmCheckpoint {
+
+	private static final int MAGIC = 0x42534350;	// "BSCP"
+	private static final int VERSION = 2;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long seed;
+	private final int levelsDone;
+	private final int numStudents;
+	private final int numSections;
+	private final int numEntries;
+	private final long fingerprint;			// hash of the ids and requests the indices stand for
+	private final int[] priorityOffset;		// student index -> offset from lost sections
+	private final BitSet waitingRequests;	// entries of the preference matrix still queued
+	private final BitSet openSections;		// sections that still have a queue
+	private final int[][] enrolled;			// section index -> enrolled student indices, in order
+	private final int[][] waitlists;		// section index -> waitlisted student indices, in order
+	private final Map<Integer, Integer> sectionEvaluations;
+
+	AlgorithmCheckpoint(long seed, int levelsDone, int numStudents, int numSections, int numEntries, long fingerprint,
+						int[] priorityOffset, BitSet waitingRequests, BitSet openSections,
+						int[][] enrolled, int[][] waitlists, Map<Integer, Integer> sectionEvaluations) {
+		this.seed = seed;
+		this.levelsDone = levelsDone;
+		this.numStudents = numStudents;
+		this.numSections = numSections;
+		this.numEntries = numEntries;
+		this.fingerprint = fingerprint;
+		this.priorityOffset = priorityOffset;
+		this.waitingRequests = waitingRequests;
+		this.openSections = openSections;
+		this.enrolled = enrolled;
+		this.waitlists = waitlists;
+		this.sectionEvaluations = sectionEvaluations;
+	}
+
+	/**
+	 * Getter for the seed of the run's lottery
+	 * @return the lottery seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Getter for the number of priority levels the run had finished
+	 * @return the number of levels done
+	 */
+	public int getLevelsDone() {
+		return levelsDone;
+	}
+
+	int[] getPriorityOffset() {
+		return priorityOffset;
+	}
+
+	BitSet getWaitingRequests() {
+		return waitingRequests;
+	}
+
+	BitSet getOpenSections() {
+		return openSections;
+	}
+
+	int[][] getEnrolled() {
+		return enrolled;
+	}
+
+	int[][] getWaitlists() {
+		return waitlists;
+	}
+
+	Map<Integer, Integer> getSectionEvaluations() {
+		return sectionEvaluations;
+	}
+
+	/**
+	 * Checks that the checkpoint was taken of the same course system, with the same students,
+	 * sections and requests at the same indices.
+	 * @param cs the course system to carry on with
+	 * @throws IllegalArgumentException if the course system has a different number of students,
+	 * sections or requests, or its ids or requests differ or are in another order
+	 */
+	void checkMatches(CourseSystem cs) {
+		PreferenceMatrix matrix = cs.getPreferenceMatrix();
+		if (matrix.numStudents() != numStudents || matrix.numSections() != numSections || matrix.numEntries() != numEntries)
+			throw new IllegalArgumentException("The checkpoint was taken of " + numStudents + " students, "
+					+ numSections + " sections and " + numEntries + " requests, not of this course system");
+		if (fingerprint(cs) != fingerprint)
+			throw new IllegalArgumentException("The checkpoint was taken of other students, sections or requests, "
+					+ "or of ones imported in another order");
+	}
+
+	/**
+	 * Hashes what a course system's indices stand for: its student ids and section ids in index
+	 * order, then each student's requested sections and whether they are required, in order.
+	 * @param cs the course system
+	 * @return the fingerprint
+	 */
+	static long fingerprint(CourseSystem cs) {
+		EnrollmentState state = cs.getEnrollmentState();
+		PreferenceMatrix matrix = cs.getPreferenceMatrix();
+		long hash = mix(FNV_OFFSET, state.numStudents());
+		for (int stud = 0; stud < state.numStudents(); stud++)
+			hash = mix(hash, state.getStudent(stud).getId());
+		hash = mix(hash, state.numSections());
+		for (int sect = 0; sect < state.numSections(); sect++)
+			hash = mix(hash, state.getSection(sect).getId());
+		for (int stud = 0; stud < matrix.numStudents(); stud++) {
+			hash = mix(hash, matrix.rowEnd(stud) - matrix.rowStart(stud));
+			for (int entry = matrix.rowStart(stud); entry < matrix.rowEnd(stud); entry++)
+				hash = mix(hash, matrix.isRequired(entry) ? ~matrix.getSection(entry) : matrix.getSection(entry));
+		}
+		return hash;
+	}
+
+	/**
+	 * Folds an int into an FNV-1a hash, a byte at a time.
+	 */
+	private static long mix(long hash, int value) {
+		for (int shift = 0; shift < 32; shift += 8)
+			hash = (hash ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+		return hash;
+	}
+
+	/**
+	 * Writes the checkpoint to a file, replacing it.
+	 * @param file the file to write
+	 * @throws IOException if the file could not be written
+	 */
+	public void write(Path file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file)) {
+			write(out);
+		}
+	}
+
+	/**
+	 * Writes the checkpoint to a stream.
+	 * @param stream the stream to write to; it is not closed
+	 * @throws IOException if the stream could not be written
+	 */
+	public void write(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(seed);
+		out.writeInt(levelsDone);
+		out.writeInt(numStudents);
+		out.writeInt(numSections);
+		out.writeInt(numEntries);
+		out.writeLong(fingerprint);
+		for (int offset : priorityOffset)
+			writeVarInt(out, -offset);	// offsets only ever go down from zero
+		writeBits(out, waitingRequests);
+		writeBits(out, openSections);
+		for (int sect = 0; sect < numSections; sect++) {
+			writeIndices(out, enrolled[sect]);
+			writeIndices(out, waitlists[sect]);
+		}
+		writeVarInt(out, sectionEvaluations.size());
+		for (Map.Entry<Integer, Integer> evaluations : sectionEvaluations.entrySet()) {
+			out.writeInt(evaluations.getKey());
+			writeVarInt(out, evaluations.getValue());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads a checkpoint from a file.
+	 * @param file the file to read
+	 * @return the checkpoint
+	 * @throws IOException if the file could not be read or is not a checkpoint
+	 */
+	public static AlgorithmCheckpoint read(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return read(in);
+		}
+	}
+
+	/**
+	 * Reads a checkpoint from a stream.
+	 * @param stream the stream to read from; it is not closed
+	 * @return the checkpoint
+	 * @throws IOException if the stream could not be read or does not hold a checkpoint
+	 */
+	public static AlgorithmCheckpoint read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+		if (in.readInt() != MAGIC)
+			throw new IOException("Not an enrollment checkpoint");
+		int version = in.readInt();
+		if (version != VERSION)
+			throw new IOException("Unsupported enrollment checkpoint version " + version);
+
+		long seed = in.readLong();
+		int levelsDone = in.readInt(), numStudents = in.readInt(), numSections = in.readInt(), numEntries = in.readInt();
+		long fingerprint = in.readLong();
+		int[] priorityOffset = new int[numStudents];
+		for (int stud = 0; stud < numStudents; stud++)
+			priorityOffset[stud] = -readVarInt(in);
+		BitSet waitingRequests = readBits(in), openSections = readBits(in);
+		int[][] enrolled = new int[numSections][], waitlists = new int[numSections][];
+		for (int sect = 0; sect < numSections; sect++) {
+			enrolled[sect] = readIndices(in);
+			waitlists[sect] = readIndices(in);
+		}
+		int numLevels = readVarInt(in);
+		Map<Integer, Integer> sectionEvaluations = new LinkedHashMap<>();
+		for (int i = 0; i < numLevels; i++) {
+			int level = in.readInt();
+			sectionEvaluations.put(level, readVarInt(in));
+		}
+		return new AlgorithmCheckpoint(seed, levelsDone, numStudents, numSections, numEntries, fingerprint, priorityOffset,
+				waitingRequests, openSections, enrolled, waitlists, sectionEvaluations);
+	}
+
+	private static void writeIndices(DataOutputStream out, int[] indices) throws IOException {
+		writeVarInt(out, indices.length);
+		for (int index : indices)
+			writeVarInt(out, index);
+	}
+
+	private static int[] readIndices(DataInputStream in) throws IOException {
+		int[] indices = new int[readVarInt(in)];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = readVarInt(in);
+		return indices;
+	}
+
+	private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+		long[] words = bits.toLongArray();
+		writeVarInt(out, words.length);
+		for (long word : words)
+			out.writeLong(word);
+	}
+
+	private static BitSet readBits(DataInputStream in) throws IOException {
+		long[] words = new long[readVarInt(in)];
+		for (int i = 0; i < words.length; i++)
+			words[i] = in.readLong();
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * Writes a non-negative int seven bits at a time, low bits first.
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed enrollment checkpoint");
+	}
+}
@@ -0,0 +1,44 @@
+package besucha.backend.model.algorithm;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The enrollment algorithms that can be chosen at run time.
+ */
+public enum AlgorithmType {
+	BALANCED,
+	PARALLEL,
+	MIN_COST_FLOW,
+	DEFERRED_ACCEPTANCE;
+
+	/**
+	 * Creates the algorithm of this type around a course system.
+	 * @param cs the course system to evaluate with the algorithm
+	 * @param seed the seed of the algorithm's student lottery
+	 * @return the algorithm, ready to run
+	 */
+	public Algorithm create(CourseSystem cs, long seed) {
+		switch (this) {
+			case PARALLEL:
+				return new ParallelComponentAlgorithm(cs, seed, ForkJoinPool.commonPool());
+			case MIN_COST_FLOW:
+				return new MinCostFlowAlgorithm(cs, seed);
+			case DEFERRED_ACCEPTANCE:
+				return new DeferredAcceptanceAlgorithm(cs, seed);
+			case BALANCED:
+			default:
+				return new BalancedConflictAlgorithm(cs, seed);
+		}
+	}
+
+	/**
+	 * Looks up an algorithm type by name, ignoring case and treating dashes as underscores,
+	 * so "min-cost-flow" names MIN_COST_FLOW.
+	 * @param name the name of the algorithm
+	 * @return the algorithm type
+	 * @throws IllegalArgumentException if no algorithm has that name
+	 */
+	public static AlgorithmType fromName(String name) {
+		return valueOf(name.trim().replace('-', '_').toUpperCase());
+	}
+}
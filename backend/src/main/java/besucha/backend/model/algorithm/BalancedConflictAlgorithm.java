@@ -5,25 +5,77 @@ import java.util.*;
 /**
  * Enrollment Algorithm designed around dealing with potentially
  * over-enrolling/conflicting classes, while ensuring no criterion
- * is given special weight when determining priority
+ * is given special weight when determining priority.
+ * Students, sections and requests are handled by their dense indices from
+ * the course system's EnrollmentState and PreferenceMatrix, so the enrollment loops do not box or hash.
  */
 public class BalancedConflictAlgorithm extends ConflictAlgorithm {
 	private ConflictAlgorithm.StudentPriorityList priorityChecker;
 	private CourseSystem cs;
-	private HashMap<Student, Integer> priorityOffset;
-	private HashMap<Section, List<Student>> preferenceMap;
+	private EnrollmentState state;
+	private int[] priorityOffset;				// student index -> offset from lost sections
+	private EnrollmentQueue[] preferenceMap;	// section index -> waiting requests, null if closed or unrequested
+	private EnrollmentQueue.RequestKeys requestKeys;	// requests are the entries of the preference matrix
+	private PreferenceMatrix matrix;
+	private int[] studentSeniority;
+	private final long seed;
+	private int[] lottery;						// student index -> lottery number; lower goes first among equals
+	private EnrollmentOrderBuilder orderBuilder;
+	private int[] orderBuffer, priorityBuffer, creditBuffer, lotteryBuffer;	// reusable buffers for counting-sorted orders
+	private BitSet dirtySections;
+	private LinkedHashMap<Integer, Integer> sectionEvaluations;
+	private int evaluationsThisLevel;
+	private CheckpointWriter checkpointWriter;	// null if the run is not checkpointed
+	private int[][] checkpointEnrolled, checkpointWaitlists;	// section index -> its lists at the last checkpoint
+	private BitSet sectionsChangedSinceCheckpoint;
+	private long courseSystemFingerprint;	// what the checkpoints' indices stand for
 
 	/**
-	 * Constructs the algorithm around the given course system.
+	 * Constructs the algorithm around the given course system, with a random lottery seed.
 	 * @param cs the course system to evaluate with the algorithm
 	 */
 	public BalancedConflictAlgorithm(CourseSystem cs){
-		Student s = (cs == null ? null : cs.getAllStudents().get(0));
+		this(cs, new Random().nextLong());
+	}
 
+	/**
+	 * Constructs the algorithm around the given course system. Runs over the same course system
+	 * with the same seed draw the same lottery, and so produce the same enrollment.
+	 * @param cs the course system to evaluate with the algorithm
+	 * @param seed the seed of the student lottery
+	 */
+	public BalancedConflictAlgorithm(CourseSystem cs, long seed){
+		this(cs, seed, (cs == null ? null : cs.getAllStudents().get(0)));
+	}
+
+	/**
+	 * Constructs the algorithm around part of a larger course system, sizing the priority
+	 * levels by the given student so that every part is ranked the way the whole would be.
+	 * @param cs the course system to evaluate with the algorithm
+	 * @param seed the seed of the student lottery
+	 * @param s the student whose preference count sizes the priority levels
+	 */
+	BalancedConflictAlgorithm(CourseSystem cs, long seed, Student s){
 		this.cs = cs;
+		this.state = (cs == null ? null : cs.getEnrollmentState());
 		this.priorityChecker = new ConflictAlgorithm.StudentPriorityList(s, false);
-		this.priorityOffset = new HashMap<>();
-		this.preferenceMap = new HashMap<>();
+		this.seed = seed;
+		this.orderBuilder = new EnrollmentOrderBuilder();
+		this.orderBuffer = new int[0];
+		this.priorityBuffer = new int[0];
+		this.creditBuffer = new int[0];
+		this.lotteryBuffer = new int[0];
+		this.dirtySections = new BitSet();
+		this.sectionEvaluations = new LinkedHashMap<>();
+		this.sectionsChangedSinceCheckpoint = new BitSet();
+	}
+
+	/**
+	 * Getter for the seed the student lottery is drawn from, so a run can be reproduced
+	 * @return the lottery seed
+	 */
+	public long getSeed(){
+		return this.seed;
 	}
 
 	/**
@@ -31,104 +83,266 @@ public class BalancedConflictAlgorithm extends ConflictAlgorithm {
 	 */
 	public Void runAlgorithm(){
 		this.fillPreferenceAndPriorityMap();
-		this.performEnrollment();
+		this.performEnrollment(0);
+		return null;
+	}
+
+	/**
+	 * Has the run hand a checkpoint to the given writer after every priority level, so that it
+	 * can be resumed from the last level finished
+	 * @param checkpointWriter the writer, or null to stop checkpointing
+	 */
+	public void setCheckpointWriter(CheckpointWriter checkpointWriter){
+		this.checkpointWriter = checkpointWriter;
+	}
+
+	/**
+	 * Carries on a run from a checkpoint, replacing every section's enrolled list and waitlist
+	 * with the checkpoint's and running the priority levels it had not finished.
+	 * The course system must hold the same students, sections and preferences as the run's.
+	 * @param checkpoint the checkpoint of the run
+	 * @throws IllegalArgumentException if the checkpoint was drawn from another seed, or taken
+	 * of a course system of another size
+	 */
+	public Void resume(AlgorithmCheckpoint checkpoint){
+		if (checkpoint.getSeed() != this.seed)
+			throw new IllegalArgumentException("The checkpoint was drawn from seed " + checkpoint.getSeed() + ", not " + this.seed);
+		checkpoint.checkMatches(this.cs);
+		this.restoreCheckpoint(checkpoint);
+		this.performEnrollment(checkpoint.getLevelsDone());
 		return null;
 	}
 
+	/**
+	 * Provides the number of sections evaluated at each priority level of the last run,
+	 * to measure how much work the enrollment rounds did
+	 * @return map from priority level to section evaluations, in the order the levels were run
+	 */
+	public Map<Integer, Integer> getSectionEvaluationCounts(){
+		return Collections.unmodifiableMap(this.sectionEvaluations);
+	}
+
 	/**
 	 * Determines the enrollment order of students wanting to get into a class
 	 * @param sect the section to enroll into
 	 * @param sl the list of students wishing to enroll
 	 */
-	@Override
 	protected Queue<Student> calculateStudentOrder(Section sect, List<Student> sl){
-		HashMap<Integer, HashMap<Integer, List<Student>>> enrollmentOrder = new HashMap<>(); //Convert this to tree?
-		List<Integer> priorityList = new ArrayList<>(), creditList = new ArrayList<>();
-
-		this.populateEnrollmentOrder(sect, sl, enrollmentOrder, priorityList, creditList);
+		this.drawLottery();
+		int count = sl.size(), numStudents = this.lottery.length;
+		this.ensureOrderBuffers(count);
+		for (int i = 0; i < count; i++){
+			Student s = sl.get(i);
+			int stud = this.state.indexOf(s);
+			this.orderBuffer[i] = i;
+			this.priorityBuffer[i] = getFinalPriority(s, sect);
+			this.creditBuffer[i] = this.cs.getNumEnrolledCredits(s);
+			this.lotteryBuffer[i] = (stud < 0 ? numStudents : this.lottery[stud]);
+		}
+		// we have no more metrics; the lottery is the last resort
+		this.orderBuilder.groupBy(this.orderBuffer, count, this.lotteryBuffer, numStudents + 1);
+		this.orderBuilder.sortByPriority(this.orderBuffer, count, this.priorityBuffer, this.creditBuffer);
 
-		this.specialSortHelperLists(priorityList, creditList);
+		Queue<Student> finalList = new ArrayDeque<>(count);
+		for (int i = 0; i < count; i++)
+			finalList.add(sl.get(this.orderBuffer[i]));
+		return finalList;
+	}
 
-		return this.buildProperlyOrderedQueue(priorityList, creditList, enrollmentOrder);
+	/**
+	 * Draws each student's lottery number from the seed, once per run.
+	 */
+	private void drawLottery(){
+		if (this.lottery == null)
+			this.lottery = generateStudentLottery(this.state.numStudents(), this.seed);
 	}
 
 	/**
-	 * Populates and initializes the necessary preference and priority offset maps
+	 * Populates and initializes the necessary preference and priority offset maps.
+	 * Every entry of the course system's preference matrix is a request, and each requested
+	 * section gets a persistent queue that is kept in order for the rest of the run.
+	 * The requests are put in enrollment order with counting sorts before being queued,
+	 * so every queue is filled in order without any reshuffling of its heap.
 	 */
 	private void fillPreferenceAndPriorityMap(){
-		for (Student stud : this.cs.getAllStudents()){
-			this.priorityOffset.put(stud, 0);
-			for (Preference preference : stud.getPreferences()){
-				// Need to make sure we initialize each new mapping
-				this.preferenceMap.computeIfAbsent(preference.getSection(), k -> new ArrayList<>());
-				this.preferenceMap.get(preference.getSection()).add(stud);
+		this.matrix = this.cs.getPreferenceMatrix();
+		this.drawLottery();
+		int numStudents = this.matrix.numStudents(), numSections = this.matrix.numSections();
+		int numRequests = this.matrix.numEntries();
+
+		this.priorityOffset = new int[numStudents];
+		this.studentSeniority = new int[numStudents];
+		this.preferenceMap = new EnrollmentQueue[numSections];
+		this.requestKeys = new EnrollmentQueue.RequestKeys(numRequests);
+		this.ensureOrderBuffers(numRequests);
+
+		int[] requestSection = new int[numRequests];
+		for (int stud = 0; stud < numStudents; stud++){
+			Student student = this.state.getStudent(stud);
+			this.studentSeniority[stud] = student.getSeniority().ordinal();
+			int creditLoad = this.cs.getNumEnrolledCredits(stud);
+
+			for (int request = this.matrix.rowStart(stud); request < this.matrix.rowEnd(stud); request++){
+				this.orderBuffer[request] = request;
+				this.priorityBuffer[request] = this.priorityChecker.calculatePriority(this.matrix.getRank(request), student, true);
+				this.creditBuffer[request] = creditLoad;
+				this.lotteryBuffer[request] = this.lottery[stud];
+				requestSection[request] = this.matrix.getSection(request);
+			}
+		}
+
+		// Lottery order is the tiebreak; the sorts are stable, so it survives within each bucket
+		this.orderBuilder.groupBy(this.orderBuffer, numRequests, this.lotteryBuffer, numStudents);
+		this.orderBuilder.sortByPriority(this.orderBuffer, numRequests, this.priorityBuffer, this.creditBuffer);
+		int[] sectionStart = this.orderBuilder.groupBy(this.orderBuffer, numRequests, requestSection, numSections);
+
+		for (int sect = 0; sect < numSections; sect++){
+			if (sectionStart[sect] == sectionStart[sect + 1]) continue;
+
+			// In-order requests never move up the heap, so each add is a single comparison
+			EnrollmentQueue queue = new EnrollmentQueue(this.requestKeys);
+			for (int i = sectionStart[sect]; i < sectionStart[sect + 1]; i++){
+				int request = this.orderBuffer[i];
+				queue.add(request, this.priorityBuffer[request], this.creditBuffer[request], this.lotteryBuffer[request]);
 			}
+			this.preferenceMap[sect] = queue;
 		}
 	}
 
+	/**
+	 * Makes sure the reusable ordering buffers can hold the given number of items
+	 */
+	private void ensureOrderBuffers(int count){
+		if (this.orderBuffer.length >= count) return;
+		this.orderBuffer = new int[count];
+		this.priorityBuffer = new int[count];
+		this.creditBuffer = new int[count];
+		this.lotteryBuffer = new int[count];
+	}
+
 	/**
 	 * Entry point for enrollment
+	 * @param levelsDone the number of priority levels already run
 	 */
-	private void performEnrollment(){
-		for (int currentPreferenceLevel : priorityChecker.getAllPriorities()){
-			this.performRoundOfEnrollment(currentPreferenceLevel);
+	private void performEnrollment(int levelsDone){
+		int[] priorities = priorityChecker.getAllPriorities();
+		for (int level = levelsDone; level < priorities.length; level++){
+			this.performRoundOfEnrollment(priorities[level]);
+			if (this.checkpointWriter != null)
+				this.checkpointWriter.write(this.takeCheckpoint(level + 1));
 		}
 	}
 
 	/**
-	 * Perform a round of enrollment, using the provided preference level
-	 * @param priorityLevel the priority to enroll at or above
+	 * Copies the state of the run between two priority levels. Only the copying is done on the
+	 * algorithm's thread; the writer encodes and writes it on its own. The lists of sections that
+	 * have not changed since the last checkpoint are shared with it rather than copied again.
+	 * @param levelsDone the number of priority levels run
+	 * @return the checkpoint
 	 */
-	private void performRoundOfEnrollment(int priorityLevel){
-		boolean didEnrollmentChange, OVER_ENROLLED = true, NORMAL = false;
-		do didEnrollmentChange = processEnrollmentIntoClasses(
-				this.preferenceMap.keySet(), priorityLevel, OVER_ENROLLED);
-		while (didEnrollmentChange);
-
-		processEnrollmentIntoClasses(this.preferenceMap.keySet(), priorityLevel, NORMAL);
+	private AlgorithmCheckpoint takeCheckpoint(int levelsDone){
+		int numSections = this.preferenceMap.length, numRequests = this.matrix.numEntries();
+		BitSet waitingRequests = this.requestKeys.getWaitingRequests(), openSections = new BitSet(numSections);
+		if (this.checkpointEnrolled == null){
+			this.checkpointEnrolled = new int[numSections][];
+			this.checkpointWaitlists = new int[numSections][];
+			this.sectionsChangedSinceCheckpoint.set(0, numSections);
+			this.courseSystemFingerprint = AlgorithmCheckpoint.fingerprint(this.cs);
+		}
+		for (int sect = 0; sect < numSections; sect++){
+			if (this.preferenceMap[sect] != null) openSections.set(sect);
+			if (!this.sectionsChangedSinceCheckpoint.get(sect)) continue;
+			Section section = this.state.getSection(sect);
+			this.checkpointEnrolled[sect] = this.indicesOf(section.getEnrolled());
+			this.checkpointWaitlists[sect] = this.indicesOf(section.getWaitlist());
+		}
+		this.sectionsChangedSinceCheckpoint.clear();
+		return new AlgorithmCheckpoint(this.seed, levelsDone, this.matrix.numStudents(), numSections, numRequests,
+				this.courseSystemFingerprint, this.priorityOffset.clone(), waitingRequests, openSections,
+				this.checkpointEnrolled.clone(), this.checkpointWaitlists.clone(), new LinkedHashMap<>(this.sectionEvaluations));
 	}
 
-	// Only meant to improve visiblity; look at implementation before using
-	private void specialSortHelperLists(List<Integer> priorityList, List<Integer> creditList){
-		Collections.sort(priorityList);
-		Collections.sort(creditList);
-		Collections.reverse(priorityList); // Put high priorities first
+	private int[] indicesOf(List<Student> students){
+		int[] indices = new int[students.size()];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = this.state.indexOf(students.get(i));
+		return indices;
 	}
 
 	/**
-	 * Creates a queue with the proper enrollment order of the students
-	 * @param priorityList the list of priorities to enroll with
-	 * @param creditList the list of credits to enroll with
-	 * @param enrollmentOrder the source of all enrollment stats
+	 * Puts the course system and the run back as they were at a checkpoint. Enrolled lists are
+	 * restored as they stand rather than enrolled again, as the order students were enrolled in
+	 * across sections, which the credit limit depends on, is not kept. The queues are rebuilt from
+	 * the requests still waiting, whose keys follow from the restored offsets and credit loads.
+	 * @param checkpoint the checkpoint
 	 */
-	private Queue<Student> buildProperlyOrderedQueue(List<Integer> priorityList, List<Integer> creditList,
-													 HashMap<Integer, HashMap<Integer, List<Student>>> enrollmentOrder){
-		Queue<Student> finalList = new LinkedList<>();
-
-		for (Integer i : priorityList){
-			for (Integer j : creditList){
-				List<Student> currentList = enrollmentOrder.get(i).get(j);
-				if (currentList == null) continue; // This commbination doesnt exist here
-				Collections.shuffle(currentList); // we have no more metrics; random is the last resort
-				finalList.addAll(currentList);
+	private void restoreCheckpoint(AlgorithmCheckpoint checkpoint){
+		this.matrix = this.cs.getPreferenceMatrix();
+		this.drawLottery();
+		int numStudents = this.matrix.numStudents(), numSections = this.matrix.numSections();
+		this.studentSeniority = new int[numStudents];
+		for (int stud = 0; stud < numStudents; stud++)
+			this.studentSeniority[stud] = this.state.getStudent(stud).getSeniority().ordinal();
+		this.priorityOffset = checkpoint.getPriorityOffset().clone();
+
+		this.cs.clearAllSections();
+		for (int sect = 0; sect < numSections; sect++){
+			Section section = this.state.getSection(sect);
+			for (int stud : checkpoint.getEnrolled()[sect]){
+				section.getEnrolled().add(this.state.getStudent(stud));
+				this.state.markEnrolled(stud, sect);
 			}
+			for (int stud : checkpoint.getWaitlists()[sect])
+				this.cs.addToWaitlist(stud, sect);
 		}
-		return finalList;
+
+		this.requestKeys = new EnrollmentQueue.RequestKeys(this.matrix.numEntries());
+		this.preferenceMap = new EnrollmentQueue[numSections];
+		BitSet openSections = checkpoint.getOpenSections();
+		for (int sect = openSections.nextSetBit(0); sect >= 0; sect = openSections.nextSetBit(sect + 1))
+			this.preferenceMap[sect] = new EnrollmentQueue(this.requestKeys);
+		BitSet waitingRequests = checkpoint.getWaitingRequests();
+		for (int request = waitingRequests.nextSetBit(0); request >= 0; request = waitingRequests.nextSetBit(request + 1)){
+			int stud = this.matrix.getStudent(request);
+			this.preferenceMap[this.matrix.getSection(request)].add(request, this.getFinalPriority(request),
+					this.cs.getNumEnrolledCredits(stud), this.lottery[stud]);
+		}
+		this.dirtySections.clear();
+		this.checkpointEnrolled = null;
+		this.sectionEvaluations.clear();
+		this.sectionEvaluations.putAll(checkpoint.getSectionEvaluations());
 	}
 
 	/**
-	 * Prepares the enrollment map for each future enrollment pass
+	 * Perform a round of enrollment, using the provided preference level.
+	 * Over-requested sections are worked off a worklist: after the first pass, only sections
+	 * whose queue was touched since they were last evaluated are looked at again, and the round
+	 * has converged once nothing is left dirty.
+	 * @param priorityLevel the priority to enroll at or above
 	 */
-	private void populateEnrollmentOrder(Section sect, List<Student> sl, HashMap<Integer, HashMap<Integer, List<Student>>> enrollmentOrder,
-										 List<Integer> priorityList, List<Integer> creditList){
+	private void performRoundOfEnrollment(int priorityLevel){
+		boolean OVER_ENROLLED = true, NORMAL = false;
+		this.evaluationsThisLevel = 0;
 
-		for (Student s : sl) {
-			int finalPriority = getFinalPriority(s, sect);
-			int creditLoad = cs.getNumEnrolledCredits(s);
+		// Lowering the priority level can make any waiting requester eligible
+		this.dirtySections.or(this.sectionsWithRequesters());
+		while (!this.dirtySections.isEmpty())
+			processEnrollmentIntoClasses((BitSet) this.dirtySections.clone(), priorityLevel, OVER_ENROLLED);
 
-			this.placeStudentInEnrollmentMap(s, enrollmentOrder, finalPriority, creditLoad);
-			this.updateAuxiliaryLists(priorityList, creditList, finalPriority, creditLoad);
-		}
+		processEnrollmentIntoClasses(this.sectionsWithRequesters(), priorityLevel, NORMAL);
+		this.dirtySections.clear();
+		this.sectionEvaluations.put(priorityLevel, this.evaluationsThisLevel);
+	}
+
+	/**
+	 * Lists the open sections that still have students waiting to enroll
+	 * @return the indices of the sections with a non-empty queue
+	 */
+	private BitSet sectionsWithRequesters(){
+		BitSet sections = new BitSet(this.preferenceMap.length);
+		for (int sect = 0; sect < this.preferenceMap.length; sect++)
+			if (this.preferenceMap[sect] != null && this.preferenceMap[sect].size() > 0) sections.set(sect);
+		return sections;
 	}
 
 	/**
@@ -138,64 +352,51 @@ public class BalancedConflictAlgorithm extends ConflictAlgorithm {
 	 * @return the priority level as an integer
 	 */
 	private int getFinalPriority(Student s, Section sect){
-		return this.priorityChecker.calculatePriority(s.getPreferenceRank(sect), s, true) + this.priorityOffset.get(s);
+		return this.priorityChecker.calculatePriority(s.getPreferenceRank(sect), s, true)
+				+ this.priorityOffset[this.state.indexOf(s)];
 	}
 
 	/**
-	 * Places student into enrollment map, initializing empty fields as necessary
-	 */
-	private void placeStudentInEnrollmentMap(Student s, HashMap<Integer, HashMap<Integer, List<Student>>> enrollmentOrder,
-											 int finalPriority, int creditLoad){
-		// Initialize sub maps if the don't exist yet
-		if (!enrollmentOrder.containsKey(finalPriority))
-			enrollmentOrder.put(finalPriority, new HashMap<>());
-
-		if (!enrollmentOrder.get(finalPriority).containsKey(creditLoad))
-			enrollmentOrder.get(finalPriority).put(creditLoad, new ArrayList<>());
-
-		enrollmentOrder.get(finalPriority).get(creditLoad).add(s);
-	}
-
-	/**
-	 * Updates auxiliary lists to help with enrollment
+	 * Returns the weighted priority value of a request
+	 * @param request the request of a student for a section
+	 * @return the priority level as an integer
 	 */
-	private void updateAuxiliaryLists(List<Integer> priorityList,
-									  List<Integer> creditList, int priority, int creditLoad){
-
-		if (!priorityList.contains(priority)) priorityList.add(priority);
-		if (!creditList.contains(creditLoad)) creditList.add(creditLoad);
-
+	private int getFinalPriority(int request){
+		int stud = this.matrix.getStudent(request);
+		return this.priorityChecker.calculatePriority(this.matrix.getRank(request), this.studentSeniority[stud], true)
+				+ this.priorityOffset[stud];
 	}
 
 	// This should only be called if it's absolutely confirmed the student
 	// should enroll in the course
-	private void enrollStudent(Student stud, Section sect){
+	private void enrollStudent(int stud, int sect){
 		this.cs.enroll(stud, sect);
+		this.sectionsChangedSinceCheckpoint.set(sect);
 	}
 
 	/**
 	 * Performs the enrollment of students into open sections.
 	 */
-	private boolean processEnrollmentIntoClasses(Set<Section> openSections, int priority, boolean selectOverwantedClasses){
-		List<Section> sectionsToRemove = new ArrayList<>();
-		for (Section sect : openSections){
+	private void processEnrollmentIntoClasses(BitSet openSections, int priority, boolean selectOverwantedClasses){
+		BitSet sectionsToRemove = new BitSet();
+		for (int sect = openSections.nextSetBit(0); sect >= 0; sect = openSections.nextSetBit(sect + 1)){
+			this.dirtySections.clear(sect);
+			this.evaluationsThisLevel++;
 			boolean sectionShouldBeRemoved = this.performEnrollmentRoundForSection(sect, priority, selectOverwantedClasses);
-			if (sectionShouldBeRemoved) sectionsToRemove.add(sect);
+			if (sectionShouldBeRemoved) sectionsToRemove.set(sect);
 		}
 
-		for (Section sect : sectionsToRemove) this.makeSectionClosed(sect);
-		return sectionsToRemove.size() > 0;
+		for (int sect = sectionsToRemove.nextSetBit(0); sect >= 0; sect = sectionsToRemove.nextSetBit(sect + 1))
+			this.makeSectionClosed(sect);
 	}
 
-	private boolean performEnrollmentRoundForSection(Section sect, int priority, boolean selectOverwantedClasses ){
+	private boolean performEnrollmentRoundForSection(int sect, int priority, boolean selectOverwantedClasses ){
 		boolean shouldRemove = false;
-		Queue<Student> enrollmentQueue = calculateStudentOrder(sect, preferenceMap.get(sect));
-		boolean isOverRequested = sect.openSeat() < enrollmentQueue.size();
+		EnrollmentQueue enrollmentQueue = this.preferenceMap[sect];
+		boolean isOverRequested = this.state.getSection(sect).openSeat() < enrollmentQueue.size();
 
-		if (selectOverwantedClasses == isOverRequested){
+		if (selectOverwantedClasses == isOverRequested)
 			shouldRemove = this.restartEnrollment(sect, enrollmentQueue, priority);
-			this.updatePreferenceMap(sect, enrollmentQueue);
-		}
 		return shouldRemove;
 	}
 
@@ -207,36 +408,37 @@ public class BalancedConflictAlgorithm extends ConflictAlgorithm {
 	 * @param priority the necessary priority to enroll into the class.
 	 * @return if the section was filled by the enrollment
 	 */
-	private boolean restartEnrollment(Section sect, Queue<Student> enrolleeQueue, int priority){
-		boolean isSectionClosed = false;
-		List<Student> studentsToRemove = new ArrayList<>();
+	private boolean restartEnrollment(int sect, EnrollmentQueue enrolleeQueue, int priority){
+		Section section = this.state.getSection(sect);
 
 		// Start iterating through queue
-		while (enrolleeQueue.size() > 0 && sect.hasOpenSeat()){
-			if (this.cs.hasMaxCredits(enrolleeQueue.peek())){
-				studentsToRemove.add(enrolleeQueue.remove());
-			} else if (this.hasInsignificantPriority(sect, enrolleeQueue, priority)) {
+		while (enrolleeQueue.size() > 0 && section.hasOpenSeat()){
+			int request = enrolleeQueue.peek();
+			int stud = this.matrix.getStudent(request);
+			if (this.cs.hasMaxCredits(stud)){
+				enrolleeQueue.poll();
+				this.removeStudentFromEnrollment(stud);
+			} else if (this.hasInsignificantPriority(request, priority)) {
 				break;
 			} else {
-				enrollStudent(enrolleeQueue.remove(), sect);
+				enrolleeQueue.poll();
+				enrollStudent(stud, sect);
+				this.updatePreferenceMap(stud);
 			}
 		}
 
-		if (!sect.hasOpenSeat()) isSectionClosed = true;
-
-		for (Student stud : studentsToRemove) this.removeStudentFromEnrollment(stud);
-
-		return isSectionClosed;
+		return !section.hasOpenSeat();
 	}
 
 	/**
-	 * Checks if a given student in the enrollment queue is not eligible for enrollment in this round
+	 * Checks if a given request in the enrollment queue is not eligible for enrollment in this round
 	 */
-	private boolean hasInsignificantPriority(Section sect, Queue<Student> enrolleeQueue, int priority){
+	private boolean hasInsignificantPriority(int request, int priority){
 		// Priority Check (assume: below priority = end enrollment for now)
+		int stud = this.matrix.getStudent(request);
 		int basePriority = this.priorityChecker.calculatePriority(
-				enrolleeQueue.peek().getPreferenceRank(sect), enrolleeQueue.peek());
-		return (basePriority + this.priorityOffset.get(enrolleeQueue.peek()) < priority);
+				this.matrix.getRank(request), this.studentSeniority[stud], false);
+		return (basePriority + this.priorityOffset[stud] < priority);
 	}
 
 	/**
@@ -244,33 +446,43 @@ public class BalancedConflictAlgorithm extends ConflictAlgorithm {
 	 * of the students who didn't manage to enroll in the section
 	 * @param sect the section that has been filled
 	 */
-	private void makeSectionClosed(Section sect){
+	private void makeSectionClosed(int sect){
 		// Potentially add exception to throw in case not empty?
-		for (Student stud : this.preferenceMap.get(sect)){
+		int[] waitlisted = this.preferenceMap[sect].drainInOrder();
+		this.preferenceMap[sect] = null;
+		this.dirtySections.clear(sect);
+		this.sectionsChangedSinceCheckpoint.set(sect);
+		for (int request : waitlisted){
+			int stud = this.matrix.getStudent(request);
 			this.cs.addToWaitlist(stud, sect);
-			this.priorityOffset.put(stud, this.priorityOffset.get(stud) - 1);
+			this.priorityOffset[stud]--;
+			this.updatePreferenceMap(stud);
 		}
-		this.preferenceMap.remove(sect);
 	}
 
 	/**
-	 * Removes no longer eligible students from the enrollment map by
-	 * replacing the existing list with the post-enrollment queue
-	 * @param sect the section that was enrolled into
-	 * @param remainingQueue the students left to be enrolled
+	 * Updates the enrollment map for a student whose priority offset or credit load
+	 * has changed, by re-keying them in every queue they are still waiting in.
+	 * A student's requests are contiguous, so this only touches their own preferences.
+	 * @param stud the student whose ordering keys changed
 	 */
-	private void updatePreferenceMap(Section sect, Queue<Student> remainingQueue){
-		List<Student> newList = this.preferenceMap.get(sect);
-		newList.clear();
-		while(remainingQueue.size() > 0){
-			newList.add(remainingQueue.remove());
+	private void updatePreferenceMap(int stud){
+		int creditLoad = this.cs.getNumEnrolledCredits(stud);
+		for (int request = this.matrix.rowStart(stud); request < this.matrix.rowEnd(stud); request++){
+			if (!this.requestKeys.isWaiting(request)) continue;
+
+			int sect = this.matrix.getSection(request);
+			this.preferenceMap[sect].update(request, getFinalPriority(request), creditLoad);
+			this.dirtySections.set(sect);
 		}
 	}
 
 	/** Removes student from the enrollment list */
-	private void removeStudentFromEnrollment(Student stud){
-		for (List<Student> enrolleeList : this.preferenceMap.values()){
-			enrolleeList.remove(stud);
+	private void removeStudentFromEnrollment(int stud){
+		for (int request = this.matrix.rowStart(stud); request < this.matrix.rowEnd(stud); request++){
+			int sect = this.matrix.getSection(request);
+			if (this.requestKeys.isWaiting(request) && this.preferenceMap[sect].remove(request))
+				this.dirtySections.set(sect);
 		}
 	}
 
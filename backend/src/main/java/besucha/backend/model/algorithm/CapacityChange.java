@@ -0,0 +1,41 @@
+package besucha.backend.model.algorithm;
+
+/**
+ * A change to a section's capacity planned by CapacityPlanner, with the gain the planner
+ * projected for it: waitlist entries removed, or first and second choices enrolled.
+ */
+public class CapacityChange {
+
+	private final Section section;
+	private final int extraSeats;
+	private final int newCapacity;
+	private final long impact;
+
+	public CapacityChange(Section section, int extraSeats, int newCapacity, long impact) {
+		this.section = section;
+		this.extraSeats = extraSeats;
+		this.newCapacity = newCapacity;
+		this.impact = impact;
+	}
+
+	public Section getSection() {
+		return section;
+	}
+
+	public int getExtraSeats() {
+		return extraSeats;
+	}
+
+	public int getNewCapacity() {
+		return newCapacity;
+	}
+
+	public long getImpact() {
+		return impact;
+	}
+
+	@Override
+	public String toString() {
+		return "Section " + section.getId() + ": +" + extraSeats + " seats (capacity " + newCapacity + "), impact " + impact;
+	}
+}
@@ -0,0 +1,218 @@
+package besucha.backend.model.algorithm;
+
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Plans where a budget of extra seats should go in an enrolled course system. Seats are handed
+ * out a step at a time, each to the section whose expansion the objective gains most from, as
+ * measured by applying the change to a fork through IncrementalEnrollment. Only sections
+ * whose demand, the number of students who requested them, is over capacity are candidates,
+ * since no one else could take a new seat, and steps never add seats beyond that demand.
+ * Each gain is measured against the component as the same update leaves it with no change in
+ * capacity. IncrementalEnrollment only promotes from waitlists in order and draws no lottery,
+ * so that baseline is the plan's own enrollment, and a gain is never noise from another draw.
+ * Gains are remembered between steps: a change can only move seats within its component of the
+ * student-section graph, so after each step only the candidates in the component just expanded
+ * are evaluated again. Candidates are evaluated side by side on a pool.
+ */
+public class CapacityPlanner {
+
+	/**
+	 * What the planner tries to improve.
+	 */
+	public enum Objective {
+		/** The total number of waitlist entries, to be made shorter */
+		WAITLIST_LENGTH,
+		/** The number of students enrolled in a first or second choice, to be made larger */
+		TOP_CHOICES
+	}
+
+	/** Sections are only candidates if they are among this many with the most unmet demand. */
+	public static final int DEFAULT_MAX_CANDIDATES = 64;
+
+	private final CourseSystem cs;
+	private final ForkJoinPool pool;
+	private final int maxCandidates;
+
+	/**
+	 * Constructs the planner on the common pool.
+	 * @param cs the enrolled course system; it is only forked, never changed
+	 */
+	public CapacityPlanner(CourseSystem cs) {
+		this(cs, ForkJoinPool.commonPool(), DEFAULT_MAX_CANDIDATES);
+	}
+
+	/**
+	 * Constructs the planner.
+	 * @param cs the enrolled course system; it is only forked, never changed
+	 * @param pool the pool to evaluate candidates on
+	 * @param maxCandidates the number of sections with the most unmet demand to consider
+	 */
+	public CapacityPlanner(CourseSystem cs, ForkJoinPool pool, int maxCandidates) {
+		this.cs = cs;
+		this.pool = pool;
+		this.maxCandidates = maxCandidates;
+	}
+
+	/**
+	 * Plans where the extra seats should go.
+	 * @param budget the number of extra seats to hand out
+	 * @param step the most seats to add to a section at a time
+	 * @param objective what to improve
+	 * @return the capacity changes in the order they were chosen, which is the order of their
+	 * gains; fewer seats than the budget are planned if no more would help
+	 */
+	public List<CapacityChange> plan(int budget, int step, Objective objective) {
+		if (budget < 0 || step <= 0)
+			throw new IllegalArgumentException("The budget must not be negative, and the step must be positive");
+
+		CourseSystem plan = cs.fork();
+		EnrollmentState state = plan.getEnrollmentState();
+		ComponentPartitioner partitioner = new ComponentPartitioner(plan);
+
+		// Candidates are the sections with the most unmet demand
+		List<Integer> candidates = new ArrayList<>();
+		for (int sect = 0; sect < state.numSections(); sect++)
+			if (unmetDemand(plan, sect) > 0 && partitioner.getSectionComponent(sect) >= 0)
+				candidates.add(sect);
+		candidates.sort(Comparator.comparingInt((Integer sect) -> -unmetDemand(plan, sect)).thenComparingInt(sect -> sect));
+		if (candidates.size() > maxCandidates)
+			candidates = candidates.subList(0, maxCandidates);
+
+		// An update with no changes moves no one, so each component's baseline is its current score
+		long[] componentScore = new long[partitioner.numComponents()];
+		for (int comp = 0; comp < componentScore.length; comp++)
+			componentScore[comp] = score(plan, partitioner, comp, objective);
+		Evaluation[] known = new Evaluation[state.numSections()];	// section -> its last evaluation
+		boolean[] isStale = new boolean[state.numSections()];		// whether the plan changed its component since
+
+		List<CapacityChange> changes = new ArrayList<>();
+		int remaining = budget;
+		while (remaining > 0) {
+			List<Integer> open = new ArrayList<>();
+			for (int sect : candidates) {
+				int seats = seatsToTry(plan, sect, step, remaining);
+				if (seats <= 0)
+					continue;
+				if (known[sect] != null && known[sect].seats != seats)
+					known[sect] = null;
+				open.add(sect);
+			}
+
+			// Gains need not shrink as a component gets more seats, so every candidate whose
+			// component changed is evaluated again rather than judged by its old gain
+			List<ForkJoinTask<Evaluation>> tasks = new ArrayList<>();
+			for (int sect : open) {
+				if (known[sect] != null && !isStale[sect])
+					continue;
+				int seats = seatsToTry(plan, sect, step, remaining);
+				long before = componentScore[partitioner.getSectionComponent(sect)];
+				CourseSystem fork = plan.fork();
+				tasks.add(pool.submit(() -> evaluate(fork, partitioner, sect, seats, before, objective)));
+			}
+			for (ForkJoinTask<Evaluation> task : tasks) {
+				Evaluation evaluation = task.join();
+				known[evaluation.section] = evaluation;
+				isStale[evaluation.section] = false;
+			}
+
+			Evaluation best = null;
+			for (int sect : open)
+				if (known[sect].isBetterThan(best))
+					best = known[sect];
+			if (best == null || best.gain <= 0) break;
+
+			// Make the change on the plan itself; only its component's evaluations are out of date
+			apply(plan, best.section, best.seats);
+			int comp = partitioner.getSectionComponent(best.section);
+			componentScore[comp] = best.score;
+			for (int sect : candidates)
+				if (partitioner.getSectionComponent(sect) == comp)
+					isStale[sect] = true;
+			remaining -= best.seats;
+			changes.add(new CapacityChange(cs.getEnrollmentState().getSection(best.section), best.seats,
+					state.getSection(best.section).getCapacity(), best.gain));
+		}
+		return changes;
+	}
+
+	private Evaluation evaluate(CourseSystem fork, ComponentPartitioner partitioner, int sect, int seats, long before,
+								Objective objective) {
+		apply(fork, sect, seats);
+		long after = score(fork, partitioner, partitioner.getSectionComponent(sect), objective);
+		long gain = (objective == Objective.WAITLIST_LENGTH ? before - after : after - before);
+		return new Evaluation(sect, seats, gain, after);
+	}
+
+	private void apply(CourseSystem system, int sect, int seats) {
+		Section section = system.getEnrollmentState().getSection(sect);
+		ChangeSet change = new ChangeSet().setCapacity(section.getId(), section.getCapacity() + seats);
+		try {
+			new IncrementalEnrollment(system).apply(change);
+		} catch (StudentDoesNotExistException | SectionDoesNotExistException e) {
+			throw new IllegalStateException("A section of the course system could not be found in its fork", e);
+		}
+	}
+
+	private static int seatsToTry(CourseSystem system, int sect, int step, int remaining) {
+		return Math.min(Math.min(step, remaining), unmetDemand(system, sect));
+	}
+
+	/**
+	 * Scores a component for an objective: its total waitlist length, or its number of first and
+	 * second choices enrolled.
+	 */
+	private static long score(CourseSystem system, ComponentPartitioner partitioner, int comp, Objective objective) {
+		EnrollmentState state = system.getEnrollmentState();
+		long score = 0;
+		if (objective == Objective.WAITLIST_LENGTH) {
+			for (int sect : partitioner.getSections(comp))
+				score += state.getSection(sect).getWaitlist().size();
+		} else {
+			PreferenceMatrix matrix = system.getPreferenceMatrix();
+			for (int stud : partitioner.getStudents(comp))
+				for (int entry = matrix.rowStart(stud); entry < matrix.rowEnd(stud); entry++)
+					if (matrix.getRank(entry) < 2 && state.isEnrolled(stud, matrix.getSection(entry)))
+						score++;
+		}
+		return score;
+	}
+
+	private static int unmetDemand(CourseSystem system, int sect) {
+		Section section = system.getEnrollmentState().getSection(sect);
+		return system.getPreferenceMatrix().getDemand(sect) - section.getCapacity();
+	}
+
+	/**
+	 * The outcome of trying a change on a fork of the plan.
+	 */
+	private static class Evaluation {
+		private final int section;
+		private final int seats;
+		private final long gain;
+		private final long score;
+
+		private Evaluation(int section, int seats, long gain, long score) {
+			this.section = section;
+			this.seats = seats;
+			this.gain = gain;
+			this.score = score;
+		}
+
+		/**
+		 * Compares gains per seat, breaking ties by section index so plans do not depend on the pool.
+		 */
+		private boolean isBetterThan(Evaluation other) {
+			if (other == null) return true;
+			long mine = gain * other.seats, theirs = other.gain * seats;
+			return (mine != theirs ? mine > theirs : section < other.section);
+		}
+	}
+}
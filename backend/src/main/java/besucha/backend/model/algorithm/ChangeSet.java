@@ -0,0 +1,171 @@
+package besucha.backend.model.algorithm;
+
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of edits to a course system that has already been enrolled, such as a section's
+ * capacity being raised, a student dropping a section, or a student handing in late
+ * preferences. Students and sections are named by id. A later edit of the same student's
+ * preferences or section's capacity replaces the earlier one.
+ */
+public class ChangeSet {
+
+	private final Map<Integer, Integer> capacities;		// section id -> new capacity
+	private final Map<Integer, int[]> preferredSections;	// student id -> section ids, in preference order
+	private final Map<Integer, boolean[]> neededSections;	// student id -> whether each preference is needed
+	private final Map<Integer, Set<Integer>> droppedSections;	// student id -> ids of the sections they drop
+
+	public ChangeSet() {
+		this.capacities = new LinkedHashMap<>();
+		this.preferredSections = new LinkedHashMap<>();
+		this.neededSections = new LinkedHashMap<>();
+		this.droppedSections = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Change the capacity of a section
+	 * @param sectionId the id of the section
+	 * @param capacity the new number of seats
+	 * @return this change set
+	 */
+	public ChangeSet setCapacity(int sectionId, int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity of section " + sectionId + " cannot be negative");
+		capacities.put(sectionId, capacity);
+		return this;
+	}
+
+	/**
+	 * Replace a student's preferences with electives, in preference order
+	 * @param studentId the id of the student
+	 * @param sectionIds the ids of the sections the student wants, most wanted first
+	 * @return this change set
+	 */
+	public ChangeSet setPreferences(int studentId, int... sectionIds) {
+		return setPreferences(studentId, sectionIds, new boolean[sectionIds.length]);
+	}
+
+	/**
+	 * Replace a student's preferences
+	 * @param studentId the id of the student
+	 * @param sectionIds the ids of the sections the student wants, most wanted first
+	 * @param isNeeded whether the student needs each of the sections
+	 * @return this change set
+	 */
+	public ChangeSet setPreferences(int studentId, int[] sectionIds, boolean[] isNeeded) {
+		if (sectionIds.length != isNeeded.length)
+			throw new IllegalArgumentException("Every preference of student " + studentId + " must say whether it is needed");
+		if (Arrays.stream(sectionIds).distinct().count() != sectionIds.length)
+			throw new IllegalArgumentException("Student " + studentId + " cannot prefer the same section twice");
+		preferredSections.put(studentId, Arrays.copyOf(sectionIds, sectionIds.length));
+		neededSections.put(studentId, Arrays.copyOf(isNeeded, isNeeded.length));
+		return this;
+	}
+
+	/**
+	 * Drop a student from a section they are enrolled in. The student gives up their request
+	 * for the section, so they are not enrolled in it again.
+	 * @param studentId the id of the student
+	 * @param sectionId the id of the section
+	 * @return this change set
+	 */
+	public ChangeSet drop(int studentId, int sectionId) {
+		droppedSections.computeIfAbsent(studentId, id -> new LinkedHashSet<>()).add(sectionId);
+		return this;
+	}
+
+	/**
+	 * Getter for the changed capacities
+	 * @return a Map of section ids to their new capacity
+	 */
+	public Map<Integer, Integer> getCapacities() {
+		return Collections.unmodifiableMap(capacities);
+	}
+
+	/**
+	 * Getter for the students whose preferences changed
+	 * @return the ids of the students, in the order they were edited
+	 */
+	public Set<Integer> getStudentsWithNewPreferences() {
+		return Collections.unmodifiableSet(preferredSections.keySet());
+	}
+
+	/**
+	 * Getter for a student's new preferences
+	 * @param studentId the id of the student
+	 * @return the ids of the sections the student wants, most wanted first
+	 */
+	public int[] getPreferredSections(int studentId) {
+		return preferredSections.get(studentId);
+	}
+
+	/**
+	 * Getter for whether a student needs each of their new preferences
+	 * @param studentId the id of the student
+	 * @return one flag per preferred section
+	 */
+	public boolean[] getNeededSections(int studentId) {
+		return neededSections.get(studentId);
+	}
+
+	/**
+	 * Getter for the students dropping sections
+	 * @return the ids of the students, in the order they first dropped a section
+	 */
+	public Set<Integer> getStudentsWithDrops() {
+		return Collections.unmodifiableSet(droppedSections.keySet());
+	}
+
+	/**
+	 * Getter for the sections a student drops
+	 * @param studentId the id of the student
+	 * @return the ids of the sections, or an empty set if the student drops none
+	 */
+	public Set<Integer> getDroppedSections(int studentId) {
+		return Collections.unmodifiableSet(droppedSections.getOrDefault(studentId, Collections.emptySet()));
+	}
+
+	/**
+	 * Determine if the change set has no edits
+	 * @return true if nothing changes
+	 */
+	public boolean isEmpty() {
+		return capacities.isEmpty() && preferredSections.isEmpty() && droppedSections.isEmpty();
+	}
+
+	/**
+	 * Checks that every student and section the change set names is in the course system.
+	 * @param studentsById the course system's students, by id
+	 * @param sectionsById the course system's sections, by id
+	 * @throws StudentDoesNotExistException if a student is not in the course system
+	 * @throws SectionDoesNotExistException if a section is not in the course system
+	 */
+	void validate(Map<Integer, Student> studentsById, Map<Integer, Section> sectionsById) throws
+			StudentDoesNotExistException, SectionDoesNotExistException {
+		for (int sectionId : capacities.keySet())
+			if (!sectionsById.containsKey(sectionId))
+				throw new SectionDoesNotExistException("Section with ID " + sectionId + " does not exist, so its capacity could not be changed.");
+		for (int studentId : preferredSections.keySet()) {
+			if (!studentsById.containsKey(studentId))
+				throw new StudentDoesNotExistException("Student with ID " + studentId + " does not exist, so their preferences could not be changed.");
+			for (int sectionId : preferredSections.get(studentId))
+				if (!sectionsById.containsKey(sectionId))
+					throw new SectionDoesNotExistException("Section with ID " + sectionId + " preferred by student " + studentId + " does not exist.");
+		}
+		for (int studentId : droppedSections.keySet()) {
+			if (!studentsById.containsKey(studentId))
+				throw new StudentDoesNotExistException("Student with ID " + studentId + " does not exist, so they could not drop a section.");
+			for (int sectionId : droppedSections.get(studentId))
+				if (!sectionsById.containsKey(sectionId))
+					throw new SectionDoesNotExistException("Section with ID " + sectionId + " dropped by student " + studentId + " does not exist.");
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package besucha.backend.model.algorithm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes checkpoints to a file on a thread of its own, so the algorithm never waits on the disk.
+ * Only the latest checkpoint matters: one handed over while another is being written replaces
+ * any still waiting. Each is written next to the file and then moved over it, so the file always
+ * holds a whole checkpoint. A failed write is reported by close.
+ */
+public class CheckpointWriter implements AutoCloseable {
+
+	private final Path file;
+	private final ExecutorService executor;
+	private final AtomicReference<AlgorithmCheckpoint> waiting = new AtomicReference<>();
+	private volatile IOException failure;
+	private volatile int numWritten;
+
+	/**
+	 * Constructs a writer for a file.
+	 * @param file the file to keep the latest checkpoint in
+	 */
+	public CheckpointWriter(Path file) {
+		this.file = file;
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "checkpoint-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Hands a checkpoint over to be written, without waiting for it.
+	 * @param checkpoint the checkpoint
+	 */
+	public void write(AlgorithmCheckpoint checkpoint) {
+		if (waiting.getAndSet(checkpoint) == null)
+			executor.execute(this::writeWaiting);
+	}
+
+	private void writeWaiting() {
+		AlgorithmCheckpoint checkpoint = waiting.getAndSet(null);
+		if (checkpoint == null) return;
+		try {
+			Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+			checkpoint.write(temporary);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			numWritten++;
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Getter for the file checkpoints are written to
+	 * @return the checkpoint file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Getter for the number of checkpoints written so far; ones replaced before their turn are not counted
+	 * @return the number of checkpoints written
+	 */
+	public int getNumWritten() {
+		return numWritten;
+	}
+
+	/**
+	 * Waits for the checkpoint handed over last to be written, and stops the writer's thread.
+	 * @throws IOException if a checkpoint could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing a checkpoint", e);
+		}
+		if (failure != null)
+			throw failure;
+	}
+}
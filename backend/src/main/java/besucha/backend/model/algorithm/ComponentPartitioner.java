@@ -0,0 +1,220 @@
+package besucha.backend.model.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a course system into the connected components of its student-section graph.
+ * A student and a section are connected if the student requested the section, or is
+ * already enrolled or waitlisted in it. No student or seat is shared between components,
+ * so each can be enrolled on its own without changing what happens in the others.
+ */
+public class ComponentPartitioner {
+
+	private final CourseSystem cs;
+	private final int[][] componentStudents;	// component -> student indices, ascending
+	private final int[][] componentSections;	// component -> section indices, ascending
+	private final int[] componentWork;			// component -> number of requests, as a cost estimate
+	private final int[] sectionComponent;		// section index -> component, or -1
+
+	/**
+	 * Finds the components of the given course system.
+	 * Students without requests have no work, and are left out along with any section
+	 * that is not connected to a student with requests.
+	 * @param cs the course system to partition
+	 */
+	public ComponentPartitioner(CourseSystem cs) {
+		this.cs = cs;
+		EnrollmentState state = cs.getEnrollmentState();
+		PreferenceMatrix matrix = cs.getPreferenceMatrix();
+		int numStudents = state.numStudents(), numSections = state.numSections();
+
+		// Union-find over students (0 .. numStudents - 1) and sections (numStudents ..)
+		int[] parent = new int[numStudents + numSections];
+		for (int node = 0; node < parent.length; node++)
+			parent[node] = node;
+		for (int entry = 0; entry < matrix.numEntries(); entry++)
+			union(parent, matrix.getStudent(entry), numStudents + matrix.getSection(entry));
+		for (int sect = 0; sect < numSections; sect++) {
+			Section section = state.getSection(sect);
+			for (Student student : section.getEnrolled())
+				unionRegistered(parent, state.indexOf(student), numStudents + sect);
+			for (Student student : section.getWaitlist())
+				unionRegistered(parent, state.indexOf(student), numStudents + sect);
+		}
+
+		// Number the components that have requests, in order of their first student
+		int[] component = new int[parent.length];
+		Arrays.fill(component, -1);
+		int numComponents = 0;
+		int[] studentCount = new int[numStudents], sectionCount = new int[numStudents], work = new int[numStudents];
+		for (int stud = 0; stud < numStudents; stud++) {
+			if (matrix.rowStart(stud) == matrix.rowEnd(stud)) continue;
+			int root = find(parent, stud);
+			if (component[root] < 0)
+				component[root] = numComponents++;
+			studentCount[component[root]]++;
+			work[component[root]] += matrix.rowEnd(stud) - matrix.rowStart(stud);
+		}
+		for (int sect = 0; sect < numSections; sect++) {
+			int root = find(parent, numStudents + sect);
+			if (component[root] >= 0)
+				sectionCount[component[root]]++;
+		}
+
+		this.componentStudents = new int[numComponents][];
+		this.componentSections = new int[numComponents][];
+		this.componentWork = Arrays.copyOf(work, numComponents);
+		for (int comp = 0; comp < numComponents; comp++) {
+			this.componentStudents[comp] = new int[studentCount[comp]];
+			this.componentSections[comp] = new int[sectionCount[comp]];
+		}
+		int[] filled = new int[numComponents];
+		for (int stud = 0; stud < numStudents; stud++) {
+			if (matrix.rowStart(stud) == matrix.rowEnd(stud)) continue;
+			int comp = component[find(parent, stud)];
+			this.componentStudents[comp][filled[comp]++] = stud;
+		}
+		Arrays.fill(filled, 0);
+		this.sectionComponent = new int[numSections];
+		for (int sect = 0; sect < numSections; sect++) {
+			int comp = component[find(parent, numStudents + sect)];
+			this.sectionComponent[sect] = comp;
+			if (comp >= 0)
+				this.componentSections[comp][filled[comp]++] = sect;
+		}
+	}
+
+	private static int find(int[] parent, int node) {
+		while (parent[node] != node) {
+			parent[node] = parent[parent[node]];
+			node = parent[node];
+		}
+		return node;
+	}
+
+	private static void union(int[] parent, int a, int b) {
+		int rootA = find(parent, a), rootB = find(parent, b);
+		if (rootA != rootB)
+			parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+	}
+
+	private static void unionRegistered(int[] parent, int student, int sectionNode) {
+		if (student >= 0)
+			union(parent, student, sectionNode);
+	}
+
+	/**
+	 * Number of components with requests
+	 * @return number of components
+	 */
+	public int numComponents() {
+		return componentStudents.length;
+	}
+
+	/**
+	 * Getter for the students of a component
+	 * @param component the component
+	 * @return the dense indices of its students, ascending
+	 */
+	public int[] getStudents(int component) {
+		return componentStudents[component];
+	}
+
+	/**
+	 * Getter for the sections of a component
+	 * @param component the component
+	 * @return the dense indices of its sections, ascending
+	 */
+	public int[] getSections(int component) {
+		return componentSections[component];
+	}
+
+	/**
+	 * Getter for the component a section belongs to
+	 * @param section the dense index of the section
+	 * @return the component, or -1 if no student with requests is connected to the section
+	 */
+	public int getSectionComponent(int section) {
+		return sectionComponent[section];
+	}
+
+	/**
+	 * Getter for the number of requests in a component, as an estimate of the work to enroll it
+	 * @param component the component
+	 * @return the number of requests
+	 */
+	public int getWork(int component) {
+		return componentWork[component];
+	}
+
+	/**
+	 * Splits the course system into parts of whole components. A component with at least the
+	 * given amount of work is a part on its own; smaller ones are packed together, in component
+	 * order, until a part has that much work. The packing depends only on the course system.
+	 * The parts share the original Student and Section objects, so enrolling a part fills the
+	 * original sections' lists; the original course system's EnrollmentState has to be synced
+	 * with those sections afterwards. Students and sections keep their relative order within
+	 * each part, and the parts are returned largest first.
+	 * @param minPartWork the number of requests a part should have, unless it is the last
+	 * @return the parts, each a course system over one or more whole components
+	 */
+	public List<CourseSystem> split(int minPartWork) {
+		int[] partOf = new int[numComponents()];
+		List<Long> partWork = new ArrayList<>();
+		int batch = -1;
+		for (int comp = 0; comp < partOf.length; comp++) {
+			if (componentWork[comp] >= minPartWork) {
+				partOf[comp] = partWork.size();
+				partWork.add((long) componentWork[comp]);
+				continue;
+			}
+			if (batch < 0) {
+				batch = partWork.size();
+				partWork.add(0L);
+			}
+			partOf[comp] = batch;
+			partWork.set(batch, partWork.get(batch) + componentWork[comp]);
+			if (partWork.get(batch) >= minPartWork)
+				batch = -1;
+		}
+
+		Integer[] bySize = new Integer[partWork.size()];
+		for (int part = 0; part < bySize.length; part++)
+			bySize[part] = part;
+		Arrays.sort(bySize, (a, b) -> Long.compare(partWork.get(b), partWork.get(a)));
+
+		EnrollmentState state = cs.getEnrollmentState();
+		List<CourseSystem> parts = new ArrayList<>(bySize.length);
+		for (int part : bySize) {
+			List<Student> students = new ArrayList<>();
+			List<Section> sections = new ArrayList<>();
+			for (int stud : merge(partOf, part, componentStudents))
+				students.add(state.getStudent(stud));
+			for (int sect : merge(partOf, part, componentSections))
+				sections.add(state.getSection(sect));
+			parts.add(new CourseSystem(new SectionList(sections), new StudentList(students)));
+		}
+		return parts;
+	}
+
+	/**
+	 * Concatenates the indices of one part's components back into ascending order
+	 */
+	private static int[] merge(int[] partOf, int part, int[][] byComponent) {
+		int size = 0;
+		for (int comp = 0; comp < partOf.length; comp++)
+			if (partOf[comp] == part) size += byComponent[comp].length;
+
+		int[] merged = new int[size];
+		int filled = 0;
+		for (int comp = 0; comp < partOf.length; comp++) {
+			if (partOf[comp] != part) continue;
+			System.arraycopy(byComponent[comp], 0, merged, filled, byComponent[comp].length);
+			filled += byComponent[comp].length;
+		}
+		Arrays.sort(merged);
+		return merged;
+	}
+}
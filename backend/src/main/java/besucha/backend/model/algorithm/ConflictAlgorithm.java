@@ -3,57 +3,77 @@ package besucha.backend.model.algorithm;
 import java.util.*;
 
 public abstract class ConflictAlgorithm implements Algorithm {
-	protected abstract Queue<Student> calculateStudentOrder(Section sect, List<Student> sl);
 
-	protected class StudentPriorityList {
-
-		private HashMap<StudentDetails, Integer> priorityLevelMap;
-		private final int MAX_PREFERENCES = 10;
-		private List<Integer> allPriorities;
-
-		private class StudentDetails{
-			private int studentSeniority;
-			private int preferenceRank;
-			private boolean isNecessaryCourse;
-
-			@SuppressWarnings("all") // Remove if this constructor is ever used.
-			public StudentDetails(int preferenceRank, Student s){
-				this(preferenceRank, s.getSeniority(), false);
-			}
-
-			public StudentDetails(int preferenceRank, Seniority s){
-				this(preferenceRank, s, false);
-			}
+	/**
+	 * Draws a lottery number for every student, as a random permutation drawn from the seed,
+	 * so no two students tie on it. Lower numbers go first among otherwise equal students.
+	 * @param numStudents the number of students, by dense index
+	 * @param seed the seed of the lottery
+	 * @return student index -> lottery number
+	 */
+	protected static int[] generateStudentLottery(int numStudents, long seed){
+		int[] draw = new int[numStudents];
+		for (int stud = 0; stud < numStudents; stud++)
+			draw[stud] = stud;
+		Random random = new Random(seed);
+		for (int i = numStudents - 1; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			int stud = draw[i];
+			draw[i] = draw[j];
+			draw[j] = stud;
+		}
 
-			public StudentDetails(int preferenceRank, Student s, boolean iNC){
-				this(preferenceRank, s.getSeniority(), iNC);
-			}
+		int[] lottery = new int[numStudents];
+		for (int number = 0; number < numStudents; number++)
+			lottery[draw[number]] = number;
+		return lottery;
+	}
 
-			public StudentDetails(int preferenceRank, Seniority s, boolean iNC){
-				this.studentSeniority = s.ordinal();
-				this.preferenceRank = preferenceRank;
-				this.isNecessaryCourse = iNC;
-			}
+	/**
+	 * Waitlists every request that did not get a seat in a section that is now full, by priority,
+	 * then credit load, then lottery. Like BalancedConflictAlgorithm draining the queue of a section
+	 * it closes, students who reached their credit limit are waitlisted too, since they may still
+	 * take the seat by dropping another.
+	 * @param cs the course system that was enrolled
+	 * @param priorityChecker the priorities of the run
+	 * @param lottery student index -> lottery number
+	 * @param orderBuilder builder to order the waitlists with
+	 */
+	protected static void waitlistUnassignedRequests(CourseSystem cs, StudentPriorityList priorityChecker,
+													 int[] lottery, EnrollmentOrderBuilder orderBuilder){
+		EnrollmentState state = cs.getEnrollmentState();
+		PreferenceMatrix matrix = cs.getPreferenceMatrix();
+		int numRequests = matrix.numEntries(), count = 0;
+		int[] order = new int[numRequests], priority = new int[numRequests], creditLoad = new int[numRequests];
+		int[] lotteryOf = new int[numRequests], sectionOf = new int[numRequests];
+
+		for (int request = 0; request < numRequests; request++){
+			int stud = matrix.getStudent(request), sect = matrix.getSection(request);
+			if (state.isEnrolled(stud, sect) || state.getSection(sect).hasOpenSeat()) continue;
+
+			priority[request] = priorityChecker.calculatePriority(
+					matrix.getRank(request), state.getStudent(stud).getSeniority().ordinal(), true);
+			creditLoad[request] = cs.getNumEnrolledCredits(stud);
+			lotteryOf[request] = lottery[stud];
+			sectionOf[request] = sect;
+			order[count++] = request;
+		}
 
-			@Override
-			public boolean equals(Object o){
-				if(o == this) return true;
-				if (!(o instanceof StudentDetails)) return false;
-				StudentDetails sd = (StudentDetails)o;
-				return (sd.studentSeniority == this.studentSeniority
-						&& sd.preferenceRank == this.preferenceRank
-						&& sd.isNecessaryCourse == this.isNecessaryCourse);
-			}
+		orderBuilder.groupBy(order, count, lotteryOf, lottery.length);
+		orderBuilder.sortByPriority(order, count, priority, creditLoad);
+		orderBuilder.groupBy(order, count, sectionOf, matrix.numSections());
+		for (int i = 0; i < count; i++)
+			cs.addToWaitlist(matrix.getStudent(order[i]), matrix.getSection(order[i]));
+	}
 
-			@Override
-			public String toString(){
-				return String.format("(%d, %d, %s)", this.studentSeniority, this.preferenceRank,
-						this.isNecessaryCourse? "needed" : "elective");
-			}
-		}
+	protected static class StudentPriorityList {
 
+		private final int MAX_PREFERENCES = 10;
+		private final int ELECTIVE = 0, NEEDED = 1, UNASSIGNED = -1;
+		private int[][][] priorityTable;	// [isNeeded][preferenceRank][seniority ordinal] -> priority
+		private int[] allPriorities;
 
-		private void populatePriorityMap(Student s, boolean isJagged){
+		private void populatePriorityTable(Student s, boolean isJagged){
 			Seniority[] seniorities = Seniority.values();
 			int maxPreferences = MAX_PREFERENCES;
 			int maxSeniority = seniorities.length;
@@ -62,48 +82,58 @@ public abstract class ConflictAlgorithm implements Algorithm {
 				maxPreferences = s.getPreferences().size();
 
 			if (isJagged){
+				initializePriorityTable(Math.max(maxPreferences, maxSeniority), maxSeniority);
 				jaggedPriorityAssignment(maxPreferences, maxSeniority);
 			} else {
+				initializePriorityTable(maxPreferences, maxSeniority);
 				balancedPriorityAssignment(maxPreferences, maxSeniority);
 			}
 			determineNumberOfPriorities();
 		}
 
+		private void initializePriorityTable(int maxPreferences, int maxSeniority){
+			this.priorityTable = new int[2][maxPreferences][maxSeniority];
+			for (int[][] byRank : this.priorityTable)
+				for (int[] bySeniority : byRank)
+					Arrays.fill(bySeniority, UNASSIGNED);
+		}
+
 		private void jaggedPriorityAssignment(int maxPreferences, int maxSeniority){
-			Seniority[] seniorities = Seniority.values();
 			int rounds = maxPreferences + maxSeniority - 1;
 			for(int i = 0; i < rounds; i++){
 				for (int k = 0; k <= i && k < maxSeniority; k++){
 					if (i-k < maxSeniority){
-						this.priorityLevelMap.put(new StudentDetails(i-k, seniorities[k]), rounds - i);
+						this.priorityTable[ELECTIVE][i-k][k] = rounds - i;
 					}
 				}
 			}
 		}
 
 		private void balancedPriorityAssignment(int maxPreferences, int maxSeniority){
-			Seniority[] seniorities = Seniority.values();
-			boolean isNeeded = true;
-			for (int b = 0; b < 2; b++, isNeeded = false){
+			int isNeeded = NEEDED;
+			for (int b = 0; b < 2; b++, isNeeded = ELECTIVE){
 				for(int i = 0; i < maxPreferences; i++){
 					for (int k = 0; k < maxSeniority; k++){
 						int value = 2 * maxPreferences * maxSeniority -
 								((maxPreferences * maxSeniority * b) + (maxSeniority * i) + k + 1);
-						this.priorityLevelMap.put(new StudentDetails(i, seniorities[k], isNeeded), value);
+						this.priorityTable[isNeeded][i][k] = value;
 					}
 				}
 			}
 		}
 
 		private void determineNumberOfPriorities(){
-			Collection<Integer> vals = this.priorityLevelMap.values();
-			for (Integer i : vals){
-				if (!this.allPriorities.contains(i)){
-					allPriorities.add(i);
-				}
-			}
-			Collections.sort(this.allPriorities);
-			Collections.reverse(this.allPriorities); // Largest Priority First
+			int[] vals = Arrays.stream(this.priorityTable)
+					.flatMap(Arrays::stream)
+					.flatMapToInt(Arrays::stream)
+					.filter(i -> i != UNASSIGNED)
+					.distinct()
+					.sorted()
+					.toArray();
+
+			this.allPriorities = new int[vals.length];
+			for (int i = 0; i < vals.length; i++) // Largest Priority First
+				this.allPriorities[i] = vals[vals.length - 1 - i];
 		}
 
 		/////////////////////////////////////////////////////////////////////////
@@ -118,9 +148,7 @@ public abstract class ConflictAlgorithm implements Algorithm {
 		}
 
 		public StudentPriorityList(Student s, boolean useJaggedPriorities){
-			this.priorityLevelMap = new HashMap<>();
-			this.allPriorities = new ArrayList<>();
-			this.populatePriorityMap(s, useJaggedPriorities);
+			this.populatePriorityTable(s, useJaggedPriorities);
 		}
 
 		/**
@@ -141,14 +169,24 @@ public abstract class ConflictAlgorithm implements Algorithm {
 		 * @return the priority rating
 		 */
 		public int calculatePriority(int preferenceRank, Student s, boolean isNeeded){
-			StudentDetails selectedSd = new StudentDetails(preferenceRank, s, isNeeded);
-			for (StudentDetails sd : priorityLevelMap.keySet()){
-				if ((sd.toString()).equals((selectedSd).toString())){
-					return priorityLevelMap.get(sd);
-				}
-			}
-			System.out.printf("%s's #%d preference deranked\n", s.getName(), preferenceRank);
-			return -1;
+			int priority = this.calculatePriority(preferenceRank, s.getSeniority().ordinal(), isNeeded);
+			if (priority == UNASSIGNED)
+				System.out.printf("%s's #%d preference deranked\n", s.getName(), preferenceRank);
+			return priority;
+		}
+
+		/**
+		 * Looks up the priority of a student's preference in the precomputed table, without allocating.
+		 * @param preferenceRank the nth (starting from 0) pick section of the student
+		 * @param seniority the ordinal of the student's Seniority
+		 * @param isNeeded a boolean representing whether or not student needs the class
+		 * @return the priority rating, or -1 if the combination has no priority
+		 */
+		public int calculatePriority(int preferenceRank, int seniority, boolean isNeeded){
+			int[][] byRank = this.priorityTable[isNeeded ? NEEDED : ELECTIVE];
+			if (preferenceRank < 0 || preferenceRank >= byRank.length)
+				return UNASSIGNED;
+			return byRank[preferenceRank][seniority];
 		}
 
 		/**
@@ -156,14 +194,14 @@ public abstract class ConflictAlgorithm implements Algorithm {
 		 * @return size of the priority list.
 		 */
 		public int getNumberOfPriorities(){
-			return this.allPriorities.size();
+			return this.allPriorities.length;
 		}
 
 		/**
-		 * Provides the list of all priorities calculated by the class
-		 * @return sorted list of all priorities
+		 * Provides all priorities calculated by the class
+		 * @return array of all priorities, largest first
 		 */
-		public List<Integer> getAllPriorities(){
+		public int[] getAllPriorities(){
 			return this.allPriorities;
 		}
 	}
@@ -2,7 +2,10 @@ package besucha.backend.model.algorithm;
 
 import besucha.backend.exception.DuplicationException;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages CourseSystem that the algorithm runs on.
@@ -12,6 +15,8 @@ public class CourseSystem {
 	// Attributes
 	private SectionList allSections;
 	private StudentList allStudents;
+	private EnrollmentState state;
+	private PreferenceMatrix preferenceMatrix;	// built on first use, dropped when students or sections are added
 	private final double MAX_CREDITS = 5;	// max credits a student is eligible to enroll in
 
 	// Constructor(s)
@@ -21,6 +26,7 @@ public class CourseSystem {
 	public CourseSystem() {
 		this.allSections = new SectionList();
 		this.allStudents = new StudentList();
+		this.state = new EnrollmentState();
 	}
 
 	/**
@@ -32,6 +38,11 @@ public class CourseSystem {
 		this();
 		this.allSections = sectionList;
 		this.allStudents = studentList;
+
+		for (Student student : studentList.getStudents())
+			state.addStudent(student);
+		for (Section section : sectionList.getSections())
+			state.addSection(section);
 	}
 
 	// Methods
@@ -45,6 +56,24 @@ public class CourseSystem {
 	public boolean enroll(Student student, Section section) {
 		if (canEnroll(student, section)) {
 			section.getEnrolled().add(student);
+			state.markEnrolled(state.indexOf(student), state.indexOf(section));
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Enroll a student in a section by their dense indices, assuming they are eligible.
+	 * @param student index of the student to enroll
+	 * @param section index of the section to enroll the student in
+	 * @return true if student successfully enrolled
+	 */
+	public boolean enroll(int student, int section) {
+		Section sect = state.getSection(section);
+		if (!state.isEnrolled(student, section) && hasSpace(student) && sect.hasOpenSeat()) {
+			sect.getEnrolled().add(state.getStudent(student));
+			state.markEnrolled(student, section);
 			return true;
 		}
 
@@ -52,15 +81,46 @@ public class CourseSystem {
 	}
 
 
+	/**
+	 * Drop a student from a section by their dense indices, giving back the section's credits.
+	 * @param student index of the student to drop
+	 * @param section index of the section to drop the student from
+	 * @return true if the student was enrolled in the section
+	 */
+	public boolean drop(int student, int section) {
+		if (!state.isEnrolled(student, section))
+			return false;
+
+		state.getSection(section).getEnrolled().remove(state.getStudent(student));
+		state.markDropped(student, section);
+		return true;
+	}
+
 	/**
 	 * Adds student to the waitlist.
 	 * @param stud Student object
 	 * @param sect Section object
 	 */
 	public void addToWaitlist(Student stud, Section sect){
-		List<Student> waitlist = sect.getWaitlist();
-		if (!waitlist.contains(stud))
-			waitlist.add(stud);
+		int student = state.indexOf(stud), section = state.indexOf(sect);
+		if (student < 0 || section < 0) {
+			if (!sect.getWaitlist().contains(stud))
+				sect.getWaitlist().add(stud);
+			return;
+		}
+		addToWaitlist(student, section);
+	}
+
+	/**
+	 * Adds student to the waitlist by their dense indices.
+	 * @param student index of the student
+	 * @param section index of the section
+	 */
+	public void addToWaitlist(int student, int section){
+		if (!state.isWaitlisted(student, section)) {
+			state.getSection(section).getWaitlist().add(state.getStudent(student));
+			state.markWaitlisted(student, section);
+		}
 	}
 
 	/**
@@ -70,8 +130,8 @@ public class CourseSystem {
 	 * @return true if both student and section are in course system, student is not already enrolled, the student has space, and the section has space
 	 */
 	public boolean canEnroll(Student student, Section section) {
-		return (allSections.getSections().contains(section)
-				&& allStudents.getStudents().contains(student)
+		return (state.indexOf(section) >= 0
+				&& state.indexOf(student) >= 0
 				&& !isEnrolled(student, section)
 				&& studentHasSpace(student)
 				&& sectionHasSpace(section));
@@ -94,7 +154,20 @@ public class CourseSystem {
 	 * @return true if student already has max number of credits
 	 */
 	public boolean hasMaxCredits(Student student) {
-		return (getNumEnrolledCredits(student) >= MAX_CREDITS);
+		return (getEnrolledCredits(student) >= MAX_CREDITS);
+	}
+
+	/**
+	 * Determine if student already has max number of credits, by dense index
+	 * @param student index of the student to check
+	 * @return true if student already has max number of credits
+	 */
+	public boolean hasMaxCredits(int student) {
+		return (state.getEnrolledCredits(student) >= MAX_CREDITS);
+	}
+
+	private boolean hasSpace(int student) {
+		return (state.getEnrolledCredits(student) < MAX_CREDITS);
 	}
 
 	/**
@@ -103,7 +176,7 @@ public class CourseSystem {
 	 * @return true if student can enroll in more classes
 	 */
 	public boolean studentHasSpace(Student student) {
-		return (getNumEnrolledCredits(student) < MAX_CREDITS);
+		return (getEnrolledCredits(student) < MAX_CREDITS);
 	}
 
 
@@ -113,13 +186,26 @@ public class CourseSystem {
 	 * @return integer representing number of sections they are enrolled in
 	 */
 	public int getNumEnrolledCredits(Student student) {
-		int enrolledCredits = 0;
+		return (int) getEnrolledCredits(student);
+	}
 
-		for (Section section : allSections.getSections())
-			if (isEnrolled(student, section))
-				enrolledCredits+= section.getCreditWeight();
+	/**
+	 * Calculate the number of credits a student is enrolled in, by dense index.
+	 * @param student index of the student to evaluate
+	 * @return integer representing number of sections they are enrolled in
+	 */
+	public int getNumEnrolledCredits(int student) {
+		return (int) state.getEnrolledCredits(student);
+	}
 
-		return enrolledCredits;
+	/**
+	 * Get the total credit weight of the sections a student is enrolled in.
+	 * @param student the student to evaluate
+	 * @return the credit weight, including fractional credits such as labs
+	 */
+	public double getEnrolledCredits(Student student) {
+		int index = state.indexOf(student);
+		return (index < 0 ? 0 : state.getEnrolledCredits(index));
 	}
 
 	/**
@@ -129,7 +215,10 @@ public class CourseSystem {
 	 * @return true if student is already enrolled in section
 	 */
 	public boolean isEnrolled(Student student, Section section) {
-		return section.getEnrolled().contains(student);
+		int stud = state.indexOf(student), sect = state.indexOf(section);
+		if (stud < 0 || sect < 0)
+			return section.getEnrolled().contains(student);
+		return state.isEnrolled(stud, sect);
 	}
 
 	/**
@@ -139,6 +228,8 @@ public class CourseSystem {
 	 */
 	public void addStudent(Student s) throws DuplicationException{
 		allStudents.addStudent(s);
+		state.addStudent(s);
+		preferenceMatrix = null;
 	}
 
 
@@ -149,6 +240,105 @@ public class CourseSystem {
 	 */
 	public void addSection(Section s) throws DuplicationException {
 		allSections.addSection(s);
+		state.addSection(s);
+		preferenceMatrix = null;
+	}
+
+	/**
+	 * Drops every student from a section's enrolled list and waitlist, giving back the credits
+	 * of its enrolled students, so the section can be enrolled again.
+	 * @param section index of the section
+	 */
+	public void clearSection(int section) {
+		Section sect = state.getSection(section);
+		state.clearSection(section);
+		sect.getEnrolled().clear();
+		sect.getWaitlist().clear();
+	}
+
+	/**
+	 * Drops every student from every section, so the whole System can be enrolled again.
+	 */
+	public void clearAllSections() {
+		for (int section = 0; section < state.numSections(); section++)
+			clearSection(section);
+	}
+
+	/**
+	 * Copies the students, sections and preferences of the System with no one enrolled or
+	 * waitlisted, so an algorithm can run on the copy without touching this System. Students
+	 * and sections keep their indices, so the copy shares the preference matrix, which is
+	 * never changed once built.
+	 * @return the copy
+	 */
+	public CourseSystem copyWithoutEnrollments() {
+		Map<Section, Section> copies = new IdentityHashMap<>();
+		List<Section> sections = new ArrayList<>(getAllSections().size());
+		for (Section section : getAllSections()) {
+			Section copy = new Section(section.getId(), section.getTitle(), section.getCapacity(), section.getCreditWeight());
+			copies.put(section, copy);
+			sections.add(copy);
+		}
+		List<Student> students = new ArrayList<>(getAllStudents().size());
+		for (Student student : getAllStudents()) {
+			List<Preference> preferences = new ArrayList<>(student.getPreferences().size());
+			for (Preference preference : student.getPreferences()) {
+				Section section = copies.getOrDefault(preference.getSection(), preference.getSection());
+				preferences.add(new Preference(section, preference.isRequired()));
+			}
+			students.add(new Student(student.getId(), student.getName(), student.getSeniority(), preferences));
+		}
+
+		CourseSystem copy = new CourseSystem(new SectionList(sections), new StudentList(students));
+		copy.preferenceMatrix = getPreferenceMatrix();
+		return copy;
+	}
+
+	/**
+	 * Forks the System, enrollments and all, so what-if changes can be tried on the fork while
+	 * this System stays as it is. The fork is cheap: its sections read this System's enrolled
+	 * lists and waitlists until one of them is first asked for, the enrollment state's bitsets
+	 * are shared until either System changes them, the preference matrix is shared outright, and
+	 * each student's preferences are only copied once asked for. Students and sections themselves
+	 * are copied, since preferences and lists name them directly.
+	 * Either System may change afterwards without the other seeing it, but forks must be taken
+	 * on one thread at a time.
+	 * @return the fork
+	 */
+	public CourseSystem fork() {
+		PreferenceMatrix matrix = getPreferenceMatrix();
+
+		List<Section> forkSections = new ArrayList<>(state.numSections());
+		for (int sect = 0; sect < state.numSections(); sect++)
+			forkSections.add(new ForkedSection(state.getSection(sect), state));
+		List<Student> forkStudents = new ArrayList<>(state.numStudents());
+		for (int stud = 0; stud < state.numStudents(); stud++)
+			forkStudents.add(new ForkedStudent(state.getStudent(stud), state));
+
+		CourseSystem fork = new CourseSystem();
+		fork.state = state.fork(forkStudents, forkSections);
+		for (Section section : forkSections)
+			((ForkedSection) section).setState(fork.state);
+		for (Student student : forkStudents)
+			((ForkedStudent) student).setState(fork.state);
+		List<Section> sectionList = new ArrayList<>(getAllSections().size());
+		for (Section section : getAllSections())
+			sectionList.add(fork.state.getSection(state.indexOf(section)));
+		List<Student> studentList = new ArrayList<>(getAllStudents().size());
+		for (Student student : getAllStudents())
+			studentList.add(fork.state.getStudent(state.indexOf(student)));
+		fork.allSections = new SectionList(sectionList);
+		fork.allStudents = new StudentList(studentList);
+		fork.preferenceMatrix = matrix;
+		return fork;
+	}
+
+	/**
+	 * Drops the preference matrix, so the next one is taken from the students' current
+	 * preferences. Call after changing a student's preferences.
+	 */
+	public void preferencesChanged() {
+		preferenceMatrix = null;
 	}
 
 
@@ -168,6 +358,35 @@ public class CourseSystem {
 		return allSections.getSections();
 	}
 
+	/**
+	 * Getter for the dense, integer-indexed enrollment state backing the System
+	 * @return the enrollment state
+	 */
+	public EnrollmentState getEnrollmentState() {
+		return state;
+	}
+
+	/**
+	 * Getter for the preference matrix of the System. The matrix is a snapshot of the
+	 * students' preferences, taken the first time it is requested after the last student
+	 * or section was added or preferences changed, so preferences should be complete before
+	 * the algorithm runs.
+	 * @return the preference matrix
+	 */
+	public PreferenceMatrix getPreferenceMatrix() {
+		if (preferenceMatrix == null)
+			preferenceMatrix = new PreferenceMatrix(state);
+		return preferenceMatrix;
+	}
+
+	/**
+	 * Getter for the maximum number of credits a student may enroll in
+	 * @return max credits
+	 */
+	public double getMaxCredits() {
+		return MAX_CREDITS;
+	}
+
 	@Override
 	public String toString() {
 		return "CourseSystem{" +
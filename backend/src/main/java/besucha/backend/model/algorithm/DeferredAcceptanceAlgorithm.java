@@ -0,0 +1,232 @@
+package besucha.backend.model.algorithm;
+
+import java.util.*;
+
+/**
+ * Enrollment Algorithm using student-proposing deferred acceptance.
+ * Free students propose to the next section on their preference list, and each section
+ * tentatively holds its best proposals so far, up to its open seats, ranked by priority and then
+ * lottery. A student keeps proposing while the credits of the seats they hold, added to the
+ * credits they are already enrolled in, leave them under the credit limit.
+ * Seats are only final once nobody is left to propose, so no student can gain by misreporting
+ * their preferences. Every request is proposed at most once, and a section only keeps as many
+ * proposals as it has seats, so a run takes time proportional to the total preferences times
+ * the log of a section's capacity.
+ */
+public class DeferredAcceptanceAlgorithm extends ConflictAlgorithm {
+
+	private ConflictAlgorithm.StudentPriorityList priorityChecker;
+	private CourseSystem cs;
+	private EnrollmentState state;
+	private PreferenceMatrix matrix;
+	private final long seed;
+	private int[] lottery;				// student index -> lottery number; lower goes first among equals
+	private EnrollmentOrderBuilder orderBuilder;
+
+	private int[] cursor;				// student index -> next request to propose
+	private double[] creditsLeft;		// student index -> credits left under the limit, after held seats
+	private long[] requestScore;		// request -> how strongly the section wants it; higher is better
+	private int[] heldStart;			// section index -> start of its held proposals
+	private int[] heldSize;				// section index -> number of held proposals
+	private int[] held;					// each section's held requests, as a heap with the weakest on top
+
+	/**
+	 * Constructs the algorithm around the given course system, with a random lottery seed.
+	 * @param cs the course system to evaluate with the algorithm
+	 */
+	public DeferredAcceptanceAlgorithm(CourseSystem cs){
+		this(cs, new Random().nextLong());
+	}
+
+	/**
+	 * Constructs the algorithm around the given course system. Students of equal priority are
+	 * ranked by a lottery drawn from the seed, so the same seed gives the same enrollment.
+	 * @param cs the course system to evaluate with the algorithm
+	 * @param seed the seed of the student lottery
+	 */
+	public DeferredAcceptanceAlgorithm(CourseSystem cs, long seed){
+		Student s = (cs == null ? null : cs.getAllStudents().get(0));
+
+		this.cs = cs;
+		this.state = (cs == null ? null : cs.getEnrollmentState());
+		this.priorityChecker = new ConflictAlgorithm.StudentPriorityList(s, false);
+		this.seed = seed;
+		this.orderBuilder = new EnrollmentOrderBuilder();
+	}
+
+	/**
+	 * Getter for the seed the student lottery is drawn from, so a run can be reproduced
+	 * @return the lottery seed
+	 */
+	public long getSeed(){
+		return this.seed;
+	}
+
+	/**
+	 * Runs the algorithm on the provided course system.
+	 */
+	public Void runAlgorithm(){
+		this.matrix = this.cs.getPreferenceMatrix();
+		this.drawLottery();
+		this.prepareProposals();
+		this.propose();
+		this.enrollHeldProposals();
+		waitlistUnassignedRequests(this.cs, this.priorityChecker, this.lottery, this.orderBuilder);
+		return null;
+	}
+
+	/**
+	 * Draws each student's lottery number from the seed, once per run.
+	 */
+	private void drawLottery(){
+		if (this.lottery == null)
+			this.lottery = generateStudentLottery(this.state.numStudents(), this.seed);
+	}
+
+	/**
+	 * Sets up each student's proposal cursor and credit allowance, each section's room for held
+	 * proposals, and the score each section gives each request.
+	 * Scores are fixed for the run, since the ranking a section uses must not change as it fills.
+	 */
+	private void prepareProposals(){
+		int numStudents = this.matrix.numStudents(), numSections = this.matrix.numSections();
+
+		this.cursor = new int[numStudents];
+		this.creditsLeft = new double[numStudents];
+		for (int stud = 0; stud < numStudents; stud++){
+			this.cursor[stud] = this.matrix.rowStart(stud);
+			this.creditsLeft[stud] = this.cs.getMaxCredits() - this.state.getEnrolledCredits(stud);
+		}
+
+		this.requestScore = new long[this.matrix.numEntries()];
+		for (int request = 0; request < this.requestScore.length; request++){
+			int stud = this.matrix.getStudent(request);
+			int priority = this.priorityChecker.calculatePriority(
+					this.matrix.getRank(request), this.state.getStudent(stud).getSeniority().ordinal(), true);
+			// Priority first, then the lower lottery number
+			this.requestScore[request] = ((long) priority << 32) | (Integer.MAX_VALUE - this.lottery[stud]);
+		}
+
+		this.heldStart = new int[numSections + 1];
+		for (int sect = 0; sect < numSections; sect++)
+			this.heldStart[sect + 1] = this.heldStart[sect] + Math.max(0, this.state.getSection(sect).openSeat());
+		this.heldSize = new int[numSections];
+		this.held = new int[this.heldStart[numSections]];
+	}
+
+	/**
+	 * Runs proposals until every student is either holding all the credits they may, or out of
+	 * sections to propose to. A rejected student goes back on the stack to propose again.
+	 * A student proposes in preference order, so every held seat but their last was taken up
+	 * while under the limit, and enrolling them in preference order never goes over it.
+	 */
+	private void propose(){
+		int numStudents = this.matrix.numStudents();
+		int[] free = new int[numStudents];
+		boolean[] isFree = new boolean[numStudents];
+		int top = 0;
+		// Pushed in reverse lottery order, so students propose in lottery order
+		int[] byLottery = new int[numStudents];
+		for (int stud = 0; stud < numStudents; stud++)
+			byLottery[this.lottery[stud]] = stud;
+		for (int i = numStudents - 1; i >= 0; i--){
+			int stud = byLottery[i];
+			if (this.creditsLeft[stud] > 0){
+				free[top++] = stud;
+				isFree[stud] = true;
+			}
+		}
+
+		while (top > 0){
+			int stud = free[top - 1];
+			if (this.creditsLeft[stud] <= 0 || this.cursor[stud] == this.matrix.rowEnd(stud)){
+				isFree[stud] = false;
+				top--;
+				continue;
+			}
+
+			int request = this.cursor[stud]++;
+			int rejected = this.offer(request);
+			if (rejected == request) continue;	// turned away; propose to the next section
+
+			this.creditsLeft[stud] -= this.creditsOf(request);
+			if (rejected >= 0){
+				int loser = this.matrix.getStudent(rejected);
+				this.creditsLeft[loser] += this.creditsOf(rejected);
+				if (!isFree[loser]){
+					free[top++] = loser;
+					isFree[loser] = true;
+				}
+			}
+		}
+	}
+
+	private double creditsOf(int request){
+		return this.state.getSection(this.matrix.getSection(request)).getCreditWeight();
+	}
+
+	/**
+	 * Offers a request to its section, which holds it if it has room or if it beats the weakest
+	 * proposal it holds.
+	 * @param request the proposal
+	 * @return the request the section turned away: the proposal itself, the proposal it
+	 * replaced, or -1 if the section had room
+	 */
+	private int offer(int request){
+		int stud = this.matrix.getStudent(request), sect = this.matrix.getSection(request);
+		int start = this.heldStart[sect], capacity = this.heldStart[sect + 1] - start, size = this.heldSize[sect];
+		if (capacity == 0 || this.state.isEnrolled(stud, sect)
+				|| this.requestScore[request] < 0)	// deranked
+			return request;
+
+		if (size < capacity){
+			this.heldSize[sect]++;
+			siftUp(start, size, request);
+			return -1;
+		}
+
+		int weakest = this.held[start];
+		if (this.requestScore[request] <= this.requestScore[weakest])
+			return request;
+		siftDown(start, size, request);
+		return weakest;
+	}
+
+	private void siftUp(int start, int index, int request){
+		while (index > 0){
+			int parent = (index - 1) >>> 1;
+			if (this.requestScore[this.held[start + parent]] <= this.requestScore[request]) break;
+			this.held[start + index] = this.held[start + parent];
+			index = parent;
+		}
+		this.held[start + index] = request;
+	}
+
+	private void siftDown(int start, int size, int request){
+		int index = 0, half = size >>> 1;
+		while (index < half){
+			int child = 2 * index + 1;
+			if (child + 1 < size && this.requestScore[this.held[start + child + 1]] < this.requestScore[this.held[start + child]])
+				child++;
+			if (this.requestScore[request] <= this.requestScore[this.held[start + child]]) break;
+			this.held[start + index] = this.held[start + child];
+			index = child;
+		}
+		this.held[start + index] = request;
+	}
+
+	/**
+	 * Enrolls every student in the sections holding their proposals, in preference order
+	 */
+	private void enrollHeldProposals(){
+		boolean[] isHeld = new boolean[this.matrix.numEntries()];
+		for (int sect = 0; sect < this.heldSize.length; sect++)
+			for (int i = this.heldStart[sect]; i < this.heldStart[sect] + this.heldSize[sect]; i++)
+				isHeld[this.held[i]] = true;
+
+		for (int stud = 0; stud < this.matrix.numStudents(); stud++)
+			for (int request = this.matrix.rowStart(stud); request < this.matrix.rowEnd(stud); request++)
+				if (isHeld[request])
+					this.cs.enroll(stud, this.matrix.getSection(request));
+	}
+}
@@ -0,0 +1,176 @@
+package besucha.backend.model.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The enrolled and waitlist rows that changed when part of a course system was enrolled again,
+ * or when students were promoted from waitlists.
+ * Rows that are the same before and after are left out, so saving the delta touches only
+ * what changed.
+ */
+public class EnrollmentDelta {
+
+	/**
+	 * One student in one section; the position is only meaningful for waitlist rows.
+	 */
+	public static class Row {
+		private final Student student;
+		private final Section section;
+		private final int position;
+
+		public Row(Student student, Section section, int position) {
+			this.student = student;
+			this.section = section;
+			this.position = position;
+		}
+
+		public Student getStudent() {
+			return student;
+		}
+
+		public Section getSection() {
+			return section;
+		}
+
+		public int getPosition() {
+			return position;
+		}
+
+		@Override
+		public String toString() {
+			return student.getId() + "@" + section.getId() + (position > 0 ? "#" + position : "");
+		}
+	}
+
+	private final List<Row> enrolledAdded = new ArrayList<>();
+	private final List<Row> enrolledRemoved = new ArrayList<>();
+	private final List<Row> waitlistSaved = new ArrayList<>();		// new to the waitlist, or moved on it
+	private final List<Row> waitlistRemoved = new ArrayList<>();
+	private int numStudents;
+	private int numSections;
+
+	/**
+	 * Compares a section's lists from before it was enrolled again with its lists now, and
+	 * records the rows that differ.
+	 * @param section the section, with its new enrolled list and waitlist
+	 * @param oldEnrolled the students enrolled before
+	 * @param oldWaitlist the waitlist before, in order
+	 */
+	public void compare(Section section, List<Student> oldEnrolled, List<Student> oldWaitlist) {
+		numSections++;
+		Set<Student> wasEnrolled = new HashSet<>(oldEnrolled), isEnrolled = new HashSet<>(section.getEnrolled());
+		for (Student student : section.getEnrolled())
+			if (!wasEnrolled.contains(student))
+				enrolledAdded.add(new Row(student, section, 0));
+		for (Student student : oldEnrolled)
+			if (!isEnrolled.contains(student))
+				enrolledRemoved.add(new Row(student, section, 0));
+
+		List<Student> waitlist = section.getWaitlist();
+		Set<Student> isWaitlisted = new HashSet<>(waitlist);
+		for (int position = 0; position < waitlist.size(); position++)
+			if (position >= oldWaitlist.size() || !waitlist.get(position).equals(oldWaitlist.get(position)))
+				waitlistSaved.add(new Row(waitlist.get(position), section, position));
+		for (Student student : oldWaitlist)
+			if (!isWaitlisted.contains(student))
+				waitlistRemoved.add(new Row(student, section, 0));
+	}
+
+	/**
+	 * Records an enrollment that was made, such as by a live add.
+	 * @param student the enrolled student
+	 * @param section the section
+	 */
+	void addEnrolled(Student student, Section section) {
+		enrolledAdded.add(new Row(student, section, 0));
+	}
+
+	/**
+	 * Records an enrollment that is gone, such as by a live drop.
+	 * @param student the student who left
+	 * @param section the section
+	 */
+	void removeEnrolled(Student student, Section section) {
+		enrolledRemoved.add(new Row(student, section, 0));
+	}
+
+	/**
+	 * Records a waitlist entry that is gone, such as when a live add gives its student the seat.
+	 * @param student the student who left the waitlist
+	 * @param section the section
+	 */
+	void removeWaitlisted(Student student, Section section) {
+		waitlistRemoved.add(new Row(student, section, 0));
+	}
+
+	void setNumStudents(int numStudents) {
+		this.numStudents = numStudents;
+	}
+
+	/**
+	 * Getter for the enrollments made that were not there before
+	 * @return the new enrolled rows
+	 */
+	public List<Row> getEnrolledAdded() {
+		return Collections.unmodifiableList(enrolledAdded);
+	}
+
+	/**
+	 * Getter for the enrollments that are gone
+	 * @return the enrolled rows to delete
+	 */
+	public List<Row> getEnrolledRemoved() {
+		return Collections.unmodifiableList(enrolledRemoved);
+	}
+
+	/**
+	 * Getter for the waitlist rows that are new or whose position changed
+	 * @return the waitlist rows to save, with their new positions
+	 */
+	public List<Row> getWaitlistSaved() {
+		return Collections.unmodifiableList(waitlistSaved);
+	}
+
+	/**
+	 * Getter for the waitlist rows that are gone
+	 * @return the waitlist rows to delete
+	 */
+	public List<Row> getWaitlistRemoved() {
+		return Collections.unmodifiableList(waitlistRemoved);
+	}
+
+	/**
+	 * Getter for the number of students that were enrolled again, or promoted from a waitlist
+	 * @return number of students recomputed or promoted
+	 */
+	public int getNumStudents() {
+		return numStudents;
+	}
+
+	/**
+	 * Getter for the number of sections that were enrolled again, or whose lists changed
+	 * @return number of sections compared
+	 */
+	public int getNumSections() {
+		return numSections;
+	}
+
+	/**
+	 * Number of rows that changed
+	 * @return the total of added, removed and moved rows
+	 */
+	public int size() {
+		return enrolledAdded.size() + enrolledRemoved.size() + waitlistSaved.size() + waitlistRemoved.size();
+	}
+
+	@Override
+	public String toString() {
+		return numStudents + " students enrolled again or promoted across " + numSections + " sections: "
+				+ enrolledAdded.size() + " enrollments added, " + enrolledRemoved.size() + " removed; "
+				+ waitlistSaved.size() + " waitlist rows saved, " + waitlistRemoved.size() + " removed";
+	}
+}
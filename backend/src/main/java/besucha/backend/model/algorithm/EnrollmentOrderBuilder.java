@@ -0,0 +1,104 @@
+package besucha.backend.model.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Builds enrollment orders with counting sorts.
+ * Final priorities and credit loads are small bounded integers, so items are bucketed by
+ * (priority, credit load) in linear time instead of being compared. Both sorts are stable,
+ * so items that tie keep the order they were given in, which makes the input order the tiebreak.
+ * The scratch arrays are kept between calls, so a builder should be reused across a run.
+ */
+public class EnrollmentOrderBuilder {
+
+	private int[] counts;	// bucket counts, then bucket starts
+	private int[] buckets;	// position -> bucket of the item at that position
+	private int[] scratch;
+
+	/**
+	 * Basic Constructor
+	 */
+	public EnrollmentOrderBuilder() {
+		this.counts = new int[16];
+		this.buckets = new int[16];
+		this.scratch = new int[16];
+	}
+
+	/**
+	 * Sorts items in place into enrollment order: highest priority first, then lowest credit load.
+	 * @param items the items to sort; only the first count are looked at
+	 * @param count the number of items
+	 * @param priority the final priority of each item, indexed by item
+	 * @param creditLoad the credit load of each item, indexed by item; never negative
+	 */
+	public void sortByPriority(int[] items, int count, int[] priority, int[] creditLoad) {
+		if (count < 2)
+			return;
+
+		int minPriority = Integer.MAX_VALUE, maxPriority = Integer.MIN_VALUE, maxCreditLoad = 0;
+		for (int i = 0; i < count; i++) {
+			int item = items[i];
+			minPriority = Math.min(minPriority, priority[item]);
+			maxPriority = Math.max(maxPriority, priority[item]);
+			maxCreditLoad = Math.max(maxCreditLoad, creditLoad[item]);
+		}
+
+		int creditBuckets = maxCreditLoad + 1;
+		int numBuckets = (maxPriority - minPriority + 1) * creditBuckets;
+		prepare(numBuckets, count);
+		for (int i = 0; i < count; i++) {
+			int item = items[i];
+			buckets[i] = (maxPriority - priority[item]) * creditBuckets + creditLoad[item];
+		}
+		distribute(items, count, numBuckets);
+	}
+
+	/**
+	 * Sorts items in place by group, keeping the existing order within each group.
+	 * @param items the items to sort; only the first count are looked at
+	 * @param count the number of items
+	 * @param group the group of each item, indexed by item, between 0 and numGroups - 1
+	 * @param numGroups the number of groups
+	 * @return the start of each group's slice of items, followed by count
+	 */
+	public int[] groupBy(int[] items, int count, int[] group, int numGroups) {
+		prepare(numGroups, count);
+		for (int i = 0; i < count; i++)
+			buckets[i] = group[items[i]];
+		distribute(items, count, numGroups);
+		return Arrays.copyOf(counts, numGroups + 1);
+	}
+
+	/**
+	 * Makes sure the scratch arrays are large enough, and clears the counts
+	 */
+	private void prepare(int numBuckets, int count) {
+		if (counts.length < numBuckets + 1)
+			counts = new int[Math.max(numBuckets + 1, counts.length * 2)];
+		Arrays.fill(counts, 0, numBuckets + 1, 0);
+		if (buckets.length < count) {
+			buckets = new int[Math.max(count, buckets.length * 2)];
+			scratch = new int[buckets.length];
+		}
+	}
+
+	/**
+	 * Stably moves every item into the bucket recorded for its position.
+	 * Afterwards, counts holds the start of each bucket followed by count.
+	 */
+	private void distribute(int[] items, int count, int numBuckets) {
+		for (int i = 0; i < count; i++)
+			counts[buckets[i] + 1]++;
+		for (int bucket = 0; bucket < numBuckets; bucket++)
+			counts[bucket + 1] += counts[bucket];
+
+		for (int i = 0; i < count; i++)
+			scratch[counts[buckets[i]]++] = items[i];
+		System.arraycopy(scratch, 0, items, 0, count);
+
+		// Moving the items advanced every start to the next bucket's start; shift them back
+		for (int bucket = numBuckets; bucket > 0; bucket--)
+			counts[bucket] = counts[bucket - 1];
+		counts[0] = 0;
+	}
+}
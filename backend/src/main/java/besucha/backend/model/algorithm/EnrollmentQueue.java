@@ -0,0 +1,239 @@
+package besucha.backend.model.algorithm;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Persistent priority queue of the requests still waiting on a section.
+ * A request is one (student, section) pair, identified by a dense int. Requests are
+ * ordered by final priority (highest first), then by credit load (lowest first),
+ * then by a tiebreak fixed when the request joins the queue. Keys are changed in
+ * place, so the queue never has to be rebuilt between passes.
+ */
+public class EnrollmentQueue {
+
+	private final RequestKeys keys;
+	private int[] heap;
+	private int size;
+
+	/**
+	 * Ordering keys and heap positions of every request, shared by all the queues of a run.
+	 * A request waits in at most one queue, so one position array serves them all.
+	 */
+	public static class RequestKeys {
+		private final int[] priority;
+		private final int[] creditLoad;
+		private final int[] tiebreak;
+		private final int[] position;	// index in its queue's heap, or -1 if not waiting
+
+		/**
+		 * Allocates keys for a fixed number of requests, none of which are waiting yet.
+		 * @param numRequests the number of requests in the run
+		 */
+		public RequestKeys(int numRequests) {
+			this.priority = new int[numRequests];
+			this.creditLoad = new int[numRequests];
+			this.tiebreak = new int[numRequests];
+			this.position = new int[numRequests];
+			Arrays.fill(this.position, -1);
+		}
+
+		/**
+		 * Determine if a request is still waiting in a queue
+		 * @param request the request to check
+		 * @return true if the request is in a queue
+		 */
+		public boolean isWaiting(int request) {
+			return position[request] >= 0;
+		}
+
+		/**
+		 * Lists every request still waiting in a queue, all at once
+		 * @return the waiting requests
+		 */
+		public BitSet getWaitingRequests() {
+			long[] words = new long[(position.length + 63) >> 6];
+			for (int request = 0; request < position.length; request++)
+				if (position[request] >= 0)
+					words[request >> 6] |= 1L << request;
+			return BitSet.valueOf(words);
+		}
+
+		/**
+		 * Getter for the final priority a request is currently ordered by
+		 * @param request the request
+		 * @return the priority key
+		 */
+		public int getPriority(int request) {
+			return priority[request];
+		}
+
+		private int compare(int a, int b) {
+			if (priority[a] != priority[b])
+				return Integer.compare(priority[b], priority[a]);
+			if (creditLoad[a] != creditLoad[b])
+				return Integer.compare(creditLoad[a], creditLoad[b]);
+			return Integer.compare(tiebreak[a], tiebreak[b]);
+		}
+	}
+
+	/**
+	 * Creates an empty queue whose requests are keyed by the given shared keys.
+	 * @param keys the keys of every request in the run
+	 */
+	public EnrollmentQueue(RequestKeys keys) {
+		this.keys = keys;
+		this.heap = new int[8];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds a request to the queue. The request must not be waiting in any queue.
+	 * @param request the request joining the queue
+	 * @param priority the final priority of the request
+	 * @param creditLoad the number of credits the requesting student is enrolled in
+	 * @param tiebreak last resort ordering key; lower goes first
+	 */
+	public void add(int request, int priority, int creditLoad, int tiebreak) {
+		keys.priority[request] = priority;
+		keys.creditLoad[request] = creditLoad;
+		keys.tiebreak[request] = tiebreak;
+
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, size * 2);
+		heap[size] = request;
+		keys.position[request] = size++;
+		siftUp(size - 1);
+	}
+
+	/**
+	 * Changes the ordering key of a request waiting in this queue.
+	 * @param request the request to update
+	 * @param priority the new final priority
+	 * @param creditLoad the new credit load
+	 * @return true if the key changed
+	 */
+	public boolean update(int request, int priority, int creditLoad) {
+		if (keys.priority[request] == priority && keys.creditLoad[request] == creditLoad)
+			return false;
+
+		keys.priority[request] = priority;
+		keys.creditLoad[request] = creditLoad;
+		siftDown(siftUp(keys.position[request]));
+		return true;
+	}
+
+	/**
+	 * Removes a request from the queue.
+	 * @param request the request to remove
+	 * @return true if the request was waiting in the queue
+	 */
+	public boolean remove(int request) {
+		int index = keys.position[request];
+		if (index < 0 || index >= size || heap[index] != request)
+			return false;
+
+		keys.position[request] = -1;
+		int last = heap[--size];
+		if (index != size) {
+			place(last, index);
+			siftDown(siftUp(index));
+		}
+		return true;
+	}
+
+	/**
+	 * Getter for the request at the front of the queue
+	 * @return the next request to enroll, or -1 if the queue is empty
+	 */
+	public int peek() {
+		return (size == 0 ? -1 : heap[0]);
+	}
+
+	/**
+	 * Removes the request at the front of the queue.
+	 * @return the removed request, or -1 if the queue is empty
+	 */
+	public int poll() {
+		int request = peek();
+		if (request >= 0)
+			remove(request);
+		return request;
+	}
+
+	/**
+	 * Number of requests waiting in the queue
+	 * @return size of the queue
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the queue, returning its requests in enrollment order.
+	 * @return the requests, front of the queue first
+	 */
+	public int[] drainInOrder() {
+		int[] ordered = new int[size];
+		for (int i = 0; i < ordered.length; i++)
+			ordered[i] = poll();
+		return ordered;
+	}
+
+	/**
+	 * Lists the requests in enrollment order, leaving the queue as it is.
+	 * @return the requests, front of the queue first
+	 */
+	public int[] toArrayInOrder() {
+		int[] copy = Arrays.copyOf(heap, size), ordered = new int[size];
+		for (int remaining = size; remaining > 0; remaining--) {
+			ordered[size - remaining] = copy[0];
+			// Move the last request to the front of the copy and sift it down
+			int request = copy[remaining - 1], index = 0, half = (remaining - 1) >>> 1;
+			while (index < half) {
+				int child = 2 * index + 1;
+				if (child + 1 < remaining - 1 && keys.compare(copy[child + 1], copy[child]) < 0)
+					child++;
+				if (keys.compare(request, copy[child]) <= 0)
+					break;
+				copy[index] = copy[child];
+				index = child;
+			}
+			copy[index] = request;
+		}
+		return ordered;
+	}
+
+	private int siftUp(int index) {
+		int request = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (keys.compare(request, heap[parent]) >= 0)
+				break;
+			place(heap[parent], index);
+			index = parent;
+		}
+		place(request, index);
+		return index;
+	}
+
+	private void siftDown(int index) {
+		int request = heap[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			if (child + 1 < size && keys.compare(heap[child + 1], heap[child]) < 0)
+				child++;
+			if (keys.compare(request, heap[child]) <= 0)
+				break;
+			place(heap[child], index);
+			index = child;
+		}
+		place(request, index);
+	}
+
+	private void place(int request, int index) {
+		heap[index] = request;
+		keys.position[request] = index;
+	}
+}
@@ -0,0 +1,284 @@
+package besucha.backend.model.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Dense, integer-indexed enrollment bookkeeping that backs a CourseSystem.
+ * Each Student and Section is assigned an index when registered, so membership
+ * and credit totals are answered from arrays and bitsets instead of list scans.
+ */
+public class EnrollmentState {
+
+	private final IdentityHashMap<Student, Integer> studentIndex;
+	private final IdentityHashMap<Section, Integer> sectionIndex;
+	private final List<Student> students;
+	private final List<Section> sections;
+	private final List<BitSet> enrolledBySection;	// section index -> bitset of enrolled student indices
+	private final List<BitSet> waitlistedBySection;	// section index -> bitset of waitlisted student indices
+	private final BitSet ownedSections;				// sections whose bitsets are not shared with a fork
+	private double[] enrolledCredits;				// student index -> credits currently enrolled in
+
+	/**
+	 * Basic Constructor
+	 */
+	public EnrollmentState() {
+		this.studentIndex = new IdentityHashMap<>();
+		this.sectionIndex = new IdentityHashMap<>();
+		this.students = new ArrayList<>();
+		this.sections = new ArrayList<>();
+		this.enrolledBySection = new ArrayList<>();
+		this.waitlistedBySection = new ArrayList<>();
+		this.ownedSections = new BitSet();
+		this.enrolledCredits = new double[16];
+	}
+
+	/**
+	 * Copies the state for a fork of its course system, whose students and sections stand in
+	 * for these ones at the same indices. The bitsets of each section are shared until either
+	 * state changes them, so the fork costs little more than its indices.
+	 * @param forkStudents the fork's students, by index
+	 * @param forkSections the fork's sections, by index
+	 * @return the fork's state
+	 */
+	EnrollmentState fork(List<Student> forkStudents, List<Section> forkSections) {
+		EnrollmentState fork = new EnrollmentState();
+		for (int stud = 0; stud < forkStudents.size(); stud++) {
+			fork.students.add(forkStudents.get(stud));
+			fork.studentIndex.put(forkStudents.get(stud), stud);
+		}
+		for (int sect = 0; sect < forkSections.size(); sect++) {
+			fork.sections.add(forkSections.get(sect));
+			fork.sectionIndex.put(forkSections.get(sect), sect);
+		}
+		fork.enrolledBySection.addAll(enrolledBySection);
+		fork.waitlistedBySection.addAll(waitlistedBySection);
+		fork.enrolledCredits = Arrays.copyOf(enrolledCredits, Math.max(16, enrolledCredits.length));
+		ownedSections.clear();
+		return fork;
+	}
+
+	/**
+	 * Give a student a dense index, if it does not have one yet.
+	 * @param student the student to register
+	 * @return the index of the student
+	 */
+	public int addStudent(Student student) {
+		Integer index = studentIndex.get(student);
+		if (index != null)
+			return index;
+
+		int newIndex = students.size();
+		students.add(student);
+		studentIndex.put(student, newIndex);
+		if (newIndex >= enrolledCredits.length)
+			enrolledCredits = Arrays.copyOf(enrolledCredits, enrolledCredits.length * 2);
+		return newIndex;
+	}
+
+	/**
+	 * Give a section a dense index, if it does not have one yet.
+	 * Students already in the section's enrolled list and waitlist are recorded as such.
+	 * @param section the section to register
+	 * @return the index of the section
+	 */
+	public int addSection(Section section) {
+		Integer index = sectionIndex.get(section);
+		if (index != null)
+			return index;
+
+		int newIndex = sections.size();
+		sections.add(section);
+		sectionIndex.put(section, newIndex);
+		enrolledBySection.add(new BitSet());
+		waitlistedBySection.add(new BitSet());
+		ownedSections.set(newIndex);
+
+		syncSection(newIndex);
+		return newIndex;
+	}
+
+	/**
+	 * Look up the dense index of a student.
+	 * @param student the student to look up
+	 * @return the index, or -1 if the student is not registered
+	 */
+	public int indexOf(Student student) {
+		Integer index = studentIndex.get(student);
+		return (index == null ? -1 : index);
+	}
+
+	/**
+	 * Look up the dense index of a section.
+	 * @param section the section to look up
+	 * @return the index, or -1 if the section is not registered
+	 */
+	public int indexOf(Section section) {
+		Integer index = sectionIndex.get(section);
+		return (index == null ? -1 : index);
+	}
+
+	/**
+	 * Getter for the student at a given index
+	 * @param index dense index of the student
+	 * @return the student
+	 */
+	public Student getStudent(int index) {
+		return students.get(index);
+	}
+
+	/**
+	 * Getter for the section at a given index
+	 * @param index dense index of the section
+	 * @return the section
+	 */
+	public Section getSection(int index) {
+		return sections.get(index);
+	}
+
+	/**
+	 * Number of registered students
+	 * @return number of students
+	 */
+	public int numStudents() {
+		return students.size();
+	}
+
+	/**
+	 * Number of registered sections
+	 * @return number of sections
+	 */
+	public int numSections() {
+		return sections.size();
+	}
+
+	/**
+	 * Determine if a student is enrolled in a section, by index.
+	 * @param student index of the student
+	 * @param section index of the section
+	 * @return true if the student is enrolled in the section
+	 */
+	public boolean isEnrolled(int student, int section) {
+		return enrolledBySection.get(section).get(student);
+	}
+
+	/**
+	 * Record that a student has been enrolled in a section, by index.
+	 * The caller is responsible for adding the student to the section's enrolled list.
+	 * @param student index of the student
+	 * @param section index of the section
+	 */
+	public void markEnrolled(int student, int section) {
+		if (!enrolledBySection.get(section).get(student)) {
+			ownSection(section);
+			enrolledBySection.get(section).set(student);
+			enrolledCredits[student] += sections.get(section).getCreditWeight();
+		}
+	}
+
+	/**
+	 * Record that a student has dropped a section, by index, giving back its credits.
+	 * The caller is responsible for removing the student from the section's enrolled list.
+	 * @param student index of the student
+	 * @param section index of the section
+	 */
+	public void markDropped(int student, int section) {
+		if (enrolledBySection.get(section).get(student)) {
+			ownSection(section);
+			enrolledBySection.get(section).clear(student);
+			enrolledCredits[student] -= sections.get(section).getCreditWeight();
+		}
+	}
+
+	/**
+	 * Determine if a student is on a section's waitlist, by index.
+	 * @param student index of the student
+	 * @param section index of the section
+	 * @return true if the student is waitlisted in the section
+	 */
+	public boolean isWaitlisted(int student, int section) {
+		return waitlistedBySection.get(section).get(student);
+	}
+
+	/**
+	 * Record that a student has been put on a section's waitlist, by index.
+	 * The caller is responsible for adding the student to the section's waitlist.
+	 * @param student index of the student
+	 * @param section index of the section
+	 */
+	public void markWaitlisted(int student, int section) {
+		ownSection(section);
+		waitlistedBySection.get(section).set(student);
+	}
+
+	/**
+	 * Record that a student has left a section's waitlist, by index.
+	 * The caller is responsible for removing the student from the section's waitlist.
+	 * @param student index of the student
+	 * @param section index of the section
+	 */
+	public void markLeftWaitlist(int student, int section) {
+		ownSection(section);
+		waitlistedBySection.get(section).clear(student);
+	}
+
+	/**
+	 * Catches up with students added to a section's enrolled list or waitlist without going
+	 * through this state, such as by an algorithm run over a part of the course system.
+	 * @param section index of the section
+	 */
+	public void syncSection(int section) {
+		Section sect = sections.get(section);
+		for (Student student : sect.getEnrolled()) {
+			int stud = indexOf(student);
+			if (stud >= 0)
+				markEnrolled(stud, section);
+		}
+		for (Student student : sect.getWaitlist()) {
+			int stud = indexOf(student);
+			if (stud >= 0)
+				markWaitlisted(stud, section);
+		}
+	}
+
+	/**
+	 * Forgets every student enrolled in or waitlisted for a section, giving back the credits
+	 * of its enrolled students. The caller is responsible for clearing the section's lists.
+	 * @param section index of the section
+	 */
+	public void clearSection(int section) {
+		BitSet enrolled = enrolledBySection.get(section);
+		double creditWeight = sections.get(section).getCreditWeight();
+		for (int student = enrolled.nextSetBit(0); student >= 0; student = enrolled.nextSetBit(student + 1))
+			enrolledCredits[student] -= creditWeight;
+		enrolledBySection.set(section, new BitSet());
+		waitlistedBySection.set(section, new BitSet());
+		ownedSections.set(section);
+	}
+
+	/**
+	 * Copies a section's bitsets before they are first changed, if a fork shares them.
+	 * The copy goes through toLongArray rather than clone, since clone may trim, and so write,
+	 * the bitset that other forks are reading on other threads.
+	 * @param section index of the section
+	 */
+	private void ownSection(int section) {
+		if (ownedSections.get(section))
+			return;
+		enrolledBySection.set(section, BitSet.valueOf(enrolledBySection.get(section).toLongArray()));
+		waitlistedBySection.set(section, BitSet.valueOf(waitlistedBySection.get(section).toLongArray()));
+		ownedSections.set(section);
+	}
+
+	/**
+	 * Getter for the number of credits a student is enrolled in, by index.
+	 * @param student index of the student
+	 * @return the total credit weight of the student's enrolled sections
+	 */
+	public double getEnrolledCredits(int student) {
+		return enrolledCredits[student];
+	}
+}
@@ -0,0 +1,241 @@
+package besucha.backend.model.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Outcomes of many enrollment runs over the same course system, accumulated one run at a time
+ * so no run's results are kept: how often each request was enrolled, how well each seniority
+ * was served from run to run, and how long waitlists grew. Students and sections are looked up
+ * by the objects of the course system the runs were copied from.
+ */
+public class FairnessReport {
+
+	/** Waitlists this long or longer share the last bucket of the histogram. */
+	public static final int MAX_WAITLIST_BUCKET = 1024;
+
+	private final EnrollmentState state;
+	private final PreferenceMatrix matrix;
+	private final int[] enrolledCounts;		// matrix entry -> runs the request was enrolled in
+	private final long[] waitlistLengths;		// waitlist length -> section runs with that length
+	private final RunningStatistic[] satisfaction;	// seniority -> share of requests enrolled, per run
+	private final RunningStatistic[] enrolledRank;	// seniority -> mean rank of enrolled requests, per run
+	private final RunningStatistic waitlistLength;
+	private int numRuns;
+
+	/**
+	 * Constructs an empty report.
+	 * @param cs the course system the runs are copied from
+	 */
+	FairnessReport(CourseSystem cs) {
+		this.state = cs.getEnrollmentState();
+		this.matrix = cs.getPreferenceMatrix();
+		this.enrolledCounts = new int[matrix.numEntries()];
+		this.waitlistLengths = new long[MAX_WAITLIST_BUCKET + 1];
+		int numSeniorities = Seniority.values().length;
+		this.satisfaction = new RunningStatistic[numSeniorities];
+		this.enrolledRank = new RunningStatistic[numSeniorities];
+		for (int i = 0; i < numSeniorities; i++) {
+			satisfaction[i] = new RunningStatistic();
+			enrolledRank[i] = new RunningStatistic();
+		}
+		this.waitlistLength = new RunningStatistic();
+	}
+
+	/**
+	 * Adds the outcome of one run.
+	 * @param run a copy of the course system, enrolled by the run
+	 */
+	void addRun(CourseSystem run) {
+		int numSeniorities = Seniority.values().length;
+		int[] requests = new int[numSeniorities], enrolled = new int[numSeniorities];
+		long[] rankSums = new long[numSeniorities];
+		EnrollmentState runState = run.getEnrollmentState();
+
+		for (int stud = 0; stud < matrix.numStudents(); stud++) {
+			int seniority = state.getStudent(stud).getSeniority().ordinal();
+			requests[seniority] += matrix.rowEnd(stud) - matrix.rowStart(stud);
+			for (int entry = matrix.rowStart(stud); entry < matrix.rowEnd(stud); entry++) {
+				if (runState.isEnrolled(stud, matrix.getSection(entry))) {
+					enrolledCounts[entry]++;
+					enrolled[seniority]++;
+					rankSums[seniority] += matrix.getRank(entry);
+				}
+			}
+		}
+		for (int i = 0; i < numSeniorities; i++) {
+			if (requests[i] > 0)
+				satisfaction[i].add((double) enrolled[i] / requests[i]);
+			if (enrolled[i] > 0)
+				enrolledRank[i].add((double) rankSums[i] / enrolled[i]);
+		}
+
+		for (Section section : run.getAllSections()) {
+			int length = section.getWaitlist().size();
+			waitlistLengths[Math.min(length, MAX_WAITLIST_BUCKET)]++;
+			waitlistLength.add(length);
+		}
+		numRuns++;
+	}
+
+	/**
+	 * Adds the runs of another report over the same course system to this one.
+	 * @param other the other report
+	 */
+	void merge(FairnessReport other) {
+		for (int entry = 0; entry < enrolledCounts.length; entry++)
+			enrolledCounts[entry] += other.enrolledCounts[entry];
+		for (int length = 0; length < waitlistLengths.length; length++)
+			waitlistLengths[length] += other.waitlistLengths[length];
+		for (int i = 0; i < satisfaction.length; i++) {
+			satisfaction[i].merge(other.satisfaction[i]);
+			enrolledRank[i].merge(other.enrolledRank[i]);
+		}
+		waitlistLength.merge(other.waitlistLength);
+		numRuns += other.numRuns;
+	}
+
+	/**
+	 * Getter for the number of runs in the report
+	 * @return the number of runs
+	 */
+	public int getNumRuns() {
+		return numRuns;
+	}
+
+	/**
+	 * Getter for the share of runs a student was enrolled in a section they requested.
+	 * @param student the student
+	 * @param section the section
+	 * @return the enrollment probability, or 0 if the student did not request the section
+	 */
+	public double getEnrollmentProbability(Student student, Section section) {
+		int stud = state.indexOf(student), sect = state.indexOf(section);
+		int entry = (stud < 0 || sect < 0 ? -1 : matrix.findEntry(stud, sect));
+		return (entry < 0 || numRuns == 0 ? 0.0 : (double) enrolledCounts[entry] / numRuns);
+	}
+
+	/**
+	 * Getter for the number of requested sections a student was enrolled in, averaged over the runs.
+	 * @param student the student
+	 * @return the expected number of sections
+	 */
+	public double getExpectedSectionsEnrolled(Student student) {
+		int stud = state.indexOf(student);
+		if (stud < 0 || numRuns == 0)
+			return 0.0;
+		long total = 0;
+		for (int entry = matrix.rowStart(stud); entry < matrix.rowEnd(stud); entry++)
+			total += enrolledCounts[entry];
+		return (double) total / numRuns;
+	}
+
+	/**
+	 * Getter for the share of a seniority's requests enrolled, with its spread from run to run.
+	 * @param seniority the seniority
+	 * @return the statistic over the runs
+	 */
+	public RunningStatistic getSatisfaction(Seniority seniority) {
+		return satisfaction[seniority.ordinal()];
+	}
+
+	/**
+	 * Getter for the mean rank of a seniority's enrolled requests, 0 being a first choice, with its
+	 * spread from run to run.
+	 * @param seniority the seniority
+	 * @return the statistic over the runs
+	 */
+	public RunningStatistic getEnrolledRank(Seniority seniority) {
+		return enrolledRank[seniority.ordinal()];
+	}
+
+	/**
+	 * Getter for the length of a section's waitlist, over every section in every run.
+	 * @return the statistic over the sections and runs
+	 */
+	public RunningStatistic getWaitlistLength() {
+		return waitlistLength;
+	}
+
+	/**
+	 * Getter for the number of times, over every section in every run, a waitlist had each length.
+	 * @return counts by waitlist length, the last counting every length of MAX_WAITLIST_BUCKET or more
+	 */
+	public long[] getWaitlistLengthHistogram() {
+		return Arrays.copyOf(waitlistLengths, waitlistLengths.length);
+	}
+
+	/**
+	 * Getter for the waitlist length that a share of section runs are at or under.
+	 * @param quantile the share, from 0 to 1
+	 * @return the length, capped at MAX_WAITLIST_BUCKET
+	 */
+	public int getWaitlistLengthQuantile(double quantile) {
+		long total = 0;
+		for (long count : waitlistLengths)
+			total += count;
+		long target = (long) Math.ceil(quantile * total), seen = 0;
+		for (int length = 0; length < waitlistLengths.length; length++) {
+			seen += waitlistLengths[length];
+			if (seen >= target && seen > 0)
+				return length;
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append(numRuns).append(" runs\n");
+		for (Seniority seniority : Seniority.values()) {
+			RunningStatistic sat = getSatisfaction(seniority), rank = getEnrolledRank(seniority);
+			result.append(String.format("%s: %.1f%% of requests enrolled (sd %.2f), mean rank enrolled %.2f (sd %.2f)%n",
+					seniority, sat.getMean() * 100, sat.getStandardDeviation() * 100, rank.getMean(), rank.getStandardDeviation()));
+		}
+		result.append(String.format("Waitlist length: mean %.2f, median %d, 90th percentile %d, 99th percentile %d%n",
+				waitlistLength.getMean(), getWaitlistLengthQuantile(0.5), getWaitlistLengthQuantile(0.9),
+				getWaitlistLengthQuantile(0.99)));
+		return result.toString();
+	}
+
+	/**
+	 * Mean and variance of a stream of values, kept in constant space by Welford's method, and
+	 * merged across threads by Chan's.
+	 */
+	public static class RunningStatistic {
+		private long count;
+		private double mean;
+		private double sumSquares;	// sum of squared distances from the mean
+
+		void add(double value) {
+			count++;
+			double delta = value - mean;
+			mean += delta / count;
+			sumSquares += delta * (value - mean);
+		}
+
+		void merge(RunningStatistic other) {
+			if (other.count == 0) return;
+			long total = count + other.count;
+			double delta = other.mean - mean;
+			mean += delta * other.count / total;
+			sumSquares += other.sumSquares + delta * delta * ((double) count * other.count / total);
+			count = total;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		/**
+		 * Getter for the sample standard deviation
+		 * @return the standard deviation, or 0 with fewer than two values
+		 */
+		public double getStandardDeviation() {
+			return (count < 2 ? 0.0 : Math.sqrt(sumSquares / (count - 1)));
+		}
+	}
+}
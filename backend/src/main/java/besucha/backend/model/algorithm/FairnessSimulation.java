@@ -0,0 +1,91 @@
+package besucha.backend.model.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an enrollment algorithm many times over one course system, each with its own lottery
+ * seed, to show how fair its outcomes are rather than how one draw went. Runs are spread over
+ * the threads of a pool; each thread enrolls a copy of the course system of its own, cleared
+ * between runs, and folds every run into a FairnessReport before starting the next, so memory
+ * does not grow with the number of runs. Every run's seed is drawn from the base seed and its
+ * number by runSeed, so a simulation can be repeated, and any one run of it reproduced with the
+ * algorithm alone.
+ */
+public class FairnessSimulation {
+
+	private final CourseSystem cs;
+	private final AlgorithmType algorithmType;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructs the simulation on the common pool.
+	 * @param cs the course system to simulate; it is only copied, never enrolled
+	 * @param algorithmType the algorithm to run
+	 */
+	public FairnessSimulation(CourseSystem cs, AlgorithmType algorithmType) {
+		this(cs, algorithmType, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs the simulation.
+	 * @param cs the course system to simulate; it is only copied, never enrolled
+	 * @param algorithmType the algorithm to run
+	 * @param pool the pool to run on, one copy of the course system per thread
+	 */
+	public FairnessSimulation(CourseSystem cs, AlgorithmType algorithmType, ForkJoinPool pool) {
+		this.cs = cs;
+		this.algorithmType = algorithmType;
+		this.pool = pool;
+	}
+
+	/**
+	 * Runs the algorithm the given number of times and reports the outcomes.
+	 * @param numRuns the number of runs
+	 * @param baseSeed the seed the runs' seeds are drawn from
+	 * @return the outcomes of every run
+	 */
+	public FairnessReport run(int numRuns, long baseSeed) {
+		// Built once here, so the copies share it rather than racing to build it
+		cs.getPreferenceMatrix();
+
+		AtomicInteger nextRun = new AtomicInteger();
+		int numWorkers = Math.max(1, Math.min(numRuns, pool.getParallelism()));
+		List<ForkJoinTask<FairnessReport>> workers = new ArrayList<>(numWorkers);
+		for (int i = 0; i < numWorkers; i++)
+			workers.add(pool.submit(() -> runWorker(nextRun, numRuns, baseSeed)));
+
+		FairnessReport report = new FairnessReport(cs);
+		for (ForkJoinTask<FairnessReport> worker : workers)
+			report.merge(worker.join());
+		return report;
+	}
+
+	/**
+	 * Gets the lottery seed of one run of a simulation. Seeds are spread by a mixing function,
+	 * since java.util.Random draws nearly the same first numbers from nearby seeds.
+	 * @param baseSeed the seed of the simulation
+	 * @param run the number of the run, from 0
+	 * @return the seed the run's algorithm was created with
+	 */
+	public static long runSeed(long baseSeed, int run) {
+		long seed = baseSeed + (run + 1) * 0x9E3779B97F4A7C15L;
+		seed = (seed ^ (seed >>> 30)) * 0xBF58476D1CE4E5B9L;
+		seed = (seed ^ (seed >>> 27)) * 0x94D049BB133111EBL;
+		return seed ^ (seed >>> 31);
+	}
+
+	private FairnessReport runWorker(AtomicInteger nextRun, int numRuns, long baseSeed) {
+		CourseSystem copy = cs.copyWithoutEnrollments();
+		FairnessReport report = new FairnessReport(cs);
+		for (int run = nextRun.getAndIncrement(); run < numRuns; run = nextRun.getAndIncrement()) {
+			copy.clearAllSections();
+			algorithmType.create(copy, runSeed(baseSeed, run)).runAlgorithm();
+			report.addRun(copy);
+		}
+		return report;
+	}
+}
@@ -0,0 +1,89 @@
+package besucha.backend.model.algorithm;
+
+import java.util.List;
+
+/**
+ * A section of a forked course system. Until its enrolled list or waitlist is first asked for,
+ * it reads its parent's, which the parent copies before changing; only then does it build its
+ * own, with the fork's students in place of the parent's.
+ */
+class ForkedSection extends Section {
+
+	private List<Student> parentEnrolled;	// null once this section has lists of its own
+	private List<Student> parentWaitlist;
+	private final EnrollmentState parentState;
+	private EnrollmentState state;
+
+	/**
+	 * Forks a section.
+	 * @param parent the section to fork
+	 * @param parentState the enrollment state of the parent's course system
+	 */
+	ForkedSection(Section parent, EnrollmentState parentState) {
+		super(parent.getId(), parent.getTitle(), parent.getCapacity(), parent.getCreditWeight());
+		if (parent instanceof ForkedSection && ((ForkedSection) parent).parentEnrolled != null) {
+			// Forks keep their parents' indices, so a fork of a fork can read the lists its parent reads
+			ForkedSection forkedParent = (ForkedSection) parent;
+			this.parentEnrolled = forkedParent.parentEnrolled;
+			this.parentWaitlist = forkedParent.parentWaitlist;
+			this.parentState = forkedParent.parentState;
+		} else {
+			this.parentEnrolled = parent.shareEnrolled();
+			this.parentWaitlist = parent.shareWaitlist();
+			this.parentState = parentState;
+		}
+	}
+
+	/**
+	 * Sets the state the fork's students are looked up in, once the fork's state is built.
+	 * @param state the enrollment state of the fork
+	 */
+	void setState(EnrollmentState state) {
+		this.state = state;
+	}
+
+	@Override
+	public int openSeat() {
+		return (parentEnrolled == null ? super.openSeat() : getCapacity() - parentEnrolled.size());
+	}
+
+	@Override
+	public List<Student> getEnrolled() {
+		ownLists();
+		return super.getEnrolled();
+	}
+
+	@Override
+	public List<Student> getWaitlist() {
+		ownLists();
+		return super.getWaitlist();
+	}
+
+	@Override
+	List<Student> shareEnrolled() {
+		ownLists();
+		return super.shareEnrolled();
+	}
+
+	@Override
+	List<Student> shareWaitlist() {
+		ownLists();
+		return super.shareWaitlist();
+	}
+
+	private void ownLists() {
+		if (parentEnrolled == null) return;
+		List<Student> enrolled = super.getEnrolled(), waitlist = super.getWaitlist();
+		for (Student student : parentEnrolled)
+			enrolled.add(forkOf(student));
+		for (Student student : parentWaitlist)
+			waitlist.add(forkOf(student));
+		parentEnrolled = null;
+		parentWaitlist = null;
+	}
+
+	private Student forkOf(Student student) {
+		int stud = parentState.indexOf(student);
+		return (stud < 0 ? student : state.getStudent(stud));
+	}
+}
@@ -0,0 +1,64 @@
+package besucha.backend.model.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A student of a forked course system. Its preferences are only copied from its parent's, with
+ * the fork's sections in place of the parent's, once they are first asked for, since most
+ * students of a fork are never looked at. Until then it reads its parent's list, so preferences
+ * the parent adds to that list in place show through; edits that set new preferences do not.
+ */
+class ForkedStudent extends Student {
+
+	private List<Preference> parentPreferences;	// null once this student has preferences of its own
+	private final EnrollmentState parentState;
+	private EnrollmentState state;
+
+	/**
+	 * Forks a student.
+	 * @param parent the student to fork
+	 * @param parentState the enrollment state of the parent's course system
+	 */
+	ForkedStudent(Student parent, EnrollmentState parentState) {
+		super(parent.getId(), parent.getName(), parent.getSeniority(), null);
+		if (parent instanceof ForkedStudent && ((ForkedStudent) parent).parentPreferences != null) {
+			// Forks keep their parents' indices, so a fork of a fork can read the preferences its parent reads
+			ForkedStudent forkedParent = (ForkedStudent) parent;
+			this.parentPreferences = forkedParent.parentPreferences;
+			this.parentState = forkedParent.parentState;
+		} else {
+			this.parentPreferences = parent.getPreferences();
+			this.parentState = parentState;
+		}
+	}
+
+	/**
+	 * Sets the state the fork's sections are looked up in, once the fork's state is built.
+	 * @param state the enrollment state of the fork
+	 */
+	void setState(EnrollmentState state) {
+		this.state = state;
+	}
+
+	@Override
+	public List<Preference> getPreferences() {
+		if (parentPreferences != null) {
+			List<Preference> preferences = new ArrayList<>(parentPreferences.size());
+			for (Preference preference : parentPreferences) {
+				int sect = parentState.indexOf(preference.getSection());
+				Section section = (sect < 0 ? preference.getSection() : state.getSection(sect));
+				preferences.add(new Preference(section, preference.isRequired()));
+			}
+			parentPreferences = null;
+			super.setPreferences(preferences);
+		}
+		return super.getPreferences();
+	}
+
+	@Override
+	public void setPreferences(List<Preference> preferences) {
+		parentPreferences = null;
+		super.setPreferences(preferences);
+	}
+}
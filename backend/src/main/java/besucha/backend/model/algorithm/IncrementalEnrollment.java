@@ -0,0 +1,110 @@
+package besucha.backend.model.algorithm;
+
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a ChangeSet to a course system that has already been enrolled, keeping every seat
+ * and waitlist place that the changes do not take away. Only the edited students are placed
+ * again: they leave the sections they no longer request, and join the waitlists of the
+ * sections they newly request where the run would have ranked them, by priority and then
+ * credit load. Every seat freed by a student leaving, or by a raised
+ * capacity, is filled from its waitlist in order through a WaitlistPromoter, so students who
+ * changed nothing never lose a seat and keep their place in line.
+ */
+public class IncrementalEnrollment {
+
+	private final CourseSystem cs;
+
+	/**
+	 * Constructs the incremental enrollment around a course system whose sections hold the
+	 * results of the last run.
+	 * @param cs the enrolled course system
+	 */
+	public IncrementalEnrollment(CourseSystem cs) {
+		this.cs = cs;
+	}
+
+	/**
+	 * Applies the changes, placing the edited students again and promoting into the seats freed.
+	 * Every id is checked before anything is changed, so a bad change set leaves the course
+	 * system as it was. Lowering a capacity below the number enrolled drops no one.
+	 * @param changes the edits to apply
+	 * @return the enrolled and waitlist rows that changed
+	 * @throws StudentDoesNotExistException if the change set names a student not in the course system
+	 * @throws SectionDoesNotExistException if the change set names a section not in the course system
+	 */
+	public EnrollmentDelta apply(ChangeSet changes) throws
+			StudentDoesNotExistException, SectionDoesNotExistException {
+		Map<Integer, Student> studentsById = new HashMap<>();
+		for (Student student : cs.getAllStudents())
+			studentsById.put(student.getId(), student);
+		Map<Integer, Section> sectionsById = new HashMap<>();
+		for (Section section : cs.getAllSections())
+			sectionsById.put(section.getId(), section);
+		changes.validate(studentsById, sectionsById);
+
+		// Edit the preferences, remembering the sections each edited student no longer requests
+		Map<Student, List<Section>> sectionsLeft = new LinkedHashMap<>();
+		for (int studentId : changes.getStudentsWithNewPreferences()) {
+			Student student = studentsById.get(studentId);
+			int[] sectionIds = changes.getPreferredSections(studentId);
+			boolean[] isNeeded = changes.getNeededSections(studentId);
+			List<Preference> preferences = new ArrayList<>(sectionIds.length);
+			for (int i = 0; i < sectionIds.length; i++)
+				preferences.add(new Preference(sectionsById.get(sectionIds[i]), isNeeded[i]));
+			setPreferences(student, preferences, sectionsLeft);
+		}
+		for (int studentId : changes.getStudentsWithDrops()) {
+			Student student = studentsById.get(studentId);
+			List<Preference> preferences = new ArrayList<>(student.getPreferences());
+			preferences.removeIf(p -> changes.getDroppedSections(studentId).contains(p.getSection().getId()));
+			setPreferences(student, preferences, sectionsLeft);
+		}
+		if (!sectionsLeft.isEmpty())
+			cs.preferencesChanged();
+
+		// Seats are freed before new requests join, so the students already waiting go first
+		WaitlistPromoter promoter = new WaitlistPromoter(cs);
+		for (Map.Entry<Student, List<Section>> left : sectionsLeft.entrySet())
+			for (Section section : left.getValue())
+				promoter.leave(left.getKey(), section);
+		for (Map.Entry<Integer, Integer> capacity : changes.getCapacities().entrySet())
+			promoter.setCapacity(sectionsById.get(capacity.getKey()), capacity.getValue());
+		for (int studentId : changes.getStudentsWithNewPreferences()) {
+			Student student = studentsById.get(studentId);
+			for (Preference preference : student.getPreferences())
+				promoter.request(student, preference.getSection());
+		}
+		return promoter.flush();
+	}
+
+	/**
+	 * Replaces a student's preferences, adding the sections they are enrolled in or waiting for
+	 * but no longer request to the ones they leave.
+	 */
+	private void setPreferences(Student student, List<Preference> preferences, Map<Student, List<Section>> sectionsLeft) {
+		EnrollmentState state = cs.getEnrollmentState();
+		int stud = state.indexOf(student);
+		Set<Section> requested = new HashSet<>();
+		for (Preference preference : preferences)
+			requested.add(preference.getSection());
+
+		List<Section> left = sectionsLeft.computeIfAbsent(student, s -> new ArrayList<>());
+		for (int sect = 0; sect < state.numSections(); sect++) {
+			Section section = state.getSection(sect);
+			if ((state.isEnrolled(stud, sect) || state.isWaitlisted(stud, sect))
+					&& !requested.contains(section) && !left.contains(section))
+				left.add(section);
+		}
+		student.setPreferences(preferences);
+	}
+}
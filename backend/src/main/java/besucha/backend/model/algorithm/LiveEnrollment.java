@@ -0,0 +1,285 @@
+package besucha.backend.model.algorithm;
+
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe enrollment for the add/drop period, over a course system that has already been enrolled.
+ * Any number of threads can enroll, drop and swap at once. Each section is guarded by one of
+ * a fixed set of striped locks, so requests for different sections rarely wait on each other,
+ * and a section's seat count only changes while its lock is held, so it never passes capacity.
+ * A student who takes a seat leaves the section's waitlist under the same lock, so no one is
+ * ever seen both enrolled in and waiting for a section.
+ * Each student's credits are an atomic counter that is only raised, by compare-and-set, while
+ * the student is under max credits, the same rule CourseSystem enrolls by, so requests for one
+ * student in different sections cannot both slip past the limit.
+ * While live, the course system's own enrollment state falls behind; close brings it back in
+ * line once requests have stopped. Students and sections must not be added while live.
+ */
+public class LiveEnrollment {
+
+	private static final long CREDIT_SCALE = 1000;	// credits are counted in thousandths
+
+	private final EnrollmentState state;
+	private final ReentrantLock[] stripes;
+	private final BitSet[] enrolled;				// section index -> enrolled students, guarded by its stripe
+	private final AtomicIntegerArray seatsTaken;	// section index -> seats taken, written under its stripe
+	private final AtomicLongArray credits;			// student index -> scaled enrolled credits
+	private final long[] creditWeight;				// section index -> scaled credit weight
+	private final long maxCredits;
+	private final ConcurrentLinkedQueue<Long> changedRows;	// student index << 32 | section index
+	private final ConcurrentLinkedQueue<Long> leftWaitlists;	// student index << 32 | section index, waitlist rows gone
+
+	/**
+	 * Opens live enrollment with a lock stripe for every few sections, scaled to the processors available.
+	 * @param cs the enrolled course system
+	 */
+	public LiveEnrollment(CourseSystem cs) {
+		this(cs, Runtime.getRuntime().availableProcessors() * 16);
+	}
+
+	/**
+	 * Opens live enrollment over the enrolled lists of a course system.
+	 * @param cs the enrolled course system
+	 * @param numStripes the number of locks shared among the sections, rounded up to a power of two
+	 */
+	public LiveEnrollment(CourseSystem cs, int numStripes) {
+		this.state = cs.getEnrollmentState();
+		int size = Integer.highestOneBit(Math.max(1, numStripes - 1)) << 1;
+		this.stripes = new ReentrantLock[size];
+		for (int i = 0; i < size; i++)
+			stripes[i] = new ReentrantLock();
+
+		int numSections = state.numSections();
+		this.enrolled = new BitSet[numSections];
+		this.seatsTaken = new AtomicIntegerArray(numSections);
+		this.credits = new AtomicLongArray(state.numStudents());
+		this.creditWeight = new long[numSections];
+		this.maxCredits = scale(cs.getMaxCredits());
+		this.changedRows = new ConcurrentLinkedQueue<>();
+		this.leftWaitlists = new ConcurrentLinkedQueue<>();
+
+		for (int sect = 0; sect < numSections; sect++) {
+			Section section = state.getSection(sect);
+			enrolled[sect] = new BitSet();
+			creditWeight[sect] = scale(section.getCreditWeight());
+			seatsTaken.set(sect, section.getEnrolled().size());
+			for (Student student : section.getEnrolled()) {
+				int stud = state.indexOf(student);
+				if (stud >= 0 && !enrolled[sect].get(stud)) {
+					enrolled[sect].set(stud);
+					credits.addAndGet(stud, creditWeight[sect]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Enrolls a student in a section if it has an open seat and the student is under max credits,
+	 * taking them off the section's waitlist if they were on it.
+	 * @param student the student
+	 * @param section the section
+	 * @return true if the student was enrolled
+	 */
+	public boolean enroll(Student student, Section section) {
+		int stud = state.indexOf(student), sect = state.indexOf(section);
+		if (stud < 0 || sect < 0)
+			return false;
+
+		ReentrantLock lock = stripeOf(sect);
+		lock.lock();
+		try {
+			if (enrolled[sect].get(stud) || !hasOpenSeat(sect) || !reserveCredits(stud, 0, creditWeight[sect]))
+				return false;
+			add(stud, sect);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drops a student from a section, freeing the seat and the credits.
+	 * Nobody is promoted from the waitlist; WaitlistPromoter does that once live enrollment is closed.
+	 * @param student the student
+	 * @param section the section
+	 * @return true if the student was enrolled in the section
+	 */
+	public boolean drop(Student student, Section section) {
+		int stud = state.indexOf(student), sect = state.indexOf(section);
+		if (stud < 0 || sect < 0)
+			return false;
+
+		ReentrantLock lock = stripeOf(sect);
+		lock.lock();
+		try {
+			if (!enrolled[sect].get(stud))
+				return false;
+			remove(stud, sect);
+			credits.addAndGet(stud, -creditWeight[sect]);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves a student from one section to another in a single step, so they never hold both
+	 * seats or neither. The student must be under max credits once the old section is given up.
+	 * @param student the student
+	 * @param from the section the student is enrolled in
+	 * @param to the section the student wants instead
+	 * @return true if the student was moved
+	 */
+	public boolean swap(Student student, Section from, Section to) {
+		int stud = state.indexOf(student), oldSect = state.indexOf(from), newSect = state.indexOf(to);
+		if (stud < 0 || oldSect < 0 || newSect < 0 || oldSect == newSect)
+			return false;
+
+		// Stripes are always locked in index order, so two swaps cannot wait on each other
+		// (both may be the same stripe, which is reentrant)
+		int oldStripe = stripeIndex(oldSect), newStripe = stripeIndex(newSect);
+		ReentrantLock first = stripes[Math.min(oldStripe, newStripe)], second = stripes[Math.max(oldStripe, newStripe)];
+		first.lock();
+		second.lock();
+		try {
+			if (!enrolled[oldSect].get(stud) || enrolled[newSect].get(stud) || !hasOpenSeat(newSect)
+					|| !reserveCredits(stud, creditWeight[oldSect], creditWeight[newSect]))
+				return false;
+			remove(stud, oldSect);
+			add(stud, newSect);
+			return true;
+		} finally {
+			second.unlock();
+			first.unlock();
+		}
+	}
+
+	/**
+	 * Getter for the number of seats taken in a section. Needs no lock, and always reflects whole requests.
+	 * @param section the section
+	 * @return the seats taken, or 0 if the section is not in the course system
+	 */
+	public int getSeatsTaken(Section section) {
+		int sect = state.indexOf(section);
+		return (sect < 0 ? 0 : seatsTaken.get(sect));
+	}
+
+	/**
+	 * Getter for the number of credits a student is enrolled in. Needs no lock.
+	 * @param student the student
+	 * @return the total credit weight of the student's sections
+	 */
+	public double getEnrolledCredits(Student student) {
+		int stud = state.indexOf(student);
+		return (stud < 0 ? 0.0 : (double) credits.get(stud) / CREDIT_SCALE);
+	}
+
+	/**
+	 * Takes the enrolled rows changed since the last call, ready to be saved. Safe to call
+	 * while requests are running; a row changed during the call is reported again next time.
+	 * @return the enrolled rows added and removed, and the waitlist rows removed
+	 */
+	public EnrollmentDelta takeChanges() {
+		Set<Long> rows = new LinkedHashSet<>();
+		for (Long row = changedRows.poll(); row != null; row = changedRows.poll())
+			rows.add(row);
+
+		EnrollmentDelta delta = new EnrollmentDelta();
+		Set<Integer> students = new LinkedHashSet<>();
+		for (long row : rows) {
+			int stud = (int) (row >>> 32), sect = (int) row;
+			students.add(stud);
+			ReentrantLock lock = stripeOf(sect);
+			boolean isEnrolled;
+			lock.lock();
+			try {
+				isEnrolled = enrolled[sect].get(stud);
+			} finally {
+				lock.unlock();
+			}
+			if (isEnrolled)
+				delta.addEnrolled(state.getStudent(stud), state.getSection(sect));
+			else
+				delta.removeEnrolled(state.getStudent(stud), state.getSection(sect));
+		}
+		for (Long row = leftWaitlists.poll(); row != null; row = leftWaitlists.poll()) {
+			int stud = (int) (row >>> 32), sect = (int) (long) row;
+			students.add(stud);
+			delta.removeWaitlisted(state.getStudent(stud), state.getSection(sect));
+		}
+		delta.setNumStudents(students.size());
+		return delta;
+	}
+
+	/**
+	 * Brings the course system's enrollment state back in line with the sections' enrolled lists.
+	 * Must only be called once no requests are running; the live enrollment is not used afterwards.
+	 */
+	public void close() {
+		for (int sect = 0; sect < state.numSections(); sect++)
+			state.clearSection(sect);
+		for (int sect = 0; sect < state.numSections(); sect++)
+			state.syncSection(sect);
+	}
+
+	/**
+	 * Takes the credits of a new section for a student, giving up those of an old one, if
+	 * the student is under max credits without the old one.
+	 * @param stud index of the student
+	 * @param release scaled credits being given up
+	 * @param take scaled credits being taken
+	 * @return true if the credits were taken
+	 */
+	private boolean reserveCredits(int stud, long release, long take) {
+		while (true) {
+			long current = credits.get(stud);
+			if (current - release >= maxCredits)
+				return false;
+			if (credits.compareAndSet(stud, current, current - release + take))
+				return true;
+		}
+	}
+
+	// The callers below hold the section's stripe
+
+	private boolean hasOpenSeat(int sect) {
+		return seatsTaken.get(sect) < state.getSection(sect).getCapacity();
+	}
+
+	private void add(int stud, int sect) {
+		Section section = state.getSection(sect);
+		Student student = state.getStudent(stud);
+		enrolled[sect].set(stud);
+		section.getEnrolled().add(student);
+		seatsTaken.set(sect, seatsTaken.get(sect) + 1);
+		changedRows.add((long) stud << 32 | sect);
+		// No one joins a waitlist while live, so once gone the row stays gone
+		if (section.getWaitlist().remove(student))
+			leftWaitlists.add((long) stud << 32 | sect);
+	}
+
+	private void remove(int stud, int sect) {
+		enrolled[sect].clear(stud);
+		state.getSection(sect).getEnrolled().remove(state.getStudent(stud));
+		seatsTaken.set(sect, seatsTaken.get(sect) - 1);
+		changedRows.add((long) stud << 32 | sect);
+	}
+
+	private int stripeIndex(int sect) {
+		return sect & (stripes.length - 1);
+	}
+
+	private ReentrantLock stripeOf(int sect) {
+		return stripes[stripeIndex(sect)];
+	}
+
+	private static long scale(double credits) {
+		return Math.round(credits * CREDIT_SCALE);
+	}
+}
@@ -0,0 +1,393 @@
+package besucha.backend.model.algorithm;
+
+import java.util.*;
+
+/**
+ * Enrollment Algorithm that assigns every seat at once, as a min-cost flow.
+ * Flow goes from a source to each student (up to the sections the student can still take),
+ * across a request to a section (one unit), and out of the section to a sink (up to its open seats).
+ * Crossing a request costs how far its priority is below the top priority, so the flow fills as
+ * many seats as possible and, among those assignments, gives the most total priority.
+ * Sections are worth different credits, so a student's edge only allows as many sections as fit
+ * even if every one is their heaviest request; the flow is then solved again with the credits
+ * and seats that are left, until a round enrolls no one.
+ * The solver is primal-dual: each phase finds shortest distances with Dijkstra over reduced costs,
+ * then pushes a blocking flow through every shortest path at once instead of one path per phase.
+ * The network is stored as compressed adjacency arrays, so the searches read edges in order.
+ */
+public class MinCostFlowAlgorithm extends ConflictAlgorithm {
+
+	private final int UNREACHED = Integer.MAX_VALUE;
+
+	private ConflictAlgorithm.StudentPriorityList priorityChecker;
+	private CourseSystem cs;
+	private EnrollmentState state;
+	private PreferenceMatrix matrix;
+	private final long seed;
+	private int[] lottery;						// student index -> lottery number; lower goes first among equals
+	private EnrollmentOrderBuilder orderBuilder;
+
+	// Flow network, with each node's edges stored contiguously
+	private int numNodes, numEdges, source, sink;
+	private int[] firstEdge;					// node -> first edge, length numNodes + 1
+	private int[] edgeTo, edgeCapacity, edgeCost, reverseEdge;
+	private int[] requestEdge;					// request -> its student-to-section edge, or -1
+	private int[] edgeFrom;						// only while the network is being built
+	private long[] potential;
+	private int[] distance, level, currentEdge, pathEdges;
+	private long[] heap;
+
+	/**
+	 * Constructs the algorithm around the given course system, with a random lottery seed.
+	 * @param cs the course system to evaluate with the algorithm
+	 */
+	public MinCostFlowAlgorithm(CourseSystem cs){
+		this(cs, new Random().nextLong());
+	}
+
+	/**
+	 * Constructs the algorithm around the given course system. Equal-cost assignments are broken
+	 * by a student lottery drawn from the seed, so the same seed gives the same enrollment.
+	 * @param cs the course system to evaluate with the algorithm
+	 * @param seed the seed of the student lottery
+	 */
+	public MinCostFlowAlgorithm(CourseSystem cs, long seed){
+		Student s = (cs == null ? null : cs.getAllStudents().get(0));
+
+		this.cs = cs;
+		this.state = (cs == null ? null : cs.getEnrollmentState());
+		this.priorityChecker = new ConflictAlgorithm.StudentPriorityList(s, false);
+		this.seed = seed;
+		this.orderBuilder = new EnrollmentOrderBuilder();
+	}
+
+	/**
+	 * Getter for the seed the student lottery is drawn from, so a run can be reproduced
+	 * @return the lottery seed
+	 */
+	public long getSeed(){
+		return this.seed;
+	}
+
+	/**
+	 * Runs the algorithm on the provided course system.
+	 */
+	public Void runAlgorithm(){
+		this.matrix = this.cs.getPreferenceMatrix();
+		this.drawLottery();
+		while (this.buildNetwork()){
+			this.solve();
+			if (this.enrollAssignments() == 0) break;
+		}
+		waitlistUnassignedRequests(this.cs, this.priorityChecker, this.lottery, this.orderBuilder);
+		return null;
+	}
+
+	/**
+	 * Draws each student's lottery number from the seed, once per run.
+	 */
+	private void drawLottery(){
+		if (this.lottery == null)
+			this.lottery = generateStudentLottery(this.state.numStudents(), this.seed);
+	}
+
+	/**
+	 * Builds the flow network. Nodes are the source, then students, then sections, then the sink.
+	 * Students are added in lottery order, so where assignments cost the same the search
+	 * reaches the students with the better lottery numbers first.
+	 * @return true if any request can still be assigned
+	 */
+	private boolean buildNetwork(){
+		int numStudents = this.matrix.numStudents(), numSections = this.matrix.numSections();
+		int topPriority = this.priorityChecker.getAllPriorities()[0];
+
+		this.source = 0;
+		this.sink = numStudents + numSections + 1;
+		this.numNodes = numStudents + numSections + 2;
+		int maxEdges = 2 * (numStudents + numSections + this.matrix.numEntries());
+		this.edgeFrom = new int[maxEdges];
+		this.edgeTo = new int[maxEdges];
+		this.edgeCapacity = new int[maxEdges];
+		this.edgeCost = new int[maxEdges];
+		this.requestEdge = new int[this.matrix.numEntries()];
+		Arrays.fill(this.requestEdge, -1);
+		this.numEdges = 0;
+
+		int[] byLottery = new int[numStudents];
+		for (int stud = 0; stud < numStudents; stud++)
+			byLottery[this.lottery[stud]] = stud;
+		boolean anyRequest = false;
+		for (int stud : byLottery){
+			double creditsLeft = this.cs.getMaxCredits() - this.state.getEnrolledCredits(stud);
+			if (creditsLeft <= 0) continue;
+
+			Student student = this.state.getStudent(stud);
+			int requests = 0;
+			double heaviest = 0;
+			for (int request = this.matrix.rowStart(stud); request < this.matrix.rowEnd(stud); request++){
+				if (!this.isAssignable(stud, request, student)) continue;
+				requests++;
+				heaviest = Math.max(heaviest, this.state.getSection(this.matrix.getSection(request)).getCreditWeight());
+			}
+			if (requests == 0) continue;
+
+			// A student may enroll while under the credit limit, so k sections always fit while
+			// k - 1 of the heaviest stay under it
+			int sectionsLeft = (heaviest <= 0 ? requests : (int) Math.min(requests, Math.ceil(creditsLeft / heaviest)));
+			addEdge(this.source, studentNode(stud), sectionsLeft, 0);
+			for (int request = this.matrix.rowStart(stud); request < this.matrix.rowEnd(stud); request++){
+				if (!this.isAssignable(stud, request, student)) continue;
+				int priority = this.priorityChecker.calculatePriority(this.matrix.getRank(request), student, true);
+				this.requestEdge[request] = this.numEdges;
+				addEdge(studentNode(stud), sectionNode(this.matrix.getSection(request)), 1, topPriority - priority);
+			}
+			anyRequest = true;
+		}
+
+		for (int sect = 0; sect < numSections; sect++){
+			int openSeats = this.state.getSection(sect).openSeat();
+			if (openSeats > 0 && this.matrix.getDemand(sect) > 0)
+				addEdge(sectionNode(sect), this.sink, openSeats, 0);
+		}
+
+		this.groupEdgesByNode();
+		return anyRequest;
+	}
+
+	/**
+	 * Determines if a request can be assigned this round: the student is not yet in the section,
+	 * the section has an open seat, and the request is not deranked.
+	 */
+	private boolean isAssignable(int stud, int request, Student student){
+		int sect = this.matrix.getSection(request);
+		if (this.state.isEnrolled(stud, sect) || this.state.getSection(sect).openSeat() <= 0) return false;
+		return this.priorityChecker.calculatePriority(this.matrix.getRank(request), student, true) >= 0;
+	}
+
+	private int studentNode(int stud){
+		return 1 + stud;
+	}
+
+	private int sectionNode(int sect){
+		return 1 + this.matrix.numStudents() + sect;
+	}
+
+	/**
+	 * Adds an edge and its reverse, which starts with no capacity.
+	 * Until the edges are grouped, an edge's reverse is the other edge of its pair.
+	 */
+	private void addEdge(int from, int to, int capacity, int cost){
+		this.edgeFrom[this.numEdges] = from;
+		this.edgeTo[this.numEdges] = to;
+		this.edgeCapacity[this.numEdges] = capacity;
+		this.edgeCost[this.numEdges++] = cost;
+
+		this.edgeFrom[this.numEdges] = to;
+		this.edgeTo[this.numEdges] = from;
+		this.edgeCapacity[this.numEdges] = 0;
+		this.edgeCost[this.numEdges++] = -cost;
+	}
+
+	/**
+	 * Stably reorders the edges so each node's edges are contiguous, which keeps the searches
+	 * walking memory in order. Edges keep the order they were added in within each node.
+	 */
+	private void groupEdgesByNode(){
+		this.firstEdge = new int[this.numNodes + 1];
+		for (int edge = 0; edge < this.numEdges; edge++)
+			this.firstEdge[this.edgeFrom[edge] + 1]++;
+		for (int node = 0; node < this.numNodes; node++)
+			this.firstEdge[node + 1] += this.firstEdge[node];
+
+		int[] next = Arrays.copyOf(this.firstEdge, this.numNodes);
+		int[] position = new int[this.numEdges];
+		for (int edge = 0; edge < this.numEdges; edge++)
+			position[edge] = next[this.edgeFrom[edge]]++;
+
+		int[] to = new int[this.numEdges], capacity = new int[this.numEdges], cost = new int[this.numEdges];
+		this.reverseEdge = new int[this.numEdges];
+		for (int edge = 0; edge < this.numEdges; edge++){
+			int moved = position[edge];
+			to[moved] = this.edgeTo[edge];
+			capacity[moved] = this.edgeCapacity[edge];
+			cost[moved] = this.edgeCost[edge];
+			this.reverseEdge[moved] = position[edge ^ 1];
+		}
+		for (int request = 0; request < this.requestEdge.length; request++)
+			if (this.requestEdge[request] >= 0) this.requestEdge[request] = position[this.requestEdge[request]];
+
+		this.edgeTo = to;
+		this.edgeCapacity = capacity;
+		this.edgeCost = cost;
+		this.edgeFrom = null;
+	}
+
+	/**
+	 * Runs primal-dual phases until no more flow reaches the sink.
+	 * All costs start out non-negative, so zero potentials are valid to begin with.
+	 */
+	private void solve(){
+		this.potential = new long[this.numNodes];
+		this.distance = new int[this.numNodes];
+		this.level = new int[this.numNodes];
+		this.currentEdge = new int[this.numNodes];
+		this.pathEdges = new int[this.numNodes];
+		this.heap = new long[Math.max(16, this.numEdges)];
+
+		while (this.shortestDistances()){
+			int sinkDistance = this.distance[this.sink];
+			// Capping at the sink's distance keeps every residual reduced cost non-negative
+			for (int node = 0; node < this.numNodes; node++)
+				this.potential[node] += Math.min(this.distance[node], sinkDistance);
+			this.blockingFlow();
+		}
+	}
+
+	private long reducedCost(int edge, int from){
+		return this.edgeCost[edge] + this.potential[from] - this.potential[this.edgeTo[edge]];
+	}
+
+	/**
+	 * Dijkstra over reduced costs from the source
+	 * @return true if the sink can be reached
+	 */
+	private boolean shortestDistances(){
+		Arrays.fill(this.distance, UNREACHED);
+		this.distance[this.source] = 0;
+		int heapSize = 0;
+		heapSize = heapPush(heapSize, 0, this.source);
+
+		while (heapSize > 0){
+			long top = this.heap[0];
+			heapSize = heapPop(heapSize);
+			int node = (int) top, nodeDistance = (int) (top >>> 32);
+			if (nodeDistance > this.distance[node]) continue;
+
+			for (int edge = this.firstEdge[node]; edge < this.firstEdge[node + 1]; edge++){
+				if (this.edgeCapacity[edge] == 0) continue;
+				int to = this.edgeTo[edge];
+				long candidate = nodeDistance + reducedCost(edge, node);
+				if (candidate < this.distance[to]){
+					this.distance[to] = (int) candidate;
+					heapSize = heapPush(heapSize, (int) candidate, to);
+				}
+			}
+		}
+		return this.distance[this.sink] != UNREACHED;
+	}
+
+	private int heapPush(int heapSize, int nodeDistance, int node){
+		if (heapSize == this.heap.length)
+			this.heap = Arrays.copyOf(this.heap, heapSize * 2);
+		long entry = ((long) nodeDistance << 32) | node;
+		int index = heapSize++;
+		while (index > 0){
+			int parent = (index - 1) >>> 1;
+			if (this.heap[parent] <= entry) break;
+			this.heap[index] = this.heap[parent];
+			index = parent;
+		}
+		this.heap[index] = entry;
+		return heapSize;
+	}
+
+	private int heapPop(int heapSize){
+		long entry = this.heap[--heapSize];
+		int index = 0, half = heapSize >>> 1;
+		while (index < half){
+			int child = 2 * index + 1;
+			if (child + 1 < heapSize && this.heap[child + 1] < this.heap[child]) child++;
+			if (entry <= this.heap[child]) break;
+			this.heap[index] = this.heap[child];
+			index = child;
+		}
+		this.heap[index] = entry;
+		return heapSize;
+	}
+
+	private boolean isAdmissible(int edge, int from){
+		return this.edgeCapacity[edge] > 0 && reducedCost(edge, from) == 0;
+	}
+
+	/**
+	 * Pushes flow along every shortest path of the phase: a blocking flow over the
+	 * zero-reduced-cost edges, layered by a breadth-first search so it cannot cycle.
+	 */
+	private void blockingFlow(){
+		while (this.layerAdmissibleGraph()){
+			System.arraycopy(this.firstEdge, 0, this.currentEdge, 0, this.numNodes);
+			int depth = 0, node = this.source;
+			while (true){
+				if (node == this.sink){
+					int pushed = Integer.MAX_VALUE;
+					for (int i = 0; i < depth; i++)
+						pushed = Math.min(pushed, this.edgeCapacity[this.pathEdges[i]]);
+					for (int i = 0; i < depth; i++){
+						this.edgeCapacity[this.pathEdges[i]] -= pushed;
+						this.edgeCapacity[this.reverseEdge[this.pathEdges[i]]] += pushed;
+					}
+					depth = 0;
+					node = this.source;
+					continue;
+				}
+
+				int edge = this.currentEdge[node], end = this.firstEdge[node + 1];
+				while (edge < end && !(this.level[this.edgeTo[edge]] == this.level[node] + 1 && isAdmissible(edge, node)))
+					edge++;
+				this.currentEdge[node] = edge;
+
+				if (edge < end){
+					this.pathEdges[depth++] = edge;
+					node = this.edgeTo[edge];
+				} else {
+					// Dead end: never come back here this layering, and retreat one step
+					this.level[node] = -1;
+					if (depth == 0) break;
+					int back = this.pathEdges[--depth];
+					node = this.edgeTo[this.reverseEdge[back]];
+					this.currentEdge[node] = back + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Breadth-first layering of the admissible edges
+	 * @return true if the sink is still reachable over admissible edges
+	 */
+	private boolean layerAdmissibleGraph(){
+		Arrays.fill(this.level, -1);
+		int[] queue = this.pathEdges;	// free between augmentations, and large enough for every node
+		int head = 0, tail = 0;
+		this.level[this.source] = 0;
+		queue[tail++] = this.source;
+		while (head < tail){
+			int node = queue[head++];
+			for (int edge = this.firstEdge[node]; edge < this.firstEdge[node + 1]; edge++){
+				int to = this.edgeTo[edge];
+				if (this.level[to] < 0 && isAdmissible(edge, node)){
+					this.level[to] = this.level[node] + 1;
+					queue[tail++] = to;
+				}
+			}
+		}
+		return this.level[this.sink] >= 0;
+	}
+
+	/**
+	 * Enrolls every student in the sections the flow assigned them, in preference order.
+	 * A seat the flow assigned but that could not be taken stays open for the next round.
+	 * @return the number of students enrolled
+	 */
+	private int enrollAssignments(){
+		int enrolled = 0;
+		for (int stud = 0; stud < this.matrix.numStudents(); stud++){
+			for (int request = this.matrix.rowStart(stud); request < this.matrix.rowEnd(stud); request++){
+				int edge = this.requestEdge[request];
+				if (edge >= 0 && this.edgeCapacity[edge] == 0 && this.cs.enroll(stud, this.matrix.getSection(request)))
+					enrolled++;
+			}
+		}
+		return enrolled;
+	}
+}
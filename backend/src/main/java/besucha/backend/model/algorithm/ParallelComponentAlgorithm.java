@@ -0,0 +1,80 @@
+package besucha.backend.model.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs BalancedConflictAlgorithm on each connected component of the course system in parallel.
+ * Components share no students or sections, so they are enrolled independently; small ones are
+ * packed together so no task is too small to be worth scheduling. A course system that makes
+ * only one part is run as a single BalancedConflictAlgorithm with the same seed, so it draws the
+ * same lottery and its saved seed means the same thing under either algorithm.
+ */
+public class ParallelComponentAlgorithm implements Algorithm {
+
+	private final int MIN_PART_WORK = 2048;	// requests; smaller components are packed together
+
+	private CourseSystem cs;
+	private long seed;
+	private ForkJoinPool pool;
+
+	/**
+	 * Constructs the algorithm around the given course system, with a random lottery seed,
+	 * running on the common pool.
+	 * @param cs the course system to evaluate with the algorithm
+	 */
+	public ParallelComponentAlgorithm(CourseSystem cs) {
+		this(cs, new Random().nextLong(), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs the algorithm around the given course system.
+	 * Runs with the same seed over the same course system produce the same enrollment,
+	 * however many threads the pool has.
+	 * @param cs the course system to evaluate with the algorithm
+	 * @param seed the seed the lottery of each part is drawn from
+	 * @param pool the pool to run the parts in
+	 */
+	public ParallelComponentAlgorithm(CourseSystem cs, long seed, ForkJoinPool pool) {
+		this.cs = cs;
+		this.seed = seed;
+		this.pool = pool;
+	}
+
+	/**
+	 * Getter for the seed the lottery of each part is drawn from, so a run can be reproduced
+	 * @return the lottery seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Runs the algorithm on every component of the provided course system.
+	 */
+	public Void runAlgorithm() {
+		List<CourseSystem> parts = new ComponentPartitioner(cs).split(MIN_PART_WORK);
+		if (parts.size() <= 1)
+			return new BalancedConflictAlgorithm(cs, seed).runAlgorithm();
+
+		// Every part ranks priorities the way the whole course system would, and draws its
+		// lottery from a seed tied to its first student rather than to its place in the pool
+		Student sizingStudent = cs.getAllStudents().get(0);
+		List<ForkJoinTask<Void>> tasks = new ArrayList<>(parts.size());
+		for (CourseSystem system : parts) {
+			long partSeed = seed * 31 + system.getAllStudents().get(0).getId();
+			tasks.add(pool.submit(() -> new BalancedConflictAlgorithm(system, partSeed, sizingStudent).runAlgorithm()));
+		}
+		for (ForkJoinTask<Void> task : tasks)
+			task.join();
+
+		// The parts filled the shared sections' lists; bring the whole system's state up to date
+		EnrollmentState state = cs.getEnrollmentState();
+		for (int sect = 0; sect < state.numSections(); sect++)
+			state.syncSection(sect);
+		return null;
+	}
+}
@@ -0,0 +1,221 @@
+package besucha.backend.model.algorithm;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable, compressed sparse row (CSR) snapshot of every student's preferences,
+ * keyed by the dense indices of an EnrollmentState.
+ * Each entry is one (student, section) preference. A student's entries are contiguous and in
+ * preference order, and the transposed index lists the entries requesting each section, so
+ * ranks and demand are read from arrays instead of scanning preference lists.
+ * Sections that are not registered in the state, and repeats of a section already on the
+ * student's list, are left out; ranks are still the position on the student's original list.
+ */
+public class PreferenceMatrix {
+
+	private final int[] rowStart;			// student index -> first entry, length numStudents + 1
+	private final int[] entryStudent;		// entry -> student index
+	private final int[] entrySection;		// entry -> section index
+	private final int[] entryRank;			// entry -> position on the student's preference list
+	private final BitSet entryRequired;		// entry -> whether the student needs the section
+	private final int[] columnStart;		// section index -> first requester, length numSections + 1
+	private final int[] columnEntry;		// requester -> entry, grouped by section and in student order
+
+	/**
+	 * Builds the matrix from the current preferences of every registered student.
+	 * @param state the enrollment state whose indices the matrix uses
+	 */
+	public PreferenceMatrix(EnrollmentState state) {
+		int numStudents = state.numStudents(), numSections = state.numSections(), capacity = 0;
+		for (int stud = 0; stud < numStudents; stud++)
+			capacity += state.getStudent(stud).getPreferences().size();
+
+		int[] students = new int[capacity], sections = new int[capacity], ranks = new int[capacity];
+		this.rowStart = new int[numStudents + 1];
+		this.entryRequired = new BitSet(capacity);
+		this.columnStart = new int[numSections + 1];
+
+		int entry = 0;
+		for (int stud = 0; stud < numStudents; stud++) {
+			this.rowStart[stud] = entry;
+			List<Preference> preferences = state.getStudent(stud).getPreferences();
+			for (int rank = 0; rank < preferences.size(); rank++) {
+				int sect = state.indexOf(preferences.get(rank).getSection());
+				if (sect < 0 || indexOf(sections, this.rowStart[stud], entry, sect) >= 0)
+					continue;
+
+				students[entry] = stud;
+				sections[entry] = sect;
+				ranks[entry] = rank;
+				if (preferences.get(rank).isRequired())
+					this.entryRequired.set(entry);
+				this.columnStart[sect + 1]++;
+				entry++;
+			}
+		}
+		this.rowStart[numStudents] = entry;
+
+		this.entryStudent = trim(students, entry);
+		this.entrySection = trim(sections, entry);
+		this.entryRank = trim(ranks, entry);
+
+		// Transpose: prefix-sum the column counts, then drop each entry into its section's slot
+		for (int sect = 0; sect < numSections; sect++)
+			this.columnStart[sect + 1] += this.columnStart[sect];
+		this.columnEntry = new int[entry];
+		int[] next = this.columnStart.clone();
+		for (int e = 0; e < entry; e++)
+			this.columnEntry[next[this.entrySection[e]]++] = e;
+	}
+
+	private static int indexOf(int[] values, int from, int to, int value) {
+		for (int i = from; i < to; i++)
+			if (values[i] == value) return i;
+		return -1;
+	}
+
+	private static int[] trim(int[] values, int length) {
+		if (values.length == length)
+			return values;
+		int[] trimmed = new int[length];
+		System.arraycopy(values, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+	/**
+	 * Number of students (rows) in the matrix
+	 * @return number of students
+	 */
+	public int numStudents() {
+		return rowStart.length - 1;
+	}
+
+	/**
+	 * Number of sections (columns) in the matrix
+	 * @return number of sections
+	 */
+	public int numSections() {
+		return columnStart.length - 1;
+	}
+
+	/**
+	 * Number of preferences (entries) in the matrix
+	 * @return number of entries
+	 */
+	public int numEntries() {
+		return entryStudent.length;
+	}
+
+	/**
+	 * Getter for the first entry of a student's row
+	 * @param student index of the student
+	 * @return the first entry of the student
+	 */
+	public int rowStart(int student) {
+		return rowStart[student];
+	}
+
+	/**
+	 * Getter for the end (exclusive) of a student's row
+	 * @param student index of the student
+	 * @return one past the last entry of the student
+	 */
+	public int rowEnd(int student) {
+		return rowStart[student + 1];
+	}
+
+	/**
+	 * Getter for the student of an entry
+	 * @param entry the entry
+	 * @return index of the student
+	 */
+	public int getStudent(int entry) {
+		return entryStudent[entry];
+	}
+
+	/**
+	 * Getter for the section of an entry
+	 * @param entry the entry
+	 * @return index of the section
+	 */
+	public int getSection(int entry) {
+		return entrySection[entry];
+	}
+
+	/**
+	 * Getter for the rank of an entry on its student's preference list
+	 * @param entry the entry
+	 * @return the rank, 0 being the first choice
+	 */
+	public int getRank(int entry) {
+		return entryRank[entry];
+	}
+
+	/**
+	 * Determine if the student of an entry needs its section
+	 * @param entry the entry
+	 * @return true if the preference is required
+	 */
+	public boolean isRequired(int entry) {
+		return entryRequired.get(entry);
+	}
+
+	/**
+	 * Find the entry of a student for a section. Rows hold one student's preferences,
+	 * so this only looks through that student's handful of entries.
+	 * @param student index of the student
+	 * @param section index of the section
+	 * @return the entry, or -1 if the student did not request the section
+	 */
+	public int findEntry(int student, int section) {
+		return indexOf(entrySection, rowStart[student], rowStart[student + 1], section);
+	}
+
+	/**
+	 * Getter for the rank a student gave a section
+	 * @param student index of the student
+	 * @param section index of the section
+	 * @return the rank, or -1 if the student did not request the section
+	 */
+	public int getRank(int student, int section) {
+		int entry = findEntry(student, section);
+		return (entry < 0 ? -1 : entryRank[entry]);
+	}
+
+	/**
+	 * Getter for the number of students requesting a section
+	 * @param section index of the section
+	 * @return the demand for the section
+	 */
+	public int getDemand(int section) {
+		return columnStart[section + 1] - columnStart[section];
+	}
+
+	/**
+	 * Getter for the first requester slot of a section, for use with getRequesterEntry
+	 * @param section index of the section
+	 * @return the first requester slot
+	 */
+	public int columnStart(int section) {
+		return columnStart[section];
+	}
+
+	/**
+	 * Getter for the end (exclusive) of a section's requester slots
+	 * @param section index of the section
+	 * @return one past the last requester slot
+	 */
+	public int columnEnd(int section) {
+		return columnStart[section + 1];
+	}
+
+	/**
+	 * Getter for the entry in a requester slot of the transposed index
+	 * @param slot a slot between columnStart and columnEnd of a section
+	 * @return the entry of the requesting student
+	 */
+	public int getRequesterEntry(int slot) {
+		return columnEntry[slot];
+	}
+}
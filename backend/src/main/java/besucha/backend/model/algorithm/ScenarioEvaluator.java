@@ -0,0 +1,75 @@
+package besucha.backend.model.algorithm;
+
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Answers what-if questions against an enrolled course system, such as how many more students
+ * a section would take with another 30 seats, without importing or enrolling it again. Every
+ * scenario is a ChangeSet applied to a fork of the course system by IncrementalEnrollment, so
+ * only the students its edits name are placed again and only the seats they free are filled, and
+ * the scenarios run side by side on a pool. Each reports the enrolled and waitlist rows it would
+ * change. No lottery is drawn, so the differences between scenarios come from their edits alone.
+ */
+public class ScenarioEvaluator {
+
+	private final CourseSystem cs;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructs the evaluator on the common pool.
+	 * @param cs the enrolled course system; it is only forked, never changed
+	 */
+	public ScenarioEvaluator(CourseSystem cs) {
+		this(cs, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs the evaluator.
+	 * @param cs the enrolled course system; it is only forked, never changed
+	 * @param pool the pool to evaluate the scenarios on
+	 */
+	public ScenarioEvaluator(CourseSystem cs, ForkJoinPool pool) {
+		this.cs = cs;
+		this.pool = pool;
+	}
+
+	/**
+	 * Evaluates every scenario on a fork of its own.
+	 * @param scenarios the edits of each scenario
+	 * @return the rows each scenario would change, in the order of the scenarios; rows name the
+	 * forks' students and sections, which carry the same ids as the course system's
+	 * @throws StudentDoesNotExistException if a scenario names a student not in the course system
+	 * @throws SectionDoesNotExistException if a scenario names a section not in the course system
+	 */
+	public List<EnrollmentDelta> evaluate(List<ChangeSet> scenarios) throws
+			StudentDoesNotExistException, SectionDoesNotExistException {
+		Map<Integer, Student> studentsById = new HashMap<>();
+		for (Student student : cs.getAllStudents())
+			studentsById.put(student.getId(), student);
+		Map<Integer, Section> sectionsById = new HashMap<>();
+		for (Section section : cs.getAllSections())
+			sectionsById.put(section.getId(), section);
+		for (ChangeSet scenario : scenarios)
+			scenario.validate(studentsById, sectionsById);
+
+		// Forks are taken here, one at a time, and then changed on the pool
+		List<ForkJoinTask<EnrollmentDelta>> tasks = new ArrayList<>(scenarios.size());
+		for (ChangeSet scenario : scenarios) {
+			CourseSystem fork = cs.fork();
+			tasks.add(pool.submit(() -> new IncrementalEnrollment(fork).apply(scenario)));
+		}
+
+		List<EnrollmentDelta> deltas = new ArrayList<>(tasks.size());
+		for (ForkJoinTask<EnrollmentDelta> task : tasks)
+			deltas.add(task.join());
+		return deltas;
+	}
+}
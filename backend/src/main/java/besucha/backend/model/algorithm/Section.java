@@ -16,6 +16,7 @@ public class Section {
 	private List<Student> enrolled;
 	private int capacity;
 	private double creditWeight;
+	private boolean listsShared;	// a fork still reads the lists, so they are copied before they are handed out
 
 	public Section() {
 		this.waitlist = new ArrayList<>();
@@ -104,6 +105,7 @@ public class Section {
 	 * @return the students on the waiting list (as type List)
 	 */
 	public List<Student> getWaitlist() {
+		unshareLists();
 		return waitlist;
 	}
 
@@ -113,9 +115,36 @@ public class Section {
 	 * @return the enrolled students (as type List)
 	 */
 	public List<Student> getEnrolled() {
+		unshareLists();
 		return enrolled;
 	}
 
+	/**
+	 * Hands the enrolled list to a fork to read, copying it first if this section changes it later.
+	 * @return the enrolled list, which must not be changed
+	 */
+	List<Student> shareEnrolled() {
+		listsShared = true;
+		return enrolled;
+	}
+
+	/**
+	 * Hands the waitlist to a fork to read, copying it first if this section changes it later.
+	 * @return the waitlist, which must not be changed
+	 */
+	List<Student> shareWaitlist() {
+		listsShared = true;
+		return waitlist;
+	}
+
+	private void unshareLists() {
+		if (listsShared) {
+			enrolled = new ArrayList<>(enrolled);
+			waitlist = new ArrayList<>(waitlist);
+			listsShared = false;
+		}
+	}
+
 
 	/**
 	 * Getter for the capacity of the section
@@ -125,6 +154,14 @@ public class Section {
 		return capacity;
 	}
 
+	/**
+	 * Set the capacity of the section
+	 * @param capacity the total number of seats the section offers
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
 
 	/**
 	 * Formats the class into string representation
@@ -136,7 +173,7 @@ public class Section {
 	}
 
 	/**
-	 * Redefines the equals method to work specifically with Sections
+	 * Two Sections are equal if their section IDs match.
 	 * @return whether or not the argument is equal to invoking object
 	 */
 	@Override
@@ -144,7 +181,7 @@ public class Section {
 		if(o == this) return true;
 		if (!(o instanceof Section)) return false;
 		Section s = (Section)o;
-		return s.toString().equals(this.toString());
+		return s.id == this.id;
 	}
 
 	/**
@@ -152,6 +189,6 @@ public class Section {
 	 */
 	@Override
 	public int hashCode(){
-		return this.toString().hashCode();
+		return this.id;
 	}
 }
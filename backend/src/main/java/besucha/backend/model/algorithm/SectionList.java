@@ -21,9 +21,10 @@ public class SectionList {
 	}
 
 	/**
-	 * Add new section.
+	 * Add new section. Sections are told apart by id alone, so a section with the id of one
+	 * already in the list is a duplicate even if its title or capacity differ.
 	 * @param s section to be added to the system
-	 * @throws DuplicationException if section already contained within list
+	 * @throws DuplicationException if a section with the same id is already contained within list
 	 */
 	public void addSection(Section s) throws DuplicationException {
 		if (!sections.contains(s)) {
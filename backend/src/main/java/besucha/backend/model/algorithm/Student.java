@@ -41,9 +41,10 @@ public class Student {
 	 * @return its index on the preference list
 	 */
 	public int getPreferenceRank(Section section) {
-		for (Preference p  : preferences){
-			if (section == p.getSection()){
-				return preferences.indexOf(p);
+		List<Preference> preferences = getPreferences();
+		for (int i = 0; i < preferences.size(); i++){
+			if (section == preferences.get(i).getSection()){
+				return i;
 			}
 		}
 		return -1;
@@ -54,7 +55,7 @@ public class Student {
 	 * @return its index on the preference list
 	 */
 	public int getPreferenceRank(Preference p ){
-		int result = preferences.indexOf(p);
+		int result = getPreferences().indexOf(p);
 		if (result == -1){ // no such section "exists", let's manually check
 			return this.getPreferenceRank(p);
 		}
@@ -77,7 +78,7 @@ public class Student {
 	 * @param preference pair the section and need of the preference.
 	 */
 	public void addPreference(Preference preference) {
-		preferences.add(preference);
+		getPreferences().add(preference);
 	}
 
 	/**
@@ -161,7 +162,7 @@ public class Student {
 
 
 	/**
-	 * Redefines the equals method to work specifically with Students
+	 * Two Students are equal if their student IDs match.
 	 * @return whether or not the argument is equal to invoking object
 	 */
 	@Override
@@ -169,7 +170,7 @@ public class Student {
 		if(o == this) return true;
 		if (!(o instanceof Student)) return false;
 		Student s = (Student)o;
-		return s.toString().equals(this.toString());
+		return s.studentId == this.studentId;
 	}
 
 	/**
@@ -178,7 +179,7 @@ public class Student {
 	 */
 	@Override
 	public int hashCode(){
-		return this.toString().hashCode();
+		return this.studentId;
 	}
 
 
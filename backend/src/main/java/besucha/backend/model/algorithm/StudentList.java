@@ -21,15 +21,16 @@ public class StudentList {
 	}
 
 	/**
-	 * Add new student.
+	 * Add new student. Students are told apart by id alone, so a student with the id of one
+	 * already in the list is a duplicate even if their name or seniority differ.
 	 * @param s student to be added to the system
-	 * @throws DuplicationException if student already contained within list
+	 * @throws DuplicationException if a student with the same id is already contained within list
 	 */
 	public void addStudent(Student s) throws DuplicationException {
 		if (!students.contains(s)) {
 			students.add(s);
 		} else {
-			throw new DuplicationException("Student ID" + s.getName() + " is a duplicate. Please remove duplicates from Excel spreadsheet and try again.");
+			throw new DuplicationException("Student ID " + s.getId() + " is a duplicate. Please remove duplicates from Excel spreadsheet and try again.");
 		}
 	}
 
@@ -0,0 +1,346 @@
+package besucha.backend.model.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Improves an enrolled course system by trading seats between students, top trading cycles
+ * style, after an algorithm has run or live add/drop has closed. Every full section has an edge
+ * to each section whose seat a student on its waitlist would give up for it: one they are
+ * enrolled in and rank below it, whose credits leave room for the swap. The edge is held by the
+ * first such student on the waitlist, so a seat goes to whoever the waitlist puts first. A cycle
+ * of edges is a cycle of students each giving up a seat for one they prefer, and a depth first
+ * search over the sections finds a set of cycles with no section or student in two of them,
+ * which are traded before the search goes again. A cycle a student would be in twice cannot be
+ * traded, so when a search finds only those, it goes again without the edge where the student
+ * came round again, and the improver stops once every cycle left runs through such an edge.
+ * No one is worse off: traders only move up, and every other student keeps their seats, since
+ * each seat given up is taken in the same trade, and their place on each waitlist. A student
+ * who trades leaves the waitlist of the section they get, and is not put on one for the seat
+ * they gave up.
+ * A section's edges only change when a student on its waitlist trades, so only those sections'
+ * edges are built again, side by side on a pool.
+ */
+public class TradeCycleImprover {
+
+	private static final int[] NO_EDGES = new int[0];
+
+	private final CourseSystem cs;
+	private final EnrollmentState state;
+	private final PreferenceMatrix matrix;
+	private final ForkJoinPool pool;
+	private int[][] waitlists;			// section index -> waitlisted student indices, in order
+	private boolean[] isFull;			// section index -> whether the section takes part in trades
+	private int[][] edgeSections;		// section index -> the sections its waitlisted students would give up
+	private int[][] edgeStudents;		// section index -> the student holding each edge
+	private final BitSet touchedSections = new BitSet();
+	private final Map<Integer, List<Student>> oldEnrolled = new HashMap<>();
+	private final Map<Integer, List<Student>> oldWaitlist = new HashMap<>();
+	private final BitSet improvedStudents = new BitSet();
+	private int numTrades;
+	private int numCycles;
+	private int numRounds;
+	private long runTimeMillis;
+
+	/**
+	 * Constructs the improver on the common pool.
+	 * @param cs the enrolled course system, with its sections' enrolled lists and waitlists filled
+	 */
+	public TradeCycleImprover(CourseSystem cs) {
+		this(cs, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs the improver.
+	 * @param cs the enrolled course system, with its sections' enrolled lists and waitlists filled
+	 * @param pool the pool to build the sections' edges on
+	 */
+	public TradeCycleImprover(CourseSystem cs, ForkJoinPool pool) {
+		this.cs = cs;
+		this.state = cs.getEnrollmentState();
+		this.matrix = cs.getPreferenceMatrix();
+		this.pool = pool;
+	}
+
+	/**
+	 * Trades seats until every cycle of trades left runs through an edge given up on, for having
+	 * a student in a cycle twice.
+	 * @return the enrolled and waitlist rows the trades changed, counting the students who traded
+	 */
+	public EnrollmentDelta improve() {
+		long start = System.nanoTime();
+		int numSections = state.numSections();
+		waitlists = new int[numSections][];
+		isFull = new boolean[numSections];
+		edgeSections = new int[numSections][];
+		edgeStudents = new int[numSections][];
+		for (int sect = 0; sect < numSections; sect++) {
+			// Trades keep every section's count, so a section full now stays full
+			Section section = state.getSection(sect);
+			isFull[sect] = (section.openSeat() == 0);
+			List<Student> waitlist = section.getWaitlist();
+			waitlists[sect] = new int[waitlist.size()];
+			for (int i = 0; i < waitlist.size(); i++)
+				waitlists[sect][i] = state.indexOf(waitlist.get(i));
+		}
+
+		BitSet dirty = new BitSet(numSections);
+		dirty.set(0, numSections);
+		while (!dirty.isEmpty()) {
+			buildEdges(dirty.stream().toArray());
+			dirty.clear();
+			numRounds++;
+			Set<Long> blocked = new HashSet<>();
+			List<int[]> cycles;
+			int numBlocked;
+			do {
+				numBlocked = blocked.size();
+				cycles = findCycles(blocked);
+			} while (cycles.isEmpty() && blocked.size() > numBlocked);
+			for (int[] cycle : cycles)
+				trade(cycle, dirty);
+		}
+
+		EnrollmentDelta delta = flush();
+		runTimeMillis = (System.nanoTime() - start) / 1000000;
+		return delta;
+	}
+
+	/**
+	 * Builds the edges of the given sections across the pool.
+	 * @param sections indices of the sections whose edges are out of date
+	 */
+	private void buildEdges(int[] sections) {
+		int numSlices = Math.max(1, Math.min(sections.length, pool.getParallelism() * 4));
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(numSlices);
+		for (int slice = 0; slice < numSlices; slice++) {
+			int from = (int) ((long) sections.length * slice / numSlices);
+			int to = (int) ((long) sections.length * (slice + 1) / numSlices);
+			tasks.add(pool.submit(() -> {
+				int[] seen = new int[state.numSections()];	// section index -> 1 + the section whose edge to it was seen
+				int[] targets = new int[state.numSections()], holders = new int[state.numSections()];
+				for (int i = from; i < to; i++)
+					buildEdges(sections[i], seen, targets, holders);
+			}));
+		}
+		for (ForkJoinTask<?> task : tasks)
+			task.join();
+	}
+
+	/**
+	 * Builds a section's edges, walking its waitlist in order so each edge is held by the first
+	 * student who would make the trade.
+	 */
+	private void buildEdges(int sect, int[] seen, int[] targets, int[] holders) {
+		int count = 0;
+		if (isFull[sect]) {
+			for (int stud : waitlists[sect]) {
+				if (stud < 0 || !state.isWaitlisted(stud, sect) || state.isEnrolled(stud, sect)) continue;
+				int request = matrix.findEntry(stud, sect);
+				if (request < 0) continue;
+
+				// Entries of a row are in preference order, so the ones after the request rank below it
+				double credits = state.getEnrolledCredits(stud);
+				for (int entry = request + 1; entry < matrix.rowEnd(stud); entry++) {
+					int leave = matrix.getSection(entry);
+					if (seen[leave] == sect + 1 || !isFull[leave] || !state.isEnrolled(stud, leave)
+							|| credits - state.getSection(leave).getCreditWeight() >= cs.getMaxCredits())
+						continue;
+					seen[leave] = sect + 1;
+					targets[count] = leave;
+					holders[count] = stud;
+					count++;
+				}
+			}
+		}
+		edgeSections[sect] = (count == 0 ? NO_EDGES : Arrays.copyOf(targets, count));
+		edgeStudents[sect] = (count == 0 ? NO_EDGES : Arrays.copyOf(holders, count));
+	}
+
+	/**
+	 * Searches the sections depth first for cycles, taking each one found unless a student would
+	 * be in it twice or is in a cycle already taken. The sections of a cycle taken are done with
+	 * for the rest of the search.
+	 * @param blocked the edges to leave out, as section index << 32 | edge index; for each cycle
+	 * with a student in it twice, the edge held by their second turn is added
+	 * @return the cycles, each as its sections and the students who get them, in turn; the
+	 * student getting a section gives up the next one
+	 */
+	private List<int[]> findCycles(Set<Long> blocked) {
+		int numSections = edgeSections.length;
+		byte[] color = new byte[numSections];	// 0 not yet reached, 1 on the path, 2 done with
+		int[] pathSection = new int[numSections], pathEdge = new int[numSections], place = new int[numSections];
+		BitSet takenStudents = new BitSet();
+		List<int[]> cycles = new ArrayList<>();
+
+		for (int root = 0; root < numSections; root++) {
+			if (color[root] != 0 || edgeSections[root].length == 0) continue;
+			int depth = 0;
+			color[root] = 1;
+			place[root] = 0;
+			pathSection[depth] = root;
+			pathEdge[depth++] = 0;
+			while (depth > 0) {
+				int sect = pathSection[depth - 1], edge = pathEdge[depth - 1];
+				if (edge == edgeSections[sect].length) {
+					color[sect] = 2;
+					depth--;
+					continue;
+				}
+				pathEdge[depth - 1]++;
+				int next = edgeSections[sect][edge];
+				if (color[next] == 2 || blocked.contains((long) sect << 32 | edge)) continue;
+				if (color[next] == 0) {
+					color[next] = 1;
+					place[next] = depth;
+					pathSection[depth] = next;
+					pathEdge[depth++] = 0;
+					continue;
+				}
+
+				// The edge leads back onto the path, closing a cycle from there to here
+				int first = place[next], length = depth - first;
+				int[] cycle = new int[2 * length];
+				BitSet students = new BitSet();
+				boolean isTaken = false, isRepeated = false;
+				for (int i = 0; i < length && !isTaken && !isRepeated; i++) {
+					int at = pathSection[first + i], atEdge = pathEdge[first + i] - 1;
+					int stud = edgeStudents[at][atEdge];
+					isTaken = takenStudents.get(stud);
+					isRepeated = students.get(stud);
+					// Unlike a student already taken, a student in the cycle twice never stops being so
+					if (isRepeated && !isTaken)
+						blocked.add((long) at << 32 | atEdge);
+					students.set(stud);
+					cycle[2 * i] = at;
+					cycle[2 * i + 1] = stud;
+				}
+				if (isTaken || isRepeated) continue;
+
+				cycles.add(cycle);
+				takenStudents.or(students);
+				for (int i = first; i < depth; i++)
+					color[pathSection[i]] = 2;
+				depth = first;
+			}
+		}
+		return cycles;
+	}
+
+	/**
+	 * Trades a cycle: every student gives up the seat they offered, then takes the one they get.
+	 * @param cycle the sections of the cycle and the students who get them, in turn
+	 * @param dirty the sections whose edges the trades put out of date
+	 */
+	private void trade(int[] cycle, BitSet dirty) {
+		int length = cycle.length / 2;
+		for (int i = 0; i < length; i++) {
+			int sect = cycle[2 * i], stud = cycle[2 * i + 1], leave = cycle[2 * ((i + 1) % length)];
+			touch(sect);
+			touch(leave);
+			cs.drop(stud, leave);
+		}
+		for (int i = 0; i < length; i++) {
+			int sect = cycle[2 * i], stud = cycle[2 * i + 1];
+			if (!cs.enroll(stud, sect))
+				throw new IllegalStateException("A traded seat could not be taken");
+			for (int request = matrix.rowStart(stud); request < matrix.rowEnd(stud); request++)
+				if (state.isWaitlisted(stud, matrix.getSection(request)))
+					dirty.set(matrix.getSection(request));
+			state.markLeftWaitlist(stud, sect);
+			improvedStudents.set(stud);
+			numTrades++;
+		}
+		numCycles++;
+	}
+
+	/**
+	 * Remembers a section's rows from before the trades, before it first changes.
+	 * @param sect index of the section
+	 */
+	private void touch(int sect) {
+		if (touchedSections.get(sect)) return;
+		touchedSections.set(sect);
+		Section section = state.getSection(sect);
+		oldEnrolled.put(sect, new ArrayList<>(section.getEnrolled()));
+		oldWaitlist.put(sect, new ArrayList<>(section.getWaitlist()));
+	}
+
+	/**
+	 * Takes the students who traded off the waitlists of the sections they got, and reports the
+	 * rows the trades changed.
+	 */
+	private EnrollmentDelta flush() {
+		EnrollmentDelta delta = new EnrollmentDelta();
+		delta.setNumStudents(improvedStudents.cardinality());
+		for (int sect = touchedSections.nextSetBit(0); sect >= 0; sect = touchedSections.nextSetBit(sect + 1)) {
+			Section section = state.getSection(sect);
+			List<Student> waitlist = section.getWaitlist();
+			List<Student> kept = new ArrayList<>(waitlist.size());
+			for (Student student : waitlist) {
+				int stud = state.indexOf(student);
+				if (stud < 0 || !state.isEnrolled(stud, sect))
+					kept.add(student);
+			}
+			waitlist.clear();
+			waitlist.addAll(kept);
+			delta.compare(section, oldEnrolled.remove(sect), oldWaitlist.remove(sect));
+		}
+		touchedSections.clear();
+		return delta;
+	}
+
+	/**
+	 * Getter for the number of students given a better seat by the last improvement
+	 * @return the number of students who traded
+	 */
+	public int getNumStudentsImproved() {
+		return improvedStudents.cardinality();
+	}
+
+	/**
+	 * Getter for the number of seats traded by the last improvement
+	 * @return the number of seats that changed hands
+	 */
+	public int getNumTrades() {
+		return numTrades;
+	}
+
+	/**
+	 * Getter for the number of cycles traded by the last improvement
+	 * @return the number of cycles
+	 */
+	public int getNumCycles() {
+		return numCycles;
+	}
+
+	/**
+	 * Getter for the number of times the search for cycles was run
+	 * @return the number of rounds
+	 */
+	public int getNumRounds() {
+		return numRounds;
+	}
+
+	/**
+	 * Getter for how long the last improvement took
+	 * @return the run time in milliseconds
+	 */
+	public long getRunTimeMillis() {
+		return runTimeMillis;
+	}
+
+	@Override
+	public String toString() {
+		return getNumStudentsImproved() + " students improved by " + numTrades + " trades in " + numCycles
+				+ " cycles over " + numRounds + " rounds, in " + runTimeMillis + " ms";
+	}
+}
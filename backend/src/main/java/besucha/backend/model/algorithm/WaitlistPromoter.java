@@ -0,0 +1,308 @@
+package besucha.backend.model.algorithm;
+
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Promotes waitlisted students into seats as they free up, once enrollment has run.
+ * Each section's waitlist is kept as an EnrollmentQueue of requests keyed by place on the
+ * waitlist, which the enrollment algorithm already ranked by priority, so the order students
+ * were given is the order they are promoted in. When a seat opens, because a student dropped
+ * the section or its capacity went up, the front of the queue is promoted in logarithmic time. A promoted student who is already at
+ * max credits trades up, leaving their least preferred section ranked below the new one,
+ * and that seat is filled the same way in turn. A waitlist entry its student can no longer
+ * use is dropped, since a student at max credits has nothing to give up for it.
+ * The sections' waitlists are only brought up to date by flush, which reports the rows changed.
+ * Students on a waitlist who never requested the section are left off when it is flushed.
+ * A request made after enrollment ran joins its section's waitlist where the run would have
+ * ranked it, by priority and then credit load, behind everyone who ranks the same. There is no
+ * lottery to break those ties after the run, so they go to whoever was waiting first.
+ */
+public class WaitlistPromoter {
+
+	private final CourseSystem cs;
+	private final EnrollmentState state;
+	private final PreferenceMatrix matrix;
+	private final EnrollmentQueue.RequestKeys keys;
+	private final EnrollmentQueue[] waitlists;			// section index -> its waitlisted requests
+	private final ConflictAlgorithm.StudentPriorityList priorityChecker;
+	private final BitSet touchedSections;				// sections changed since the last flush
+	private final Map<Integer, List<Student>> flushedEnrolled;	// touched section -> enrolled at the last flush
+	private final Map<Integer, List<Student>> flushedWaitlist;	// touched section -> waitlist at the last flush
+	private int[] pending;								// stack of sections that may have a seat to fill
+	private int numPromoted;
+
+	/**
+	 * Builds the waitlist queues of an enrolled course system.
+	 * @param cs the course system, with its sections' enrolled lists and waitlists filled
+	 */
+	public WaitlistPromoter(CourseSystem cs) {
+		this.cs = cs;
+		this.state = cs.getEnrollmentState();
+		this.matrix = cs.getPreferenceMatrix();
+		this.keys = new EnrollmentQueue.RequestKeys(matrix.numEntries());
+		this.waitlists = new EnrollmentQueue[state.numSections()];
+		List<Student> students = cs.getAllStudents();
+		this.priorityChecker = new ConflictAlgorithm.StudentPriorityList(students.isEmpty() ? null : students.get(0), false);
+		this.touchedSections = new BitSet();
+		this.flushedEnrolled = new HashMap<>();
+		this.flushedWaitlist = new HashMap<>();
+		this.pending = new int[16];
+
+		for (int sect = 0; sect < waitlists.length; sect++) {
+			waitlists[sect] = new EnrollmentQueue(keys);
+			List<Student> waitlist = state.getSection(sect).getWaitlist();
+			for (int position = 0; position < waitlist.size(); position++) {
+				int stud = state.indexOf(waitlist.get(position));
+				int request = (stud < 0 ? -1 : matrix.findEntry(stud, sect));
+				if (request >= 0 && !keys.isWaiting(request))
+					waitlists[sect].add(request, 0, 0, position);
+			}
+		}
+	}
+
+	/**
+	 * Applies the drops and capacity changes of a change set, promoting into every seat they free.
+	 * Drops go first, so a lowered capacity only stops promotions rather than removing anyone.
+	 * @param changes the drops and capacity changes to apply
+	 * @throws StudentDoesNotExistException if the change set names a student not in the course system
+	 * @throws SectionDoesNotExistException if the change set names a section not in the course system
+	 * @throws IllegalArgumentException if the change set has new preferences, which reorder whole
+	 * waitlists and need IncrementalEnrollment instead
+	 */
+	public void apply(ChangeSet changes) throws StudentDoesNotExistException, SectionDoesNotExistException {
+		if (!changes.getStudentsWithNewPreferences().isEmpty())
+			throw new IllegalArgumentException("New preferences cannot be applied by promoting from waitlists");
+
+		Map<Integer, Student> studentsById = new HashMap<>();
+		for (Student student : cs.getAllStudents())
+			studentsById.put(student.getId(), student);
+		Map<Integer, Section> sectionsById = new HashMap<>();
+		for (Section section : cs.getAllSections())
+			sectionsById.put(section.getId(), section);
+		changes.validate(studentsById, sectionsById);
+
+		for (int studentId : changes.getStudentsWithDrops())
+			for (int sectionId : changes.getDroppedSections(studentId))
+				drop(studentsById.get(studentId), sectionsById.get(sectionId));
+		for (Map.Entry<Integer, Integer> capacity : changes.getCapacities().entrySet())
+			setCapacity(sectionsById.get(capacity.getKey()), capacity.getValue());
+	}
+
+	/**
+	 * Drops a student from a section and promotes from its waitlist into the open seat.
+	 * The student gives up their request for the section too, so it leaves their preferences
+	 * and a later run does not enroll them in it again.
+	 * @param student the student dropping the section
+	 * @param section the section being dropped
+	 * @return true if the student was enrolled in the section
+	 */
+	public boolean drop(Student student, Section section) {
+		int stud = state.indexOf(student), sect = state.indexOf(section);
+		if (stud < 0 || sect < 0 || !state.isEnrolled(stud, sect))
+			return false;
+
+		touch(sect);
+		cs.drop(stud, sect);
+		fill(sect);
+		List<Preference> preferences = new ArrayList<>(student.getPreferences());
+		// The queues keep the matrix they were built on, which only differs by the dropped request
+		if (preferences.removeIf(p -> p.getSection().equals(section))) {
+			student.setPreferences(preferences);
+			cs.preferencesChanged();
+		}
+		return true;
+	}
+
+	/**
+	 * Takes a student out of a section they no longer request, whether they are enrolled in it
+	 * or waiting for it, and promotes from its waitlist into any seat they free.
+	 * @param student the student leaving the section
+	 * @param section the section being left
+	 */
+	public void leave(Student student, Section section) {
+		int stud = state.indexOf(student), sect = state.indexOf(section);
+		if (stud < 0 || sect < 0) return;
+		if (drop(student, section)) return;
+		if (!state.isWaitlisted(stud, sect)) return;
+
+		touch(sect);
+		int request = matrix.findEntry(stud, sect);
+		if (request >= 0)
+			waitlists[sect].remove(request);
+		state.markLeftWaitlist(stud, sect);
+	}
+
+	/**
+	 * Places a request made after enrollment ran: the student joins the section's waitlist
+	 * ahead of the first student waiting who ranks below them, by priority and then credit
+	 * load, and is promoted at once if a seat is open.
+	 * A student at max credits with nothing ranked below the section to give up is not placed.
+	 * @param student the student making the request, which must be among their preferences
+	 * @param section the section requested
+	 * @return true if the student was enrolled in the section
+	 */
+	public boolean request(Student student, Section section) {
+		int stud = state.indexOf(student), sect = state.indexOf(section);
+		int request = (stud < 0 || sect < 0 ? -1 : matrix.findEntry(stud, sect));
+		if (request < 0 || state.isEnrolled(stud, sect) || keys.isWaiting(request))
+			return false;
+		if (cs.hasMaxCredits(stud) && sectionToLeave(request) < 0)
+			return false;
+
+		touch(sect);
+		insertInOrder(sect, request);
+		state.markWaitlisted(stud, sect);
+		fill(sect);
+		return state.isEnrolled(stud, sect);
+	}
+
+	/**
+	 * Puts a request on a section's waitlist ahead of the first request waiting that ranks below
+	 * it, renumbering the places of everyone behind it. Priorities and credit loads are taken
+	 * the way the algorithms take them when they build the waitlists.
+	 * @param sect index of the section
+	 * @param request the request joining its waitlist
+	 */
+	private void insertInOrder(int sect, int request) {
+		int priority = priorityOf(request), creditLoad = cs.getNumEnrolledCredits(matrix.getStudent(request));
+		int[] waiting = waitlists[sect].drainInOrder();
+		int at = 0;
+		while (at < waiting.length) {
+			int other = priorityOf(waiting[at]);
+			if (other < priority || (other == priority && cs.getNumEnrolledCredits(matrix.getStudent(waiting[at])) > creditLoad))
+				break;
+			at++;
+		}
+		for (int position = 0; position < waiting.length; position++)
+			waitlists[sect].add(waiting[position], 0, 0, (position < at ? position : position + 1));
+		waitlists[sect].add(request, 0, 0, at);
+	}
+
+	private int priorityOf(int request) {
+		int seniority = state.getStudent(matrix.getStudent(request)).getSeniority().ordinal();
+		return priorityChecker.calculatePriority(matrix.getRank(request), seniority, true);
+	}
+
+	/**
+	 * Changes the capacity of a section and promotes from its waitlist into any open seats.
+	 * Lowering the capacity below the number enrolled drops no one.
+	 * @param section the section
+	 * @param capacity the new number of seats
+	 */
+	public void setCapacity(Section section, int capacity) {
+		section.setCapacity(capacity);
+		int sect = state.indexOf(section);
+		if (sect >= 0)
+			fill(sect);
+	}
+
+	/**
+	 * Promotes into the open seats of a section, following the seats that students trading up
+	 * leave behind until there are no open seats with anyone waiting for them.
+	 * @param section index of the section with an open seat
+	 */
+	private void fill(int section) {
+		int top = 0;
+		pending[top++] = section;
+		while (top > 0) {
+			int sect = pending[--top];
+			Section sec = state.getSection(sect);
+			EnrollmentQueue waitlist = waitlists[sect];
+			while (sec.hasOpenSeat() && waitlist.size() > 0) {
+				int request = waitlist.poll(), stud = matrix.getStudent(request);
+				touch(sect);
+				state.markLeftWaitlist(stud, sect);
+				if (state.isEnrolled(stud, sect)) continue;
+
+				if (cs.hasMaxCredits(stud)) {
+					int leave = sectionToLeave(request);
+					if (leave < 0) continue;	// no longer needs the seat
+					touch(leave);
+					cs.drop(stud, leave);
+					if (top == pending.length)
+						pending = Arrays.copyOf(pending, top * 2);
+					pending[top++] = leave;
+				}
+				if (cs.enroll(stud, sect))
+					numPromoted++;
+				pruneWaitlists(stud);
+			}
+		}
+	}
+
+	/**
+	 * Finds the section a student at max credits would leave to take the seat of a request:
+	 * the least preferred section they are enrolled in that ranks below the request, and
+	 * whose credits leave room for the new one.
+	 * @param request the request the student would be promoted on
+	 * @return index of the section to leave, or -1 if there is none
+	 */
+	private int sectionToLeave(int request) {
+		int stud = matrix.getStudent(request);
+		double credits = state.getEnrolledCredits(stud);
+		// Entries of a row are in preference order, so the ones after the request rank below it
+		for (int entry = matrix.rowEnd(stud) - 1; entry > request; entry--) {
+			int sect = matrix.getSection(entry);
+			if (state.isEnrolled(stud, sect) && credits - state.getSection(sect).getCreditWeight() < cs.getMaxCredits())
+				return sect;
+		}
+		return -1;
+	}
+
+	/**
+	 * Drops the waitlist entries a student can no longer use, once they are at max credits
+	 * with nothing ranked below an entry to give up for it.
+	 * @param stud index of the student
+	 */
+	private void pruneWaitlists(int stud) {
+		if (!cs.hasMaxCredits(stud)) return;
+		for (int request = matrix.rowStart(stud); request < matrix.rowEnd(stud); request++) {
+			if (!keys.isWaiting(request) || sectionToLeave(request) >= 0) continue;
+			int sect = matrix.getSection(request);
+			touch(sect);
+			waitlists[sect].remove(request);
+			state.markLeftWaitlist(stud, sect);
+		}
+	}
+
+	/**
+	 * Remembers a section's rows as of the last flush, before it first changes.
+	 * @param sect index of the section
+	 */
+	private void touch(int sect) {
+		if (touchedSections.get(sect)) return;
+		touchedSections.set(sect);
+		Section section = state.getSection(sect);
+		flushedEnrolled.put(sect, new ArrayList<>(section.getEnrolled()));
+		flushedWaitlist.put(sect, new ArrayList<>(section.getWaitlist()));
+	}
+
+	/**
+	 * Rewrites the waitlists of the sections changed since the last flush in queue order, and
+	 * reports the enrolled and waitlist rows that changed, ready to be saved.
+	 * @return the rows changed since the last flush
+	 */
+	public EnrollmentDelta flush() {
+		EnrollmentDelta delta = new EnrollmentDelta();
+		delta.setNumStudents(numPromoted);
+		for (int sect = touchedSections.nextSetBit(0); sect >= 0; sect = touchedSections.nextSetBit(sect + 1)) {
+			Section section = state.getSection(sect);
+			List<Student> waitlist = section.getWaitlist();
+			waitlist.clear();
+			for (int request : waitlists[sect].toArrayInOrder())
+				waitlist.add(state.getStudent(matrix.getStudent(request)));
+			delta.compare(section, flushedEnrolled.remove(sect), flushedWaitlist.remove(sect));
+		}
+		touchedSections.clear();
+		numPromoted = 0;
+		return delta;
+	}
+}
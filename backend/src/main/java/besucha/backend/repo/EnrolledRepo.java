@@ -2,10 +2,47 @@ package besucha.backend.repo;
 
 import besucha.backend.dao.EnrolledDao;
 import besucha.backend.dao.StudentSectionKey;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 /**
  * Handles MySQL connection for the EnrolledDao class. Uses StudentSectionKey as ID.
  */
 public interface EnrolledRepo extends PagingAndSortingRepository<EnrolledDao, StudentSectionKey> {
+
+	/**
+	 * Find the enrollments of one student, using the index on student_id.
+	 * @param studentId the id of the student
+	 * @return the student's EnrolledDao objects, ordered by section id
+	 */
+	@Query("select e from EnrolledDao e join fetch e.section where e.enrolledId.studentId = :studentId order by e.enrolledId.sectionId")
+	List<EnrolledDao> findByStudentId(@Param("studentId") int studentId);
+
+	/**
+	 * Find the enrollments of one section, using the index on section_id.
+	 * @param sectionId the id of the section
+	 * @return the section's EnrolledDao objects, ordered by student id
+	 */
+	@Query("select e from EnrolledDao e join fetch e.student where e.enrolledId.sectionId = :sectionId order by e.enrolledId.studentId")
+	List<EnrolledDao> findBySectionId(@Param("sectionId") int sectionId);
+
+	/**
+	 * Find every enrollment in one query, with its student and section, so they can be grouped in memory.
+	 * @return all EnrolledDao objects, ordered by student id and then section id
+	 */
+	@Query("select e from EnrolledDao e join fetch e.student join fetch e.section order by e.enrolledId.studentId, e.enrolledId.sectionId")
+	List<EnrolledDao> findAllOrderByStudentId();
+
+	/**
+	 * Count the students whose enrolled sections add up to fewer credits than given, counting
+	 * students who are not enrolled in anything.
+	 * @param minCredits the credits a student needs to not be counted
+	 * @return the number of students below minCredits
+	 */
+	@Query("select count(s) from StudentDao s where s.studentId not in (select e.enrolledId.studentId from EnrolledDao e"
+			+ " group by e.enrolledId.studentId having sum(e.section.creditWeight) >= :minCredits)")
+	long countStudentsWithCreditsBelow(@Param("minCredits") double minCredits);
 }
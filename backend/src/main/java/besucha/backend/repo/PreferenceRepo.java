@@ -1,10 +1,59 @@
 package besucha.backend.repo;
 
 import besucha.backend.dao.PreferenceDao;
+import besucha.backend.dao.PreferenceRow;
+import besucha.backend.dao.SectionDao;
+import besucha.backend.dao.StudentSectionKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Handles MySQL connection for the PreferenceDao class. Uses Integer as ID.
  */
 public interface PreferenceRepo extends PagingAndSortingRepository<PreferenceDao, Integer> {
+
+	boolean existsByStudentStudentIdAndSectionSectionId(int studentId, int sectionId);
+
+	/**
+	 * Delete every preference of a student in one statement, without loading them first.
+	 * @param studentId the id of the student
+	 * @return the number of preferences deleted
+	 */
+	@Modifying
+	@Query("delete from PreferenceDao p where p.student.studentId = :studentId")
+	int deleteByStudentId(@Param("studentId") int studentId);
+
+	/**
+	 * Find the student and section id of every preference, without loading the preferences themselves.
+	 * @return a StudentSectionKey for each PreferenceDao object
+	 */
+	@Query("select new besucha.backend.dao.StudentSectionKey(p.student.studentId, p.section.sectionId) from PreferenceDao p")
+	List<StudentSectionKey> findAllKeys();
+
+	/**
+	 * Stream every preference as a PreferenceRow, each student's in rank order. Rows are fetched a
+	 * thousand at a time, which MySQL reads through a cursor since the datasource url sets
+	 * useCursorFetch; the stream must be read in a transaction and closed.
+	 * @return a Stream of PreferenceRow objects, ordered by student id and then preference rank
+	 */
+	@QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+	@Query("select new besucha.backend.dao.PreferenceRow(p.student.studentId, p.section.sectionId, p.isRequired, p.preferenceRank)"
+			+ " from PreferenceDao p order by p.student.studentId, p.preferenceRank")
+	Stream<PreferenceRow> streamAllRows();
+
+	/**
+	 * Find the sections requested by the most students.
+	 * @param pageable the number of sections to find, as the size of the first page
+	 * @return the SectionDao objects, most requested first
+	 */
+	@Query("select s from PreferenceDao p join p.section s group by s order by count(p) desc")
+	List<SectionDao> findMostRequestedSections(Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package besucha.backend.repo;
+
+import besucha.backend.dao.RunDao;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+/**
+ * Handles MySQL connection for the RunDao class. Uses Integer as ID.
+ */
+public interface RunRepo extends PagingAndSortingRepository<RunDao, Integer> {
+
+	RunDao findFirstByOrderByRunIdDesc();
+}
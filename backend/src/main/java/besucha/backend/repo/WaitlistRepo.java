@@ -2,10 +2,57 @@ package besucha.backend.repo;
 
 import besucha.backend.dao.StudentSectionKey;
 import besucha.backend.dao.WaitlistDao;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 /**
  * Handles MySQL connection for the WaitlistDao class. Uses StudentSectionKey as ID.
  */
 public interface WaitlistRepo extends PagingAndSortingRepository<WaitlistDao, StudentSectionKey> {
+
+	/**
+	 * Find the waitlist rows of one student, using the index on student_id.
+	 * @param studentId the id of the student
+	 * @return the student's WaitlistDao objects, ordered by section id
+	 */
+	@Query("select w from WaitlistDao w join fetch w.section where w.waitlistId.studentId = :studentId order by w.waitlistId.sectionId")
+	List<WaitlistDao> findByStudentId(@Param("studentId") int studentId);
+
+	/**
+	 * Find the waitlist of one section, using the index on section_id and position.
+	 * @param sectionId the id of the section
+	 * @return the section's WaitlistDao objects, in waitlist order
+	 */
+	@Query("select w from WaitlistDao w join fetch w.student where w.waitlistId.sectionId = :sectionId order by w.position")
+	List<WaitlistDao> findBySectionId(@Param("sectionId") int sectionId);
+
+	/**
+	 * Find every waitlist row in one query, with its student and section, so they can be grouped in memory.
+	 * @return all WaitlistDao objects, ordered by student id and then section id
+	 */
+	@Query("select w from WaitlistDao w join fetch w.student join fetch w.section order by w.waitlistId.studentId, w.waitlistId.sectionId")
+	List<WaitlistDao> findAllOrderByStudentId();
+
+	/**
+	 * Count the sections with at least the given number of students on their waitlist.
+	 * @param minSize the waitlist size to count a section at
+	 * @return the number of sections
+	 */
+	@Query("select count(s) from SectionDao s where (select count(w) from WaitlistDao w where w.section = s) >= :minSize")
+	long countSectionsWithWaitlistOfAtLeast(@Param("minSize") long minSize);
+
+	/**
+	 * Find the sections with at least the given number of students on their waitlist, with the
+	 * size of each one's waitlist.
+	 * Each waitlist is counted by a subquery, as in countSectionsWithWaitlistOfAtLeast, rather than
+	 * by grouping on the section, which H2 fails to run with a having clause.
+	 * @param minSize the waitlist size to find a section at
+	 * @return a SectionDao object and a Long count per row, longest waitlist first
+	 */
+	@Query("select s, (select count(w) from WaitlistDao w where w.section = s) as waitlistSize from SectionDao s"
+			+ " where (select count(w) from WaitlistDao w where w.section = s) >= :minSize order by waitlistSize desc")
+	List<Object[]> findSectionsWithWaitlistOfAtLeast(@Param("minSize") long minSize);
 }
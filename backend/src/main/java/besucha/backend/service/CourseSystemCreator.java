@@ -1,5 +1,6 @@
 package besucha.backend.service;
 
+import besucha.backend.dao.PreferenceRow;
 import besucha.backend.exception.PreferenceDoesNotExistException;
 import besucha.backend.exception.SectionDoesNotExistException;
 import besucha.backend.exception.StudentDoesNotExistException;
@@ -8,8 +9,13 @@ import besucha.backend.service.accessdao.PreferenceService;
 import besucha.backend.service.accessdao.SectionService;
 import besucha.backend.service.accessdao.StudentService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Creates a CourseSystem by querying the database.
@@ -29,23 +35,46 @@ public class CourseSystemCreator {
 
 	/**
 	 * Query the db to create the CourseSystem, which the algorithm can run on.
+	 * Sections, students and preferences are each read in a single query, and every preference
+	 * is attached to its student and section through maps by id, in one pass over the rows.
 	 * @return CourseSystem that can run data
-	 * @throws SectionDoesNotExistException thrown if no SectionDao objects found in db
-	 * @throws StudentDoesNotExistException thrown if no StudentDao objects found in db
+	 * @throws SectionDoesNotExistException thrown if no SectionDao objects found in db, or a preference's section is not in db
+	 * @throws StudentDoesNotExistException thrown if no StudentDao objects found in db, or a preference's student is not in db
 	 * @throws PreferenceDoesNotExistException thrown if no PreferenceDao objects found in db.
 	 */
+	@Transactional(readOnly = true)
 	public CourseSystem createCourseSystem() throws StudentDoesNotExistException,
 			SectionDoesNotExistException, PreferenceDoesNotExistException {
 
 		verifyPossibleToCreateCourseSystem();
 
-
-
 		List<Section> sections = sectionService.getAllSections();
 		List<Student> students = studentService.getAllStudents();
 
-		for (Student s : students) {	// set student preferences
-			s.setPreferences(preferenceService.getPreferences(s, sections));
+		Map<Integer, Section> sectionsById = new HashMap<>(2 * sections.size());
+		for (Section section : sections) {
+			sectionsById.put(section.getId(), section);
+		}
+		Map<Integer, Student> studentsById = new HashMap<>(2 * students.size());
+		for (Student student : students) {
+			studentsById.put(student.getId(), student);
+		}
+
+		// Rows come each student's in rank order, so appending keeps every list in preference order
+		try (Stream<PreferenceRow> rows = preferenceService.getAllPreferenceRows()) {
+			Iterator<PreferenceRow> iterator = rows.iterator();
+			while (iterator.hasNext()) {
+				PreferenceRow row = iterator.next();
+				Student student = studentsById.get(row.getStudentId());
+				if (student == null) {
+					throw new StudentDoesNotExistException("Student with ID " + row.getStudentId() + " has preferences but is not in database. Please close program and try again.");
+				}
+				Section section = sectionsById.get(row.getSectionId());
+				if (section == null) {
+					throw new SectionDoesNotExistException("Desired section's ID is not in database. Please close program and try again.");
+				}
+				student.addPreference(new Preference(section, row.isRequired()));
+			}
 		}
 
 		return new CourseSystem(new SectionList(sections), new StudentList(students));
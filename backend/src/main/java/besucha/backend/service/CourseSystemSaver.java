@@ -1,12 +1,19 @@
 package besucha.backend.service;
 
+import besucha.backend.dao.RunDao;
+import besucha.backend.dao.StudentSectionKey;
+import besucha.backend.dao.WaitlistDao;
+import besucha.backend.model.algorithm.AlgorithmType;
 import besucha.backend.model.algorithm.CourseSystem;
+import besucha.backend.model.algorithm.EnrollmentDelta;
 import besucha.backend.model.algorithm.Section;
 import besucha.backend.model.algorithm.Student;
 import besucha.backend.service.accessdao.EnrolledService;
+import besucha.backend.service.accessdao.EnrollmentResultWriter;
 import besucha.backend.service.accessdao.WaitlistService;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,21 +24,67 @@ public class CourseSystemSaver {
 
 	private final EnrolledService enrolledService;
 	private final WaitlistService waitlistService;
+	private final EnrollmentResultWriter enrollmentResultWriter;
 
-	public CourseSystemSaver(EnrolledService enrolledService, WaitlistService waitlistService) {
+	public CourseSystemSaver(EnrolledService enrolledService, WaitlistService waitlistService, EnrollmentResultWriter enrollmentResultWriter) {
 		this.enrolledService = enrolledService;
 		this.waitlistService = waitlistService;
+		this.enrollmentResultWriter = enrollmentResultWriter;
 	}
 
 	/**
-	 *  Given enrollment results, save all results (as EnrolledDao and WaitlistDao objects) in db
+	 *  Given enrollment results, save all results (as EnrolledDao and WaitlistDao objects) in db,
+	 *  replacing those of any earlier run. The rows are written in batches in a single transaction,
+	 *  together with the seed and algorithm of the run so it can be reproduced or extended later.
 	 * @param courseSystem CourseSystem object after enrollment has completed
+	 * @param seed the seed of the run's student lottery
+	 * @param algorithmType the algorithm that enrolled the run
 	 */
-	public void saveEnrollmentResults(CourseSystem courseSystem) {
+	public void saveEnrollmentResults(CourseSystem courseSystem, long seed, AlgorithmType algorithmType) {
+		List<StudentSectionKey> enrolled = new ArrayList<>();
+		List<WaitlistDao> waitlisted = new ArrayList<>();
 		for (Section section : courseSystem.getAllSections()) {
-			saveEnrolled(section.getEnrolled(), section);
-			saveWaitlist(section.getWaitlist(), section);
+			for (Student student : section.getEnrolled()) {
+				enrolled.add(new StudentSectionKey(student.getId(), section.getId()));
+			}
+			List<Student> waitlist = section.getWaitlist();
+			for (int i = 0; i < waitlist.size(); i++) {
+				WaitlistDao waitlistDao = new WaitlistDao(new StudentSectionKey(waitlist.get(i).getId(), section.getId()));
+				waitlistDao.setPosition(i);
+				waitlisted.add(waitlistDao);
+			}
 		}
+		enrollmentResultWriter.replaceAll(enrolled, waitlisted, new RunDao(seed, algorithmType.name()));
+	}
+
+	/**
+	 * Given the rows that changed when part of the course system was enrolled again, or when
+	 * students were promoted from waitlists, delete the rows that are gone and save the new or
+	 * moved ones, leaving every other row untouched. The rows are deleted and written in batches
+	 * in a single transaction.
+	 * @param delta the changed rows
+	 */
+	public void saveEnrollmentDelta(EnrollmentDelta delta) {
+		List<WaitlistDao> movedOnWaitlist = new ArrayList<>();
+		for (EnrollmentDelta.Row row : delta.getWaitlistSaved()) {
+			WaitlistDao waitlistDao = new WaitlistDao(keyOf(row));
+			waitlistDao.setPosition(row.getPosition());
+			movedOnWaitlist.add(waitlistDao);
+		}
+		enrollmentResultWriter.replaceRows(keysOf(delta.getEnrolledRemoved()), keysOf(delta.getWaitlistRemoved()),
+				keysOf(delta.getEnrolledAdded()), movedOnWaitlist);
+	}
+
+	private static List<StudentSectionKey> keysOf(List<EnrollmentDelta.Row> rows) {
+		List<StudentSectionKey> keys = new ArrayList<>();
+		for (EnrollmentDelta.Row row : rows) {
+			keys.add(keyOf(row));
+		}
+		return keys;
+	}
+
+	private static StudentSectionKey keyOf(EnrollmentDelta.Row row) {
+		return new StudentSectionKey(row.getStudent().getId(), row.getSection().getId());
 	}
 
 	/**
@@ -0,0 +1,235 @@
+package besucha.backend.service;
+
+import besucha.backend.dao.EnrolledDao;
+import besucha.backend.dao.WaitlistDao;
+import besucha.backend.exception.DuplicationException;
+import besucha.backend.exception.PreferenceDoesNotExistException;
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
+import besucha.backend.model.algorithm.*;
+import besucha.backend.service.accessdao.EnrolledService;
+import besucha.backend.service.accessdao.PreferenceService;
+import besucha.backend.service.accessdao.SectionService;
+import besucha.backend.service.accessdao.WaitlistService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies edits to the last enrollment run, without importing and enrolling everything again.
+ */
+@Service
+public class CourseSystemUpdater {
+
+	private final CourseSystemCreator courseSystemCreator;
+	private final CourseSystemSaver courseSystemSaver;
+	private final EnrolledService enrolledService;
+	private final WaitlistService waitlistService;
+	private final SectionService sectionService;
+	private final PreferenceService preferenceService;
+
+	public CourseSystemUpdater(CourseSystemCreator courseSystemCreator, CourseSystemSaver courseSystemSaver,
+							   EnrolledService enrolledService, WaitlistService waitlistService,
+							   SectionService sectionService, PreferenceService preferenceService) {
+		this.courseSystemCreator = courseSystemCreator;
+		this.courseSystemSaver = courseSystemSaver;
+		this.enrolledService = enrolledService;
+		this.waitlistService = waitlistService;
+		this.sectionService = sectionService;
+		this.preferenceService = preferenceService;
+	}
+
+	/**
+	 * Load the last run from db, apply the changes, place the students they edit again and fill
+	 * the seats they free from waitlists, and save the edits along with the enrolled and waitlist
+	 * rows that changed. Everything is saved in one transaction, so a failure leaves db as it was.
+	 * A newly requested section is waited for in priority and then credit load order, as a run
+	 * would rank it, rather than first-come, first-served.
+	 * @param changes the capacity and preference edits
+	 * @return the rows that changed
+	 * @throws SectionDoesNotExistException thrown if no sections are in db, or the changes name a section that is not
+	 * @throws StudentDoesNotExistException thrown if no students are in db, or the changes name a student that is not
+	 * @throws PreferenceDoesNotExistException thrown if no preferences are in db
+	 * @throws DuplicationException thrown if a student's new preferences could not be saved
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	public EnrollmentDelta updateEnrollment(ChangeSet changes) throws
+			SectionDoesNotExistException,
+			StudentDoesNotExistException,
+			PreferenceDoesNotExistException,
+			DuplicationException {
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		restoreEnrollmentResults(system);
+
+		EnrollmentDelta delta = new IncrementalEnrollment(system).apply(changes);
+		saveChanges(changes, system);
+		courseSystemSaver.saveEnrollmentDelta(delta);
+		return delta;
+	}
+
+	/**
+	 * Load the last run from db, apply the drops and capacity changes, and promote waitlisted
+	 * students into the seats they free, without enrolling anyone else again. Saves the new
+	 * capacities and the dropping students' preferences along with the enrolled and waitlist rows
+	 * that changed, in one transaction.
+	 * @param changes the drops and capacity edits; new preferences need updateEnrollment
+	 * @return the rows that changed
+	 * @throws SectionDoesNotExistException thrown if no sections are in db, or the changes name a section that is not
+	 * @throws StudentDoesNotExistException thrown if no students are in db, or the changes name a student that is not
+	 * @throws PreferenceDoesNotExistException thrown if no preferences are in db
+	 * @throws DuplicationException thrown if a dropping student's preferences could not be saved
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	public EnrollmentDelta promoteWaitlists(ChangeSet changes) throws
+			SectionDoesNotExistException,
+			StudentDoesNotExistException,
+			PreferenceDoesNotExistException,
+			DuplicationException {
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		restoreEnrollmentResults(system);
+
+		WaitlistPromoter promoter = new WaitlistPromoter(system);
+		promoter.apply(changes);
+		saveChanges(changes, system);
+
+		EnrollmentDelta delta = promoter.flush();
+		courseSystemSaver.saveEnrollmentDelta(delta);
+		return delta;
+	}
+
+	/**
+	 * Load the last run from db, trade seats between students wherever a cycle of trades makes
+	 * each of them better off, and save the enrolled and waitlist rows that changed. Everything is
+	 * read and saved in one transaction, so a failure leaves db as it was.
+	 * @return the improver, reporting the students improved and the time taken
+	 * @throws SectionDoesNotExistException thrown if no sections are in db
+	 * @throws StudentDoesNotExistException thrown if no students are in db
+	 * @throws PreferenceDoesNotExistException thrown if no preferences are in db
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	public TradeCycleImprover improveByTrades() throws
+			SectionDoesNotExistException,
+			StudentDoesNotExistException,
+			PreferenceDoesNotExistException {
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		restoreEnrollmentResults(system);
+
+		TradeCycleImprover improver = new TradeCycleImprover(system);
+		courseSystemSaver.saveEnrollmentDelta(improver.improve());
+		return improver;
+	}
+
+	/**
+	 * Load the last run from db and work out what each scenario would change, saving nothing.
+	 * @param scenarios the edits of each scenario, such as capacities to try
+	 * @return the rows each scenario would change, in the order of the scenarios
+	 * @throws SectionDoesNotExistException thrown if no sections are in db, or a scenario names a section that is not
+	 * @throws StudentDoesNotExistException thrown if no students are in db, or a scenario names a student that is not
+	 * @throws PreferenceDoesNotExistException thrown if no preferences are in db
+	 */
+	public List<EnrollmentDelta> evaluateScenarios(List<ChangeSet> scenarios) throws
+			SectionDoesNotExistException,
+			StudentDoesNotExistException,
+			PreferenceDoesNotExistException {
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		restoreEnrollmentResults(system);
+		return new ScenarioEvaluator(system).evaluate(scenarios);
+	}
+
+	/**
+	 * Load the last run from db and plan where a budget of extra seats should go, saving nothing.
+	 * @param budget the number of extra seats to hand out
+	 * @param step the most seats to add to a section at a time
+	 * @param objective what the extra seats should improve
+	 * @return the capacity changes in the order they were chosen, with the gain projected for each
+	 * @throws SectionDoesNotExistException thrown if no sections are in db
+	 * @throws StudentDoesNotExistException thrown if no students are in db
+	 * @throws PreferenceDoesNotExistException thrown if no preferences are in db
+	 */
+	public List<CapacityChange> planCapacity(int budget, int step, CapacityPlanner.Objective objective) throws
+			SectionDoesNotExistException,
+			StudentDoesNotExistException,
+			PreferenceDoesNotExistException {
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		restoreEnrollmentResults(system);
+		return new CapacityPlanner(system).plan(budget, step, objective);
+	}
+
+	/**
+	 * Fill the sections of a freshly created CourseSystem with the enrolled and waitlist rows in db.
+	 * @param system CourseSystem whose sections have no enrollments yet
+	 * @throws SectionDoesNotExistException thrown if a row names a section that is not in the CourseSystem
+	 * @throws StudentDoesNotExistException thrown if a row names a student that is not in the CourseSystem
+	 */
+	protected void restoreEnrollmentResults(CourseSystem system) throws
+			SectionDoesNotExistException,
+			StudentDoesNotExistException {
+		Map<Integer, Student> studentsById = new HashMap<>();
+		for (Student student : system.getAllStudents()) {
+			studentsById.put(student.getId(), student);
+		}
+		Map<Integer, Section> sectionsById = new HashMap<>();
+		for (Section section : system.getAllSections()) {
+			sectionsById.put(section.getId(), section);
+		}
+
+		for (EnrolledDao enrolledDao : enrolledService.getAllEnrolled()) {
+			Section section = findSection(sectionsById, enrolledDao.getSection().getSectionId());
+			section.getEnrolled().add(findStudent(studentsById, enrolledDao.getStudent().getStudentId()));
+		}
+
+		List<WaitlistDao> waitlistDaos = new ArrayList<>();
+		waitlistService.getAllWaitlisted().forEach(waitlistDaos::add);
+		waitlistDaos.sort(Comparator.comparingInt(WaitlistDao::getPosition));
+		for (WaitlistDao waitlistDao : waitlistDaos) {
+			Section section = findSection(sectionsById, waitlistDao.getSection().getSectionId());
+			section.getWaitlist().add(findStudent(studentsById, waitlistDao.getStudent().getStudentId()));
+		}
+
+		EnrollmentState state = system.getEnrollmentState();
+		for (int section = 0; section < state.numSections(); section++) {
+			state.syncSection(section);
+		}
+	}
+
+	private Section findSection(Map<Integer, Section> sectionsById, int sectionId) throws SectionDoesNotExistException {
+		Section section = sectionsById.get(sectionId);
+		if (section == null) {
+			throw new SectionDoesNotExistException("Section with ID " + sectionId + " has enrollment results but is not in database. Please run the algorithm again.");
+		}
+		return section;
+	}
+
+	private Student findStudent(Map<Integer, Student> studentsById, int studentId) throws StudentDoesNotExistException {
+		Student student = studentsById.get(studentId);
+		if (student == null) {
+			throw new StudentDoesNotExistException("Student with ID " + studentId + " has enrollment results but is not in database. Please run the algorithm again.");
+		}
+		return student;
+	}
+
+	/**
+	 * Save the edited capacities and preferences in db.
+	 * @param changes the capacity and preference edits
+	 * @param system the CourseSystem the changes were applied to
+	 * @throws SectionDoesNotExistException thrown if a changed capacity names a section that is not in db
+	 * @throws DuplicationException thrown if a student's new preferences could not be saved
+	 */
+	protected void saveChanges(ChangeSet changes, CourseSystem system) throws SectionDoesNotExistException, DuplicationException {
+		for (Map.Entry<Integer, Integer> capacity : changes.getCapacities().entrySet()) {
+			sectionService.updateCapacity(capacity.getKey(), capacity.getValue());
+		}
+
+		for (Student student : system.getAllStudents()) {
+			if (changes.getStudentsWithNewPreferences().contains(student.getId())
+					|| changes.getStudentsWithDrops().contains(student.getId())) {
+				preferenceService.replacePreferences(student);
+			}
+		}
+	}
+}
@@ -11,7 +11,9 @@ import besucha.backend.service.accessdao.WaitlistService;
 import besucha.backend.service.parseexcel.EnrolledDataSaver;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Send emails to students.
@@ -33,17 +35,19 @@ public class EmailSender {
 		try {
 			Emailer mailer = new Emailer(new TrinityAuthenticator(username, password));
 			String message = "";
+			Map<Integer, List<SectionDao>> enrolled = enrolledService.getEnrolledSectionsByStudent();
+			Map<Integer, List<SectionDao>> waitlisted = waitlistService.getWaitlistedSectionsByStudent();
 			for(StudentDao studentDao : studentRepo.findAll()) {
 				message = "Dear " + studentDao.getName();
 				message += "\n\nBelow are your enrolled and waitlisted courses that were determined by BESUCHA.";
 				message += "\n\nEnrolled:\n";
-				List<SectionDao> sections = enrolledService.getEnrolledSections(studentDao.getStudentId());
+				List<SectionDao> sections = enrolled.getOrDefault(studentDao.getStudentId(), Collections.emptyList());
 				for (SectionDao sectionDao : sections) {
 					message += sectionDao.getSectionId()+": " + sectionDao.getTitle() + "\n\n";
 
 				}
 				message += "\n\nWaitlisted:\n\n";
-				List<SectionDao> wsections = waitlistService.getWaitlistedSectionsByStudent(studentDao.getStudentId());
+				List<SectionDao> wsections = waitlisted.getOrDefault(studentDao.getStudentId(), Collections.emptyList());
 				for (SectionDao sectionDao : wsections) {
 					message += sectionDao.getSectionId()+": " + sectionDao.getTitle() + "\n\n";
 
@@ -1,16 +1,11 @@
 package besucha.backend.service;
 
-import besucha.backend.dao.PreferenceDao;
 import besucha.backend.dao.SectionDao;
-import besucha.backend.dao.StudentDao;
-import besucha.backend.repo.SectionRepo;
-import besucha.backend.repo.StudentRepo;
 import besucha.backend.service.accessdao.EnrolledService;
 import besucha.backend.service.accessdao.PreferenceService;
 import besucha.backend.service.accessdao.WaitlistService;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,8 +15,6 @@ import java.util.Map;
 @Service
 public class GenerateStatistics {
 
-	private SectionRepo sectionRepo;
-	private StudentRepo studentRepo;
 	private WaitlistService waitlistService;
 	private EnrolledService enrolledService;
 	private PreferenceService preferenceService;
@@ -36,9 +29,7 @@ public class GenerateStatistics {
 	 */
 	public final int LARGE_WAITLIST_SIZE = 5;
 
-	public GenerateStatistics(SectionRepo sectionRepo, StudentRepo studentRepo, WaitlistService waitlistService, EnrolledService enrolledService, PreferenceService preferenceService) {
-		this.sectionRepo = sectionRepo;
-		this.studentRepo = studentRepo;
+	public GenerateStatistics(WaitlistService waitlistService, EnrolledService enrolledService, PreferenceService preferenceService) {
 		this.waitlistService = waitlistService;
 		this.enrolledService = enrolledService;
 		this.preferenceService = preferenceService;
@@ -46,6 +37,7 @@ public class GenerateStatistics {
 
 	/**
 	 * This method prints statistics related to course system by querying the db.
+	 * Each statistic is counted by the db in a single query.
 	 * @return a String containing messages to be printed to screen
 	 */
 	public String printStatistics() {
@@ -57,10 +49,10 @@ public class GenerateStatistics {
 
 		result += "Most requested classes are:\n";
 
-		List<PreferenceDao> mostRequested = preferenceService.mostRequestedPreferences(3);
+		List<SectionDao> mostRequested = preferenceService.mostRequestedSections(3);
 
-		for (PreferenceDao preferenceDao : mostRequested) {
-			result += preferenceDao.getSection().getTitle() + "\n";
+		for (SectionDao sectionDao : mostRequested) {
+			result += sectionDao.getTitle() + "\n";
 		}
 
 		Map<SectionDao, Integer> map = findLongestWaitlists();
@@ -83,17 +75,7 @@ public class GenerateStatistics {
 	 * @return int representing number of students who are under-enrolled.
 	 */
 	public int countUnderEnrolledStudents() {
-		int underEnrolledStudents = 0;
-
-		for (StudentDao student : studentRepo.findAll()){
-			double totalEnrolledCredits = 0;
-			for (SectionDao section : enrolledService.getEnrolledSections(student))
-				totalEnrolledCredits += section.getCreditWeight();
-
-			if (totalEnrolledCredits < MIN_CREDITS) { underEnrolledStudents++; }
-		}
-
-		return underEnrolledStudents;
+		return (int) enrolledService.countStudentsWithCreditsBelow(MIN_CREDITS);
 	}
 
 	/**
@@ -101,14 +83,7 @@ public class GenerateStatistics {
 	 * @return int representing num sections with long waitlists
 	 */
 	public int countSectionsWithLongWaitlist() {
-		int count = 0;
-		for (SectionDao sectionDao : sectionRepo.findAll()) {
-			List<StudentDao> waitlist = waitlistService.getWaitlistedStudentsBySection(sectionDao);
-			if (waitlist.size() >= LARGE_WAITLIST_SIZE) {
-				count++;
-			}
-		}
-		return count;
+		return (int) waitlistService.countSectionsWithWaitlistOfAtLeast(LARGE_WAITLIST_SIZE);
 	}
 
 	/**
@@ -116,16 +91,7 @@ public class GenerateStatistics {
 	 * @return a Map of SectionDao and Integer corresponding to sections with a waitlist of more than LARGE_WAITLIST_SIZE students
 	 */
 	public Map<SectionDao, Integer> findLongestWaitlists() {
-		Map<SectionDao, Integer> map = waitlistService.buildWaitlistMap();
-		Map<SectionDao, Integer> sectionsWithLongWaitlistMap = new HashMap<>();
-
-		for (Map.Entry<SectionDao, Integer> entry : map.entrySet()) {
-			if (entry.getValue() >= LARGE_WAITLIST_SIZE) {
-				sectionsWithLongWaitlistMap.put(entry.getKey(), entry.getValue());
-			}
-		}
-
-		return sectionsWithLongWaitlistMap;
+		return waitlistService.buildLongWaitlistMap(LARGE_WAITLIST_SIZE);
 	}
 
 
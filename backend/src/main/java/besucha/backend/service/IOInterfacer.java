@@ -1,21 +1,37 @@
 package besucha.backend.service;
 
 
+import besucha.backend.exception.DuplicationException;
 import besucha.backend.exception.PreferenceDoesNotExistException;
 import besucha.backend.exception.SectionDoesNotExistException;
 import besucha.backend.exception.StudentDoesNotExistException;
 import besucha.backend.gui.GuiManager;
 import besucha.backend.model.algorithm.Algorithm;
+import besucha.backend.model.algorithm.AlgorithmCheckpoint;
+import besucha.backend.model.algorithm.AlgorithmType;
 import besucha.backend.model.algorithm.BalancedConflictAlgorithm;
+import besucha.backend.model.algorithm.CapacityChange;
+import besucha.backend.model.algorithm.CapacityPlanner;
+import besucha.backend.model.algorithm.ChangeSet;
+import besucha.backend.model.algorithm.CheckpointWriter;
 import besucha.backend.model.algorithm.CourseSystem;
+import besucha.backend.model.algorithm.EnrollmentDelta;
+import besucha.backend.model.algorithm.FairnessReport;
+import besucha.backend.model.algorithm.FairnessSimulation;
+import besucha.backend.model.algorithm.TradeCycleImprover;
 import besucha.backend.service.parseexcel.EnrolledDataSaver;
 import besucha.backend.service.parseexcel.ExcelValidator;
 import besucha.backend.service.parseexcel.RawDataSaver;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
 
 @Service
 public class IOInterfacer {
@@ -28,8 +44,15 @@ public class IOInterfacer {
 	private static GuiManager guiManager;
 	private static EnrolledDataSaver enrolledDataSaver;
 	private static EmailSender emailSender;
+	private static AlgorithmType algorithmType;
+	private static CourseSystemUpdater courseSystemUpdater;
+	private static boolean improveByTrades;
+	private static String checkpointFile;
 
-	public IOInterfacer(CourseSystemCreator courseSystemCreator, CourseSystemSaver courseSystemSaver, GenerateStatistics generateStatistics, RawDataSaver rawDataSaver, GuiManager guiManager, EnrolledDataSaver enrolledDataSaver, EmailSender emailSender) {
+	public IOInterfacer(CourseSystemCreator courseSystemCreator, CourseSystemSaver courseSystemSaver, GenerateStatistics generateStatistics, RawDataSaver rawDataSaver, GuiManager guiManager, EnrolledDataSaver enrolledDataSaver, EmailSender emailSender,
+						CourseSystemUpdater courseSystemUpdater, @Value("${besucha.algorithm:balanced}") String algorithmName,
+						@Value("${besucha.algorithm.trade-cycles:false}") boolean improveByTrades,
+						@Value("${besucha.algorithm.checkpoint:}") String checkpointFile) {
 		this.courseSystemCreator = courseSystemCreator;
 		this.courseSystemSaver = courseSystemSaver;
 		this.generateStatistics = generateStatistics;
@@ -37,6 +60,14 @@ public class IOInterfacer {
 		this.guiManager = guiManager;
 		this.enrolledDataSaver = enrolledDataSaver;
 		this.emailSender = emailSender;
+		this.algorithmType = AlgorithmType.fromName(algorithmName);
+		// Only the balanced algorithm writes checkpoints, so any other would silently run without them
+		if (!checkpointFile.isEmpty() && algorithmType != AlgorithmType.BALANCED)
+			throw new IllegalArgumentException("besucha.algorithm.checkpoint is only supported with besucha.algorithm=balanced, not "
+					+ algorithmName);
+		this.courseSystemUpdater = courseSystemUpdater;
+		this.improveByTrades = improveByTrades;
+		this.checkpointFile = checkpointFile;
 	}
 
 
@@ -69,13 +100,193 @@ public class IOInterfacer {
 			StudentDoesNotExistException,
 			InvalidFormatException {
 		CourseSystem system = courseSystemCreator.createCourseSystem();
-		Algorithm algorithm = new BalancedConflictAlgorithm(system);
-		algorithm.runAlgorithm();
-		courseSystemSaver.saveEnrollmentResults(system);
+		long seed = new Random().nextLong();
+		Algorithm algorithm = algorithmType.create(system, seed);
+		CheckpointWriter checkpointWriter = null;
+		if (!checkpointFile.isEmpty()) {
+			checkpointWriter = new CheckpointWriter(Paths.get(checkpointFile));
+			((BalancedConflictAlgorithm) algorithm).setCheckpointWriter(checkpointWriter);
+		}
+		String warning;
+		try {
+			algorithm.runAlgorithm();
+		} finally {
+			warning = closeCheckpointWriter(checkpointWriter);
+		}
+		return warning + finishRun(system, seed, algorithmType);
+	}
+
+	/**
+	 * Carries on the run whose checkpoint was left in the checkpoint file, such as by a run that
+	 * crashed or whose window was closed, and saves its results like a finished run.
+	 * The imported students, sections and preferences must not have changed since, nor been
+	 * imported in another order; the checkpoint is rejected with an IllegalArgumentException if so.
+	 * @return statistics about the run, led by its lottery seed and any checkpoint that could not be written
+	 */
+	public String resumeAlgorithm() throws
+			IOException,
+			SectionDoesNotExistException,
+			PreferenceDoesNotExistException,
+			StudentDoesNotExistException,
+			InvalidFormatException {
+		if (checkpointFile.isEmpty())
+			throw new IOException("No checkpoint file is configured");
+		AlgorithmCheckpoint checkpoint = AlgorithmCheckpoint.read(Paths.get(checkpointFile));
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		BalancedConflictAlgorithm algorithm = new BalancedConflictAlgorithm(system, checkpoint.getSeed());
+		CheckpointWriter checkpointWriter = new CheckpointWriter(Paths.get(checkpointFile));
+		algorithm.setCheckpointWriter(checkpointWriter);
+		String warning;
+		try {
+			algorithm.resume(checkpoint);
+		} finally {
+			warning = closeCheckpointWriter(checkpointWriter);
+		}
+		return warning + finishRun(system, checkpoint.getSeed(), AlgorithmType.BALANCED);
+	}
+
+	/**
+	 * Waits for a run's last checkpoint and stops its writer. A checkpoint that could not be
+	 * written only matters to a run that does not finish, so it is reported rather than thrown.
+	 * @param checkpointWriter the writer, or null if the run writes no checkpoints
+	 * @return a warning line if a checkpoint could not be written, otherwise an empty string
+	 */
+	private static String closeCheckpointWriter(CheckpointWriter checkpointWriter) {
+		if (checkpointWriter == null) return "";
+		try {
+			checkpointWriter.close();
+			return "";
+		} catch (IOException e) {
+			return "Warning: a checkpoint could not be written to " + checkpointWriter.getFile() + ": " + e.getMessage() + "\n";
+		}
+	}
+
+	/**
+	 * Improves a finished run by trades if asked to, saves it with its seed, and drops its checkpoint.
+	 */
+	private String finishRun(CourseSystem system, long seed, AlgorithmType type) throws IOException, InvalidFormatException {
+		String trades = "";
+		if (improveByTrades) {
+			TradeCycleImprover improver = new TradeCycleImprover(system);
+			improver.improve();
+			trades = improver + "\n";
+		}
+		courseSystemSaver.saveEnrollmentResults(system, seed, type);
+		if (!checkpointFile.isEmpty())
+			Files.deleteIfExists(Paths.get(checkpointFile));
+
+		File enrollmentResults = enrolledDataSaver.createExcel();
+		guiManager.setResultFile(enrollmentResults);
+		// The seed is needed to reproduce this run's lottery
+		return "Lottery seed: " + seed + "\n" + trades + generateStatistics.printStatistics();
+	}
+
+	/**
+	 * Applies edits to the last run, placing again only the students they edit and filling the
+	 * seats they free from waitlists; everyone else keeps their seats.
+	 * @param changes capacity and preference edits made since the last run
+	 * @return statistics about the run, led by how much changed
+	 */
+	public String runIncrementalAlgorithm(ChangeSet changes) throws
+			IOException,
+			SectionDoesNotExistException,
+			PreferenceDoesNotExistException,
+			StudentDoesNotExistException,
+			DuplicationException,
+			InvalidFormatException {
+		EnrollmentDelta delta = courseSystemUpdater.updateEnrollment(changes);
 
 		File enrollmentResults = enrolledDataSaver.createExcel();
 		guiManager.setResultFile(enrollmentResults);
-		return generateStatistics.printStatistics();
+		return delta + "\n" + generateStatistics.printStatistics();
+	}
+
+	/**
+	 * Applies drops and capacity changes to the last run, promoting waitlisted students into the
+	 * seats they free without enrolling anyone else again.
+	 * @param changes drops and capacity edits made since the last run
+	 * @return statistics about the run, led by how many rows the promotions changed
+	 */
+	public String promoteWaitlists(ChangeSet changes) throws
+			IOException,
+			SectionDoesNotExistException,
+			PreferenceDoesNotExistException,
+			StudentDoesNotExistException,
+			DuplicationException,
+			InvalidFormatException {
+		EnrollmentDelta delta = courseSystemUpdater.promoteWaitlists(changes);
+
+		File enrollmentResults = enrolledDataSaver.createExcel();
+		guiManager.setResultFile(enrollmentResults);
+		return delta + "\n" + generateStatistics.printStatistics();
+	}
+
+	/**
+	 * Trades seats in the last run wherever a cycle of trades makes every student in it better
+	 * off, such as after live add/drop handed seats out first come, first served.
+	 * @return statistics about the run, led by how many students the trades improved
+	 */
+	public String improveByTrades() throws
+			IOException,
+			SectionDoesNotExistException,
+			PreferenceDoesNotExistException,
+			StudentDoesNotExistException,
+			InvalidFormatException {
+		TradeCycleImprover improver = courseSystemUpdater.improveByTrades();
+
+		File enrollmentResults = enrolledDataSaver.createExcel();
+		guiManager.setResultFile(enrollmentResults);
+		return improver + "\n" + generateStatistics.printStatistics();
+	}
+
+	/**
+	 * Works out what each scenario would change in the last run, saving nothing.
+	 * @param scenarios capacity and preference edits to try, each on its own
+	 * @return what each scenario would change
+	 */
+	public String evaluateScenarios(List<ChangeSet> scenarios) throws
+			SectionDoesNotExistException,
+			PreferenceDoesNotExistException,
+			StudentDoesNotExistException {
+		List<EnrollmentDelta> deltas = courseSystemUpdater.evaluateScenarios(scenarios);
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < deltas.size(); i++)
+			result.append("Scenario ").append(i + 1).append(": ").append(deltas.get(i)).append("\n");
+		return result.toString();
+	}
+
+	/**
+	 * Plans where a budget of extra seats would do the most good in the last run, saving nothing.
+	 * @param budget the number of extra seats to hand out
+	 * @param step the most seats to add to a section at a time
+	 * @param objective what the extra seats should improve
+	 * @return the capacity changes in the order they were chosen
+	 */
+	public String planCapacity(int budget, int step, CapacityPlanner.Objective objective) throws
+			SectionDoesNotExistException,
+			PreferenceDoesNotExistException,
+			StudentDoesNotExistException {
+		List<CapacityChange> changes = courseSystemUpdater.planCapacity(budget, step, objective);
+		StringBuilder result = new StringBuilder();
+		for (CapacityChange change : changes)
+			result.append(change).append("\n");
+		return result.toString();
+	}
+
+	/**
+	 * Runs the algorithm many times over the imported students and sections, saving nothing,
+	 * to show how fair its lottery is from one run to the next.
+	 * @param numRuns the number of runs
+	 * @return the outcomes by seniority and waitlist length, led by the seed the runs were drawn from
+	 */
+	public String simulateFairness(int numRuns) throws
+			SectionDoesNotExistException,
+			PreferenceDoesNotExistException,
+			StudentDoesNotExistException {
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		long seed = new Random().nextLong();
+		FairnessReport report = new FairnessSimulation(system, algorithmType).run(numRuns, seed);
+		return "Simulation seed: " + seed + "\n" + report;
 	}
 
 	public String sendEmails(String username, String password)  {
@@ -0,0 +1,156 @@
+package besucha.backend.service;
+
+import besucha.backend.exception.PreferenceDoesNotExistException;
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
+import besucha.backend.model.algorithm.CourseSystem;
+import besucha.backend.model.algorithm.EnrollmentDelta;
+import besucha.backend.model.algorithm.LiveEnrollment;
+import besucha.backend.model.algorithm.Section;
+import besucha.backend.model.algorithm.Student;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Takes enroll, drop and swap requests during the add/drop period, from any number of threads
+ * at once, against the last enrollment run. Requests are applied in memory straight away and
+ * saved to db in batches by flush.
+ */
+@Service
+public class LiveEnrollmentService {
+
+	private final CourseSystemCreator courseSystemCreator;
+	private final CourseSystemUpdater courseSystemUpdater;
+	private final CourseSystemSaver courseSystemSaver;
+
+	private volatile Session session;
+
+	public LiveEnrollmentService(CourseSystemCreator courseSystemCreator, CourseSystemUpdater courseSystemUpdater,
+								 CourseSystemSaver courseSystemSaver) {
+		this.courseSystemCreator = courseSystemCreator;
+		this.courseSystemUpdater = courseSystemUpdater;
+		this.courseSystemSaver = courseSystemSaver;
+	}
+
+	/**
+	 * Load the last run from db and start taking requests.
+	 * @throws SectionDoesNotExistException thrown if no sections are in db
+	 * @throws StudentDoesNotExistException thrown if no students are in db
+	 * @throws PreferenceDoesNotExistException thrown if no preferences are in db
+	 */
+	public synchronized void open() throws
+			SectionDoesNotExistException,
+			StudentDoesNotExistException,
+			PreferenceDoesNotExistException {
+		CourseSystem system = courseSystemCreator.createCourseSystem();
+		courseSystemUpdater.restoreEnrollmentResults(system);
+		session = new Session(system);
+	}
+
+	/**
+	 * Enroll a student in a section if it has an open seat and the student is under max credits.
+	 * @param studentId id of the student
+	 * @param sectionId id of the section
+	 * @return true if the student was enrolled
+	 * @throws StudentDoesNotExistException thrown if the student is not in db
+	 * @throws SectionDoesNotExistException thrown if the section is not in db
+	 */
+	public boolean enroll(int studentId, int sectionId) throws StudentDoesNotExistException, SectionDoesNotExistException {
+		Session session = getSession();
+		return session.live.enroll(session.getStudent(studentId), session.getSection(sectionId));
+	}
+
+	/**
+	 * Drop a student from a section.
+	 * @param studentId id of the student
+	 * @param sectionId id of the section
+	 * @return true if the student was enrolled in the section
+	 * @throws StudentDoesNotExistException thrown if the student is not in db
+	 * @throws SectionDoesNotExistException thrown if the section is not in db
+	 */
+	public boolean drop(int studentId, int sectionId) throws StudentDoesNotExistException, SectionDoesNotExistException {
+		Session session = getSession();
+		return session.live.drop(session.getStudent(studentId), session.getSection(sectionId));
+	}
+
+	/**
+	 * Move a student from one section to another, keeping the old seat if the new one cannot be had.
+	 * @param studentId id of the student
+	 * @param fromSectionId id of the section the student is enrolled in
+	 * @param toSectionId id of the section the student wants instead
+	 * @return true if the student was moved
+	 * @throws StudentDoesNotExistException thrown if the student is not in db
+	 * @throws SectionDoesNotExistException thrown if either section is not in db
+	 */
+	public boolean swap(int studentId, int fromSectionId, int toSectionId) throws
+			StudentDoesNotExistException, SectionDoesNotExistException {
+		Session session = getSession();
+		return session.live.swap(session.getStudent(studentId), session.getSection(fromSectionId),
+				session.getSection(toSectionId));
+	}
+
+	/**
+	 * Save the enrolled rows changed since the last flush in db. Requests keep running meanwhile,
+	 * while flushes run one at a time so a row is never saved out of order.
+	 * @return the rows saved
+	 */
+	public synchronized EnrollmentDelta flush() {
+		EnrollmentDelta delta = getSession().live.takeChanges();
+		courseSystemSaver.saveEnrollmentDelta(delta);
+		return delta;
+	}
+
+	/**
+	 * Stop taking requests and save the last of them. Requests still running must finish first.
+	 * @return the CourseSystem as enrolled by the requests
+	 */
+	public synchronized CourseSystem close() {
+		Session session = getSession();
+		flush();
+		session.live.close();
+		this.session = null;
+		return session.system;
+	}
+
+	private Session getSession() {
+		Session session = this.session;
+		if (session == null)
+			throw new IllegalStateException("Live enrollment is not open");
+		return session;
+	}
+
+	/**
+	 * The course system being enrolled live, and its students and sections by id, which are only read once built.
+	 */
+	private static class Session {
+		private final CourseSystem system;
+		private final LiveEnrollment live;
+		private final Map<Integer, Student> studentsById = new HashMap<>();
+		private final Map<Integer, Section> sectionsById = new HashMap<>();
+
+		private Session(CourseSystem system) {
+			this.system = system;
+			this.live = new LiveEnrollment(system);
+			for (Student student : system.getAllStudents())
+				studentsById.put(student.getId(), student);
+			for (Section section : system.getAllSections())
+				sectionsById.put(section.getId(), section);
+		}
+
+		private Student getStudent(int id) throws StudentDoesNotExistException {
+			Student student = studentsById.get(id);
+			if (student == null)
+				throw new StudentDoesNotExistException("Student with ID " + id + " does not exist.");
+			return student;
+		}
+
+		private Section getSection(int id) throws SectionDoesNotExistException {
+			Section section = sectionsById.get(id);
+			if (section == null)
+				throw new SectionDoesNotExistException("Section with ID " + id + " does not exist.");
+			return section;
+		}
+	}
+}
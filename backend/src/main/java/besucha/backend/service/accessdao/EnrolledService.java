@@ -8,7 +8,9 @@ import besucha.backend.repo.EnrolledRepo;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstracts access to EnrolledDao objects in db.
@@ -61,29 +63,86 @@ public class EnrolledService implements SaveDao<EnrolledDao> {
 	}
 
 	/**
-	 * Given student's ID, find the corresponding studentDao object and get the SectionDao objects they are enrolled in.
+	 * Given IDs of student and section, delete the EnrolledDao object from db, if there is one
+	 * @param studentId the int id of the student
+	 * @param sectionId the int id of the section
+	 */
+	public void delete(int studentId, int sectionId) {
+		StudentSectionKey key = new StudentSectionKey(studentId, sectionId);
+		if (enrolledRepo.existsById(key)) {
+			enrolledRepo.deleteById(key);
+		}
+	}
+
+	/**
+	 * Get every EnrolledDao object in db.
+	 * @return all enrollments
+	 */
+	public Iterable<EnrolledDao> getAllEnrolled() {
+		return enrolledRepo.findAll();
+	}
+
+	/**
+	 * Given student's ID, get the SectionDao objects they are enrolled in.
 	 * @param studentId an int representing the student's id
-	 * @return List of SectionDao objects student is enrolled in
+	 * @return List of SectionDao objects student is enrolled in, ordered by section id
 	 */
 	public List<SectionDao> getEnrolledSections(int studentId) {
-		StudentDao studentDao = studentService.getStudentDao(studentId);
-		return getEnrolledSections(studentDao);
+		List<SectionDao> sectionDaoList = new ArrayList<>();
+
+		for (EnrolledDao enrolledDao : enrolledRepo.findByStudentId(studentId)) {
+			sectionDaoList.add(enrolledDao.getSection());
+		}
+
+		return sectionDaoList;
 	}
 
 	/**
 	 * Given a StudentDao object, find the SectionDao objects the student is enrolled in.
 	 * @param studentDao studentDao object
-	 * @return a List of SectionDao objects
+	 * @return a List of SectionDao objects, ordered by section id
 	 */
 	public List<SectionDao> getEnrolledSections(StudentDao studentDao) {
-		List<SectionDao> sectionDaoList = new ArrayList<>();
+		return getEnrolledSections(studentDao.getStudentId());
+	}
+
+	/**
+	 * Given a SectionDao object, find the StudentDao objects enrolled in it.
+	 * @param sectionDao sectionDao object
+	 * @return a List of StudentDao objects, ordered by student id
+	 */
+	public List<StudentDao> getEnrolledStudents(SectionDao sectionDao) {
+		List<StudentDao> studentDaoList = new ArrayList<>();
 
-		for (EnrolledDao enrolledDao : enrolledRepo.findAll()) {
-			if (studentDao.equals(enrolledDao.getStudent())) {
-				sectionDaoList.add(enrolledDao.getSection());
-			}
+		for (EnrolledDao enrolledDao : enrolledRepo.findBySectionId(sectionDao.getSectionId())) {
+			studentDaoList.add(enrolledDao.getStudent());
 		}
 
-		return sectionDaoList;
+		return studentDaoList;
+	}
+
+	/**
+	 * Count the students enrolled in sections worth fewer credits in total than given, including
+	 * students enrolled in nothing, in one query.
+	 * @param minCredits the credits a student needs to not be counted
+	 * @return the number of students below minCredits
+	 */
+	public long countStudentsWithCreditsBelow(double minCredits) {
+		return enrolledRepo.countStudentsWithCreditsBelow(minCredits);
+	}
+
+	/**
+	 * Get the SectionDao objects every student is enrolled in, all in one query.
+	 * Students who are not enrolled in anything have no entry.
+	 * @return a Map from student id to the List of SectionDao objects the student is enrolled in, ordered by section id
+	 */
+	public Map<Integer, List<SectionDao>> getEnrolledSectionsByStudent() {
+		Map<Integer, List<SectionDao>> map = new HashMap<>();
+
+		for (EnrolledDao enrolledDao : enrolledRepo.findAllOrderByStudentId()) {
+			map.computeIfAbsent(enrolledDao.getEnrolledId().getStudentId(), id -> new ArrayList<>()).add(enrolledDao.getSection());
+		}
+
+		return map;
 	}
 }
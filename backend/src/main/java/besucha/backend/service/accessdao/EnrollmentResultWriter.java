@@ -0,0 +1,148 @@
+package besucha.backend.service.accessdao;
+
+import besucha.backend.dao.EnrolledDao;
+import besucha.backend.dao.RunDao;
+import besucha.backend.dao.SectionDao;
+import besucha.backend.dao.StudentDao;
+import besucha.backend.dao.StudentSectionKey;
+import besucha.backend.dao.WaitlistDao;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the EnrolledDao and WaitlistDao objects of a whole run, and the RunDao recording it, to
+ * db in one transaction, or the rows a later update changed.
+ * Rows are inserted in JDBC batches rather than saved one at a time, and refer to their student
+ * and section by reference, so no student or section is read back to write them.
+ */
+@Service
+public class EnrollmentResultWriter {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final int batchSize;
+
+	/**
+	 * @param batchSize the number of rows inserted per JDBC batch; the persistence context is
+	 * flushed and cleared after each batch so it does not grow with the run
+	 */
+	public EnrollmentResultWriter(@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}") int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Replace every EnrolledDao and WaitlistDao object in db with the given rows, and record the
+	 * run they came from. Either all of them are written or, if any fails, none are and the
+	 * earlier rows stay.
+	 * @param enrolled the key of each enrollment to write
+	 * @param waitlisted the waitlist rows to write; only their key and position are used
+	 * @param run the run that produced the rows
+	 */
+	@Transactional
+	public void replaceAll(List<StudentSectionKey> enrolled, List<WaitlistDao> waitlisted, RunDao run) {
+		entityManager.createQuery("delete from WaitlistDao").executeUpdate();
+		entityManager.createQuery("delete from EnrolledDao").executeUpdate();
+		entityManager.persist(run);
+
+		int count = 0;
+		for (StudentSectionKey key : enrolled) {
+			entityManager.persist(new EnrolledDao(key, student(key), section(key)));
+			count = flushIfBatchIsFull(count + 1);
+		}
+		for (WaitlistDao row : waitlisted) {
+			StudentSectionKey key = row.getWaitlistId();
+			entityManager.persist(new WaitlistDao(key, student(key), section(key), row.getPosition()));
+			count = flushIfBatchIsFull(count + 1);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	/**
+	 * Delete the given EnrolledDao and WaitlistDao objects from db and write the new ones, leaving
+	 * every other row as it is. A waitlist row already in db is replaced, so it can move to a new
+	 * position. Either all of the changes are made or, if any fails, none are. Changes waiting in
+	 * the persistence context are flushed first, and it is cleared.
+	 * @param enrolledRemoved the key of each enrollment to delete; keys not in db are skipped
+	 * @param waitlistRemoved the key of each waitlist row to delete; keys not in db are skipped
+	 * @param enrolledAdded the key of each enrollment to write
+	 * @param waitlistSaved the waitlist rows to write; only their key and position are used
+	 */
+	@Transactional
+	public void replaceRows(List<StudentSectionKey> enrolledRemoved, List<StudentSectionKey> waitlistRemoved,
+							List<StudentSectionKey> enrolledAdded, List<WaitlistDao> waitlistSaved) {
+		entityManager.flush();
+		List<StudentSectionKey> waitlistReplaced = new ArrayList<>(waitlistRemoved);
+		for (WaitlistDao row : waitlistSaved)
+			waitlistReplaced.add(row.getWaitlistId());
+		deleteAll("EnrolledDao", "enrolledId", enrolledRemoved);
+		deleteAll("WaitlistDao", "waitlistId", waitlistReplaced);
+		// The deleted rows may still be in the persistence context, and would clash with the new ones
+		entityManager.clear();
+
+		int count = 0;
+		for (StudentSectionKey key : enrolledAdded) {
+			entityManager.persist(new EnrolledDao(key, student(key), section(key)));
+			count = flushIfBatchIsFull(count + 1);
+		}
+		for (WaitlistDao row : waitlistSaved) {
+			StudentSectionKey key = row.getWaitlistId();
+			entityManager.persist(new WaitlistDao(key, student(key), section(key), row.getPosition()));
+			count = flushIfBatchIsFull(count + 1);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	/**
+	 * Delete the rows of an entity with the given keys, a batch of keys per statement.
+	 * @param entity the name of the entity
+	 * @param idField the name of its StudentSectionKey field
+	 * @param keys the keys of the rows to delete
+	 */
+	private void deleteAll(String entity, String idField, List<StudentSectionKey> keys) {
+		for (int from = 0; from < keys.size(); from += batchSize) {
+			int to = Math.min(from + batchSize, keys.size());
+			StringBuilder where = new StringBuilder();
+			for (int i = from; i < to; i++) {
+				where.append(i == from ? "" : " or ")
+						.append("(r.").append(idField).append(".studentId = ?").append(2 * (i - from) + 1)
+						.append(" and r.").append(idField).append(".sectionId = ?").append(2 * (i - from) + 2).append(")");
+			}
+			Query delete = entityManager.createQuery("delete from " + entity + " r where " + where);
+			for (int i = from; i < to; i++) {
+				delete.setParameter(2 * (i - from) + 1, keys.get(i).getStudentId());
+				delete.setParameter(2 * (i - from) + 2, keys.get(i).getSectionId());
+			}
+			delete.executeUpdate();
+		}
+	}
+
+	private StudentDao student(StudentSectionKey key) {
+		return entityManager.getReference(StudentDao.class, key.getStudentId());
+	}
+
+	private SectionDao section(StudentSectionKey key) {
+		return entityManager.getReference(SectionDao.class, key.getSectionId());
+	}
+
+	/**
+	 * Send the rows persisted so far to db once a batch of them is waiting.
+	 * @param count the number of rows waiting
+	 * @return the number still waiting
+	 */
+	private int flushIfBatchIsFull(int count) {
+		if (count < batchSize) return count;
+		entityManager.flush();
+		entityManager.clear();
+		return 0;
+	}
+}
@@ -1,8 +1,10 @@
 package besucha.backend.service.accessdao;
 
 import besucha.backend.dao.PreferenceDao;
+import besucha.backend.dao.PreferenceRow;
 import besucha.backend.dao.SectionDao;
 import besucha.backend.dao.StudentDao;
+import besucha.backend.dao.StudentSectionKey;
 import besucha.backend.exception.DuplicationException;
 import besucha.backend.exception.SectionDoesNotExistException;
 import besucha.backend.exception.StudentDoesNotExistException;
@@ -10,13 +12,16 @@ import besucha.backend.model.algorithm.Preference;
 import besucha.backend.model.algorithm.Section;
 import besucha.backend.model.algorithm.Student;
 import besucha.backend.repo.PreferenceRepo;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Abstracts access to PreferenceDao objects in database.
@@ -81,17 +86,67 @@ public class PreferenceService implements SaveDao<PreferenceDao> {
 
 	}
 
-	public List<PreferenceDao> mostRequestedPreferences(int numPreferences) {
-		Map<PreferenceDao, Integer> requestedPreferences = new HashMap<>();
-		for (PreferenceDao preferenceDao : preferenceRepo.findAll()) {
-			if (requestedPreferences.containsKey(preferenceDao)) {
-				requestedPreferences.put(preferenceDao, requestedPreferences.get(preferenceDao) + 1);
-			} else {
-				requestedPreferences.put(preferenceDao, 1);
+	/**
+	 * Save a batch of PreferenceDao objects in db in one transaction, such as every preference in
+	 * an imported file. Students, sections and preferences already in db are each read once, and
+	 * every preference is checked against them and the ones before it in memory.
+	 * @param preferenceDaos the objects to save; only the ids of their student and section are used
+	 * @throws StudentDoesNotExistException if a preference's student is not in db
+	 * @throws SectionDoesNotExistException if a preference's section is not in db
+	 * @throws DuplicationException if a studentid/sectionid pair is in db or in the batch already
+	 * @return the saved PreferenceDao objects
+	 */
+	@Transactional
+	public Iterable<PreferenceDao> saveAll(List<PreferenceDao> preferenceDaos) throws StudentDoesNotExistException, SectionDoesNotExistException, DuplicationException {
+		Map<Integer, StudentDao> students = studentService.getStudentDaoMap();
+		Map<Integer, SectionDao> sections = sectionService.getSectionDaoMap();
+		Set<StudentSectionKey> seen = new HashSet<>(preferenceRepo.findAllKeys());
+
+		List<PreferenceDao> toSave = new ArrayList<>(preferenceDaos.size());
+		for (PreferenceDao preferenceDao : preferenceDaos) {
+			int studentId = preferenceDao.getStudent().getStudentId();
+			int sectionId = preferenceDao.getSection().getSectionId();
+			StudentDao studentDao = students.get(studentId);
+			SectionDao sectionDao = sections.get(sectionId);
+			if (studentDao == null) {
+				throw new StudentDoesNotExistException("Student with ID " + studentId + " does not exist in database. Therefore, a preference with given student ID could not be saved. Please fix error, close program, and try again.");
+			}
+			if (sectionDao == null) {
+				throw new SectionDoesNotExistException("Section with ID " + sectionId + " does not exist in the database. Therefore, a preference with given section id could not be saved. Please add section ID to course offerings or remove section ID from student preferences in Excel and try again.");
 			}
+			if (!seen.add(new StudentSectionKey(studentId, sectionId))) {
+				throw new DuplicationException("Preference with student ID " + studentId
+						+ " and section ID " + sectionId + " is a duplicate item. Please remove duplicates and try again.");
+			}
+			toSave.add(new PreferenceDao(studentDao, sectionDao, preferenceDao.isRequired(), preferenceDao.getPreferenceRank()));
 		}
 
-		return requestedPreferences.entrySet().stream().sorted(Map.Entry.<PreferenceDao, Integer>comparingByValue().reversed()).limit(numPreferences).map(Map.Entry::getKey).collect(Collectors.toList());
+		return preferenceRepo.saveAll(toSave);
+	}
+
+	/**
+	 * Replace a student's PreferenceDao objects in db with their current preferences, ranked in order.
+	 * @param student the Student whose preferences changed
+	 * @throws DuplicationException thrown if the student requests the same section twice
+	 */
+	@Transactional
+	public void replacePreferences(Student student) throws DuplicationException {
+		preferenceRepo.deleteByStudentId(student.getId());
+
+		List<Preference> preferences = student.getPreferences();
+		for (int rank = 0; rank < preferences.size(); rank++) {
+			Preference preference = preferences.get(rank);
+			save(student.getId(), preference.getSection().getId(), preference.isRequired(), rank);
+		}
+	}
+
+	/**
+	 * Find the sections the most students requested, counted in one query.
+	 * @param numSections the number of sections to find
+	 * @return a List of SectionDao objects, most requested first
+	 */
+	public List<SectionDao> mostRequestedSections(int numSections) {
+		return preferenceRepo.findMostRequestedSections(PageRequest.of(0, numSections));
 	}
 
 
@@ -118,6 +173,15 @@ public class PreferenceService implements SaveDao<PreferenceDao> {
 		return preferences;
 	}
 
+	/**
+	 * Stream every preference in db as a PreferenceRow, in one query, each student's in rank order.
+	 * Must be called in a transaction, and the stream closed once read.
+	 * @return a Stream of PreferenceRow objects, ordered by student id and then preference rank
+	 */
+	public Stream<PreferenceRow> getAllPreferenceRows() {
+		return preferenceRepo.streamAllRows();
+	}
+
 	/**
 	 * Finds the desired section. Helper method to get a student's preferences.
 	 * @param preferenceDao the PreferenceDao object that we want to complete building
@@ -216,13 +280,8 @@ public class PreferenceService implements SaveDao<PreferenceDao> {
 	 * @return true if student id and section id already exist in db
 	 */
 	public boolean doesObjectExistInDb(PreferenceDao preferenceDao) {
-		for (PreferenceDao p : preferenceRepo.findAll()) {
-			if (preferenceDao.equals(p)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return preferenceRepo.existsByStudentStudentIdAndSectionSectionId(
+				preferenceDao.getStudent().getStudentId(), preferenceDao.getSection().getSectionId());
 	}
 
 
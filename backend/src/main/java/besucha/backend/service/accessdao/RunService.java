@@ -0,0 +1,26 @@
+package besucha.backend.service.accessdao;
+
+import besucha.backend.dao.RunDao;
+import besucha.backend.repo.RunRepo;
+import org.springframework.stereotype.Service;
+
+/**
+ * Abstracts access to RunDao objects in database.
+ */
+@Service
+public class RunService {
+
+	private final RunRepo runRepo;
+
+	public RunService(RunRepo runRepo) {
+		this.runRepo = runRepo;
+	}
+
+	/**
+	 * Get the run whose results are currently saved in db.
+	 * @return the most recent RunDao object, or null if no run has been saved
+	 */
+	public RunDao getLastRun() {
+		return runRepo.findFirstByOrderByRunIdDesc();
+	}
+}
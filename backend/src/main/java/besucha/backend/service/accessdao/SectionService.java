@@ -2,12 +2,15 @@ package besucha.backend.service.accessdao;
 
 import besucha.backend.dao.SectionDao;
 import besucha.backend.exception.DuplicationException;
+import besucha.backend.exception.SectionDoesNotExistException;
 import besucha.backend.model.algorithm.Section;
 import besucha.backend.repo.SectionRepo;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstracts access to PreferenceDao objects in database.
@@ -63,6 +66,22 @@ public class SectionService implements SaveDao<SectionDao> {
 		return sectionRepo.count();
 	}
 
+	/**
+	 * Change the capacity of a SectionDao object in db.
+	 * @param sectionId the id of the section
+	 * @param capacity the new number of seats
+	 * @return the updated SectionDao object
+	 * @throws SectionDoesNotExistException thrown if no section in db has the id
+	 */
+	public SectionDao updateCapacity(int sectionId, int capacity) throws SectionDoesNotExistException {
+		SectionDao sectionDao = sectionRepo.findSectionDaoBySectionId(sectionId);
+		if (sectionDao == null) {
+			throw new SectionDoesNotExistException("Section with ID " + sectionId + " does not exist in the database, so its capacity could not be changed.");
+		}
+		sectionDao.setCapacity(capacity);
+		return sectionRepo.save(sectionDao);
+	}
+
 	/**
 	 * Get all SectionDao objects from repo, convert to Section objects, and return list.
 	 * @return a List of Section objects.
@@ -79,6 +98,20 @@ public class SectionService implements SaveDao<SectionDao> {
 		return sectionList;
 	}
 
+	/**
+	 * Get every SectionDao object in db in one query, by id.
+	 * @return a Map from section id to SectionDao object
+	 */
+	public Map<Integer, SectionDao> getSectionDaoMap() {
+		Map<Integer, SectionDao> map = new HashMap<>();
+
+		for (SectionDao sectionDao : sectionRepo.findAll()) {
+			map.put(sectionDao.getSectionId(), sectionDao);
+		}
+
+		return map;
+	}
+
 	/**
 	 * Throws exception if repo already contains given section id
 	 * @param sectionDao the SectionDao object to check the id of
@@ -9,7 +9,9 @@ import besucha.backend.repo.StudentRepo;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstracts access to StudentDao objects in database.
@@ -98,6 +100,20 @@ public class StudentService implements SaveDao<StudentDao> {
 	}
 
 
+	/**
+	 * Get every StudentDao object in db in one query, by id.
+	 * @return a Map from student id to StudentDao object
+	 */
+	public Map<Integer, StudentDao> getStudentDaoMap() {
+		Map<Integer, StudentDao> map = new HashMap<>();
+
+		for (StudentDao studentDao : studentRepo.findAll()) {
+			map.put(studentDao.getStudentId(), studentDao);
+		}
+
+		return map;
+	}
+
 	/**
 	 * Check if a StudentDao object already exists in db with same id
 	 * @param studentDao the StudentDao object
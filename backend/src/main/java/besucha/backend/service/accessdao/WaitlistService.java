@@ -2,12 +2,14 @@ package besucha.backend.service.accessdao;
 
 import besucha.backend.dao.SectionDao;
 import besucha.backend.dao.StudentDao;
+import besucha.backend.dao.StudentSectionKey;
 import besucha.backend.dao.WaitlistDao;
 import besucha.backend.repo.WaitlistRepo;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +51,30 @@ public class WaitlistService implements SaveDao<WaitlistDao> {
 
 
 
+	/**
+	 * Count the sections with a waitlist of at least the given size, in one query.
+	 * @param minSize the number of students on a waitlist to count its section at
+	 * @return the number of sections
+	 */
+	public long countSectionsWithWaitlistOfAtLeast(int minSize) {
+		return waitlistRepo.countSectionsWithWaitlistOfAtLeast(minSize);
+	}
+
+	/**
+	 * Build a Map of the sections with a waitlist of at least the given size, in one query.
+	 * @param minSize the number of students on a waitlist to include its section at
+	 * @return a Map with keys of SectionDao objects and values of the number of students on the waitlist, longest first
+	 */
+	public Map<SectionDao, Integer> buildLongWaitlistMap(int minSize) {
+		Map<SectionDao, Integer> map = new LinkedHashMap<>();
+
+		for (Object[] row : waitlistRepo.findSectionsWithWaitlistOfAtLeast(minSize)) {
+			map.put((SectionDao) row[0], ((Number) row[1]).intValue());
+		}
+
+		return map;
+	}
+
 	/**
 	 * Given ids as params, create and save WaitlistDao object
 	 * @param studentId the id of the student as int
@@ -82,6 +108,45 @@ public class WaitlistService implements SaveDao<WaitlistDao> {
 		return waitlistRepo.save(waitlistDao);
 	}
 
+	/**
+	 * Given ids of student and section, delete the WaitlistDao object from db, if there is one
+	 * @param studentId the id of the student as int
+	 * @param sectionId the id of the section as int
+	 */
+	public void delete(int studentId, int sectionId) {
+		StudentSectionKey key = new StudentSectionKey(studentId, sectionId);
+		if (waitlistRepo.existsById(key)) {
+			waitlistRepo.deleteById(key);
+		}
+	}
+
+	/**
+	 * Save a batch of WaitlistDao objects to db, such as the rows moved by promotions.
+	 * @param waitlistDaos the objects to save
+	 * @return the saved objects
+	 */
+	public Iterable<WaitlistDao> saveAll(List<WaitlistDao> waitlistDaos) {
+		return waitlistRepo.saveAll(waitlistDaos);
+	}
+
+	/**
+	 * Delete a batch of WaitlistDao objects from db, skipping any that are not there.
+	 * @param keys the StudentSectionKey of each object to delete
+	 */
+	public void deleteAll(List<StudentSectionKey> keys) {
+		if (!keys.isEmpty()) {
+			waitlistRepo.deleteAll(waitlistRepo.findAllById(keys));
+		}
+	}
+
+	/**
+	 * Get every WaitlistDao object in db.
+	 * @return all waitlist rows
+	 */
+	public Iterable<WaitlistDao> getAllWaitlisted() {
+		return waitlistRepo.findAll();
+	}
+
 	/**
 	 * Count the number of WaitlistDao objects in database.
 	 * @return long representing the count
@@ -91,48 +156,57 @@ public class WaitlistService implements SaveDao<WaitlistDao> {
 	}
 
 	/**
-	 * Given a SectionDao object, get all sections they are waitlisted in.
-	 * @param sectionDao the StudentDao object
-	 * @return a List of SectionDao objects
+	 * Given a SectionDao object, get all students waitlisted in it.
+	 * @param sectionDao the SectionDao object
+	 * @return a List of StudentDao objects, in waitlist order
 	 */
 	public List<StudentDao> getWaitlistedStudentsBySection(SectionDao sectionDao) {
 		List<StudentDao> waitlistedStudents = new ArrayList<>();
 
-		for (WaitlistDao waitlistDao : waitlistRepo.findAll()) {
-			if (sectionDao.equals(waitlistDao.getSection())) {
-				waitlistedStudents.add(waitlistDao.getStudent());
-			}
+		for (WaitlistDao waitlistDao : waitlistRepo.findBySectionId(sectionDao.getSectionId())) {
+			waitlistedStudents.add(waitlistDao.getStudent());
 		}
 
 		return waitlistedStudents;
 	}
 
 	/**
-	 * Given student Id, find the corresponding StudentDao object and the SectionDao objects student is waitlisted in
+	 * Given student Id, get the SectionDao objects student is waitlisted in
 	 * @param studentId int studentId
-	 * @return List of SectionDao objects student is waitlisted in
+	 * @return List of SectionDao objects student is waitlisted in, ordered by section id
 	 */
 	public List<SectionDao> getWaitlistedSectionsByStudent(int studentId) {
-		StudentDao studentDao = studentService.getStudentDao(studentId);
-		return getWaitlistedSectionsByStudent(studentDao);
+		List<SectionDao> sectionsStudentIsWaitlistedIn = new ArrayList<>();
+
+		for (WaitlistDao waitlistDao : waitlistRepo.findByStudentId(studentId)) {
+			sectionsStudentIsWaitlistedIn.add(waitlistDao.getSection());
+		}
+
+		return sectionsStudentIsWaitlistedIn;
 	}
 
 	/**
 	 * Given StudentDao object, get SectionDao objects student is waitlisted in
 	 * @param studentDao the StudentDao object
-	 * @return a List of SectionDao objects
+	 * @return a List of SectionDao objects, ordered by section id
 	 */
 	public List<SectionDao> getWaitlistedSectionsByStudent(StudentDao studentDao) {
-		List<SectionDao> sectionsStudentIsWaitlistedIn = new ArrayList<>();
+		return getWaitlistedSectionsByStudent(studentDao.getStudentId());
+	}
 
-		for (WaitlistDao waitlistDao : waitlistRepo.findAll()) {
-			if (studentDao.equals(waitlistDao.getStudent())) {
-				sectionsStudentIsWaitlistedIn.add(waitlistDao.getSection());
-			}
+	/**
+	 * Get the SectionDao objects every student is waitlisted in, all in one query.
+	 * Students who are not waitlisted anywhere have no entry.
+	 * @return a Map from student id to the List of SectionDao objects the student is waitlisted in, ordered by section id
+	 */
+	public Map<Integer, List<SectionDao>> getWaitlistedSectionsByStudent() {
+		Map<Integer, List<SectionDao>> map = new HashMap<>();
+
+		for (WaitlistDao waitlistDao : waitlistRepo.findAllOrderByStudentId()) {
+			map.computeIfAbsent(waitlistDao.getWaitlistId().getStudentId(), id -> new ArrayList<>()).add(waitlistDao.getSection());
 		}
 
-		return sectionsStudentIsWaitlistedIn;
+		return map;
 	}
 
-
 }
@@ -9,7 +9,9 @@ import org.apache.poi.ss.usermodel.CellType;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Retrieves enrollment data and creates ExcelFile.
@@ -42,11 +44,12 @@ public class EnrolledDataSaver {
 		ef.setCell(1, 3, CellType.STRING, "SECTIONS");
 
 
+		Map<Integer, List<SectionDao>> enrolled = enrolledService.getEnrolledSectionsByStudent();
 		for(StudentDao studentDao : studentRepo.findAll()) {
 			ef.setCell(i, 0, CellType.NUMERIC, studentDao.getStudentId());
 			ef.setCell(i, 1, CellType.STRING, studentDao.getName());
 			ef.setCell(i, 2, CellType.STRING, studentDao.getEmail());
-			List<SectionDao> sections = enrolledService.getEnrolledSections(studentDao.getStudentId());
+			List<SectionDao> sections = enrolled.getOrDefault(studentDao.getStudentId(), Collections.emptyList());
 			int j = 3;
 			for (SectionDao sectionDao : sections) {
 				ef.setCell(i, j, CellType.NUMERIC, sectionDao.getSectionId());
@@ -1,5 +1,8 @@
 package besucha.backend.service.parseexcel;
 
+import besucha.backend.dao.PreferenceDao;
+import besucha.backend.dao.SectionDao;
+import besucha.backend.dao.StudentDao;
 import besucha.backend.exception.*;
 import besucha.backend.model.excel.ExcelFile;
 import besucha.backend.model.excel.ExcelOpener;
@@ -8,6 +11,9 @@ import besucha.backend.service.accessdao.SectionService;
 import besucha.backend.service.accessdao.StudentService;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This class saves the data received from excel into the db.
  */
@@ -119,11 +125,12 @@ public class RawDataSaver {
 	}
 
 	/**
-	 * Save preference data from excel workbook in db
-	 * @throws DuplicationException thrown if preference already exists in db
+	 * Save preference data from excel workbook in db, all in one batch once every row has been read
+	 * @throws DuplicationException thrown if preference already exists in db or appears twice in the file
 	 */
 	private void savePreferenceData() throws DuplicationException, StudentDoesNotExistException, SectionDoesNotExistException {
 		int row = 1;
+		List<PreferenceDao> preferences = new ArrayList<>();
 
 		while(studentFile.getCell(row, 0) != null) {
 			for(int j = 0; j < numPreferences; j++) {
@@ -133,11 +140,12 @@ public class RawDataSaver {
 				boolean isRequired = studentFile.getCell(row, unSureCheck).getStringCellValue().equals("Yes");
 				int preferenceRank = j;
 
-				preferenceService.isValidAndThrowsExceptionIfInvalid(studentId, sectionId);
-				preferenceService.save(studentId, sectionId, isRequired, preferenceRank);
+				preferences.add(new PreferenceDao(new StudentDao(studentId), new SectionDao(sectionId), isRequired, preferenceRank));
 
 			}
 			row++;
 		}
+
+		preferenceService.saveAll(preferences);
 	}
 }
@@ -0,0 +1,141 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class AlgorithmCheckpointTest {
+
+	@Test
+	public void resume_fromEveryLevel_endsAsTheUninterruptedRun() throws Exception {
+		Path file = Files.createTempFile("checkpoint", ".bin");
+		CourseSystem system = createCourseSystem(40, 8);
+		List<byte[]> checkpoints = new ArrayList<>();
+		BalancedConflictAlgorithm algorithm = new BalancedConflictAlgorithm(system, 21L);
+		algorithm.setCheckpointWriter(new CheckpointWriter(file) {
+			@Override
+			public void write(AlgorithmCheckpoint checkpoint) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try {
+					checkpoint.write(bytes);
+				} catch (IOException e) {
+					throw new AssertionError(e);
+				}
+				checkpoints.add(bytes.toByteArray());
+			}
+		});
+		algorithm.runAlgorithm();
+		List<String> expected = outcome(system);
+
+		assertThat(checkpoints).hasSizeGreaterThan(1);
+		for (byte[] bytes : checkpoints) {
+			AlgorithmCheckpoint checkpoint = AlgorithmCheckpoint.read(new ByteArrayInputStream(bytes));
+			CourseSystem resumed = createCourseSystem(40, 8);
+			new BalancedConflictAlgorithm(resumed, checkpoint.getSeed()).resume(checkpoint);
+			assertThat(outcome(resumed)).isEqualTo(expected);
+		}
+		Files.delete(file);
+	}
+
+	@Test
+	public void checkpointWriter_leavesLastLevelInFile() throws Exception {
+		Path file = Files.createTempFile("checkpoint", ".bin");
+		CourseSystem system = createCourseSystem(40, 8);
+		BalancedConflictAlgorithm algorithm = new BalancedConflictAlgorithm(system, 3L);
+		CheckpointWriter writer = new CheckpointWriter(file);
+		algorithm.setCheckpointWriter(writer);
+		algorithm.runAlgorithm();
+		writer.close();
+
+		AlgorithmCheckpoint checkpoint = AlgorithmCheckpoint.read(file);
+		assertThat(writer.getNumWritten()).isPositive();
+		assertThat(checkpoint.getSeed()).isEqualTo(3L);
+		assertThat(checkpoint.getLevelsDone()).isEqualTo(algorithm.getSectionEvaluationCounts().size());
+		assertThat(Files.exists(file.resolveSibling(file.getFileName() + ".tmp"))).isFalse();
+		Files.delete(file);
+	}
+
+	@Test
+	public void resume_rejectsOtherSeedsAndCourseSystems() throws Exception {
+		Path file = Files.createTempFile("checkpoint", ".bin");
+		CourseSystem system = createCourseSystem(40, 8);
+		List<AlgorithmCheckpoint> checkpoints = new ArrayList<>();
+		BalancedConflictAlgorithm algorithm = new BalancedConflictAlgorithm(system, 5L);
+		algorithm.setCheckpointWriter(new CheckpointWriter(file) {
+			@Override
+			public void write(AlgorithmCheckpoint checkpoint) {
+				checkpoints.add(checkpoint);
+			}
+		});
+		algorithm.runAlgorithm();
+		AlgorithmCheckpoint checkpoint = checkpoints.get(0);
+
+		assertThatThrownBy(() -> new BalancedConflictAlgorithm(createCourseSystem(40, 8), 6L).resume(checkpoint))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new BalancedConflictAlgorithm(createCourseSystem(41, 8), 5L).resume(checkpoint))
+				.isInstanceOf(IllegalArgumentException.class);
+		// The same rows imported in another order have the same shape, but not the same indices
+		assertThatThrownBy(() -> new BalancedConflictAlgorithm(createCourseSystem(40, 8, true), 5L).resume(checkpoint))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> AlgorithmCheckpoint.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 })))
+				.isInstanceOf(IOException.class);
+		Files.delete(file);
+	}
+
+	private List<String> outcome(CourseSystem system) {
+		List<String> rows = new ArrayList<>();
+		for (Section section : system.getAllSections()) {
+			for (Student student : section.getEnrolled())
+				rows.add(section.getId() + " enrolled " + student.getId());
+			for (Student student : section.getWaitlist())
+				rows.add(section.getId() + " waitlist " + student.getId());
+		}
+		return rows;
+	}
+
+	private CourseSystem createCourseSystem(int numStudents, int numSections) throws Exception {
+		return createCourseSystem(numStudents, numSections, false);
+	}
+
+	private CourseSystem createCourseSystem(int numStudents, int numSections, boolean isReversed) throws Exception {
+		Random random = new Random(17);
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < numSections; i++)
+			sections.add(new Section(i, "section" + i, 3 + i % 3, (i % 4 == 0 ? 0.5 : 1)));
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < numStudents; i++) {
+			List<Section> picks = new ArrayList<>(sections);
+			Collections.shuffle(picks, random);
+			List<Preference> preferences = new ArrayList<>();
+			for (Section section : picks.subList(0, 5))
+				preferences.add(new Preference(section, random.nextInt(4) == 0));
+			students.add(new Student(i, "student" + i, Seniority.values()[i % 4], preferences));
+		}
+		if (isReversed)
+			Collections.reverse(students);
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+}
@@ -51,9 +51,37 @@ public class BalancedConflictAlgorithmTest {
 		printEnrolledStudents(system);
 	}
 
+	@Test
+	public void runAlgorithm_sameSeed_sameEnrollment() throws Exception {
+		long seed = 2021;
+		CourseSystem first = createCourseSystem(new Random(seed));
+		CourseSystem second = createCourseSystem(new Random(seed));
+
+		new BalancedConflictAlgorithm(first, seed).runAlgorithm();
+		new BalancedConflictAlgorithm(second, seed).runAlgorithm();
+
+		for (int i = 0; i < numSections; i++) {
+			assertThat(enrolledIds(second.getAllSections().get(i)))
+					.isEqualTo(enrolledIds(first.getAllSections().get(i)));
+		}
+	}
+
+	@Test
+	public void getSeed_returnsConstructorSeed() throws Exception {
+		BalancedConflictAlgorithm algorithm = new BalancedConflictAlgorithm(createCourseSystem(), 7L);
+		assertThat(algorithm.getSeed()).isEqualTo(7L);
+	}
 
 	// methods to create a simple course system
 
+	private List<Integer> enrolledIds(Section section) {
+		List<Integer> ids = new ArrayList<>();
+		for (Student student : section.getEnrolled()) {
+			ids.add(student.getId());
+		}
+		return ids;
+	}
+
 	private void printEnrolledStudents(CourseSystem system) {
 		System.out.println("Printing enrolled students: ");
 		for (Section section : system.getAllSections()) {
@@ -65,9 +93,13 @@ public class BalancedConflictAlgorithmTest {
 	}
 
 	private CourseSystem createCourseSystem() throws Exception {
+		return createCourseSystem(new Random());
+	}
+
+	private CourseSystem createCourseSystem(Random rand) throws Exception {
 		CourseSystem system = new CourseSystem();
 		List<Section> sections = createSections();
-		List<Student> students = createStudents(sections);
+		List<Student> students = createStudents(sections, rand);
 
 		for (Section section : sections) {
 			system.addSection(section);
@@ -90,19 +122,18 @@ public class BalancedConflictAlgorithmTest {
 		return sections;
 	}
 
-	private List<Student> createStudents(List<Section> sections) throws Exception {
+	private List<Student> createStudents(List<Section> sections, Random rand) throws Exception {
 		List<Student> students = new ArrayList<>();
 
 		for (int i = 0; i < numStudents; i++) {
-			Student s = new Student(i, "student" + i, generateSeniority(), createPreferences(sections));
+			Student s = new Student(i, "student" + i, generateSeniority(rand), createPreferences(sections, rand));
 			students.add(s);
 		}
 		return students;
 	}
 
-	private List<Preference> createPreferences(List<Section> sections) {
+	private List<Preference> createPreferences(List<Section> sections, Random rand) {
 		List<Preference> preferences = new ArrayList<>();
-		Random rand = new Random();
 
 		for (int i = 0; i < numPreferences; i++) {
 			Preference p = new Preference();
@@ -114,8 +145,7 @@ public class BalancedConflictAlgorithmTest {
 		return preferences;
 	}
 
-	private Seniority generateSeniority() throws Exception {
-		Random rand = new Random();
+	private Seniority generateSeniority(Random rand) throws Exception {
 		int num = rand.nextInt(4);
 
 		switch(num % 4) {
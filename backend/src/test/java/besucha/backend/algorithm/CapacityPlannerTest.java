@@ -0,0 +1,135 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class CapacityPlannerTest {
+
+	@Test
+	public void plan_givesSeatsOnlyToSectionsWithUnmetDemand() throws Exception {
+		Section full = new Section(0, "full", 1, 1);
+		Section roomy = new Section(1, "roomy", 10, 1);
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			students.add(new Student(i, "student" + i, Seniority.Junior, preferences(full, roomy)));
+		CourseSystem system = createCourseSystem(students, full, roomy);
+		new BalancedConflictAlgorithm(system, 5L).runAlgorithm();
+
+		List<CapacityChange> changes = new CapacityPlanner(system)
+				.plan(2, 1, CapacityPlanner.Objective.WAITLIST_LENGTH);
+
+		assertThat(changes).hasSize(2);
+		assertThat(changes).extracting(change -> change.getSection().getId()).containsOnly(0);
+		assertThat(changes).extracting(CapacityChange::getImpact).containsOnly(1L);
+		assertThat(changes.get(1).getNewCapacity()).isEqualTo(3);
+	}
+
+	@Test
+	public void plan_stopsOnceDemandIsMet() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 3; i++)
+			students.add(new Student(i, "student" + i, Seniority.Junior, preferences(section)));
+		CourseSystem system = createCourseSystem(students, section);
+		new BalancedConflictAlgorithm(system, 5L).runAlgorithm();
+
+		List<CapacityChange> changes = new CapacityPlanner(system)
+				.plan(10, 5, CapacityPlanner.Objective.WAITLIST_LENGTH);
+
+		assertThat(changes).hasSize(1);
+		assertThat(changes.get(0).getExtraSeats()).isEqualTo(2);
+		assertThat(changes.get(0).getNewCapacity()).isEqualTo(3);
+		assertThat(changes.get(0).getImpact()).isEqualTo(2);
+	}
+
+	@Test
+	public void plan_topChoices_expandsFirstChoiceAndLeavesCourseSystemAsItWas() throws Exception {
+		Section popular = new Section(0, "popular", 1, 1);
+		Section fallback = new Section(1, "fallback", 1, 1);
+		Section other = new Section(2, "other", 1, 1);
+		Section backup = new Section(3, "backup", 1, 1);
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 3; i++)
+			students.add(new Student(i, "student" + i, Seniority.Junior, preferences(popular, fallback, backup)));
+		students.add(new Student(3, "student3", Seniority.Junior, preferences(backup, other)));
+		students.add(new Student(4, "student4", Seniority.Junior, preferences(other)));
+		CourseSystem system = createCourseSystem(students, popular, fallback, other, backup);
+		new BalancedConflictAlgorithm(system, 5L).runAlgorithm();
+		List<Student> enrolled = new ArrayList<>(popular.getEnrolled());
+
+		List<CapacityChange> changes = new CapacityPlanner(system)
+				.plan(1, 1, CapacityPlanner.Objective.TOP_CHOICES);
+
+		assertThat(changes).hasSize(1);
+		assertThat(changes.get(0).getSection()).isSameAs(popular);
+		assertThat(changes.get(0).getImpact()).isPositive();
+		assertThat(popular.getCapacity()).isEqualTo(1);
+		assertThat(popular.getEnrolled()).isEqualTo(enrolled);
+	}
+
+	@Test
+	public void plan_impactIsWhatApplyingTheChangesShortens() throws Exception {
+		Random random = new Random(3);
+		Section[] sections = new Section[6];
+		for (int i = 0; i < sections.length; i++)
+			sections[i] = new Section(i, "section" + i, 1 + random.nextInt(3), 1);
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			List<Section> chosen = new ArrayList<>(Arrays.asList(sections));
+			Collections.shuffle(chosen, random);
+			students.add(new Student(i, "student" + i, Seniority.Junior,
+					preferences(chosen.subList(0, 3).toArray(new Section[0]))));
+		}
+		CourseSystem system = createCourseSystem(students, sections);
+		new BalancedConflictAlgorithm(system, 5L).runAlgorithm();
+
+		List<CapacityChange> changes = new CapacityPlanner(system)
+				.plan(6, 1, CapacityPlanner.Objective.WAITLIST_LENGTH);
+
+		assertThat(changes).isNotEmpty();
+		CourseSystem applied = system.fork();
+		for (CapacityChange change : changes) {
+			long before = totalWaitlist(applied);
+			new IncrementalEnrollment(applied).apply(new ChangeSet()
+					.setCapacity(change.getSection().getId(), change.getNewCapacity()));
+			assertThat(before - totalWaitlist(applied)).isEqualTo(change.getImpact());
+		}
+	}
+
+	private long totalWaitlist(CourseSystem system) {
+		long total = 0;
+		for (Section section : system.getAllSections())
+			total += section.getWaitlist().size();
+		return total;
+	}
+
+	private CourseSystem createCourseSystem(List<Student> students, Section... sections) throws Exception {
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : sections)
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
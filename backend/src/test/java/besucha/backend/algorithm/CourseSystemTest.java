@@ -0,0 +1,45 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.exception.DuplicationException;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class CourseSystemTest {
+
+	@Test
+	public void addStudent_sameIdDifferentData_isDuplicate() throws Exception {
+		Student first = new Student(1, "first", Seniority.Senior, new ArrayList<>());
+		Student renamed = new Student(1, "renamed", Seniority.Freshman, new ArrayList<>());
+		CourseSystem system = new CourseSystem();
+		system.addStudent(first);
+
+		assertThat(renamed).isEqualTo(first);
+		assertThat(renamed.hashCode()).isEqualTo(first.hashCode());
+		assertThrows(DuplicationException.class, () -> system.addStudent(renamed));
+		assertThat(system.getAllStudents()).containsExactly(first);
+	}
+
+	@Test
+	public void addSection_sameIdDifferentData_isDuplicate() throws Exception {
+		Section first = new Section(1, "first", 25, 1.0);
+		Section retitled = new Section(1, "retitled", 10, 0.5);
+		CourseSystem system = new CourseSystem();
+		system.addSection(first);
+
+		assertThat(retitled).isEqualTo(first);
+		assertThat(retitled.hashCode()).isEqualTo(first.hashCode());
+		assertThrows(DuplicationException.class, () -> system.addSection(retitled));
+		assertThat(system.getAllSections()).containsExactly(first);
+	}
+}
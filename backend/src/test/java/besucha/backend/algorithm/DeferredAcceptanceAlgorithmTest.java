@@ -0,0 +1,93 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class DeferredAcceptanceAlgorithmTest {
+
+	@Test
+	public void runAlgorithm_higherPriorityWinsContestedSeat() throws Exception {
+		Section popular = new Section(0, "popular", 1, 1);
+		Section other = new Section(1, "other", 1, 1);
+
+		// Freshmen rank ahead of seniors, so the freshman takes the seat whoever proposes first
+		Student senior = new Student(0, "senior", Seniority.Senior, preferences(popular, other));
+		Student freshman = new Student(1, "freshman", Seniority.Freshman, preferences(popular));
+
+		CourseSystem system = new CourseSystem();
+		system.addSection(popular);
+		system.addSection(other);
+		system.addStudent(senior);
+		system.addStudent(freshman);
+
+		new DeferredAcceptanceAlgorithm(system, 5L).runAlgorithm();
+
+		assertThat(popular.getEnrolled()).containsExactly(freshman);
+		assertThat(other.getEnrolled()).containsExactly(senior);
+		assertThat(popular.getWaitlist()).containsExactly(senior);
+	}
+
+	@Test
+	public void runAlgorithm_fillsCreditsLeftWithHalfCreditSections() throws Exception {
+		CourseSystem system = new CourseSystem();
+		Section[] sections = new Section[10];
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = new Section(i, "half " + i, 1, 0.5);
+			system.addSection(sections[i]);
+		}
+		Student student = new Student(0, "student", Seniority.Senior, preferences(sections));
+		system.addStudent(student);
+
+		new DeferredAcceptanceAlgorithm(system, 3L).runAlgorithm();
+
+		assertThat(system.getEnrolledCredits(student)).isEqualTo(5.0);
+		for (Section section : sections)
+			assertThat(section.getEnrolled()).containsExactly(student);
+	}
+
+	@Test
+	public void runAlgorithm_doesNotHoldSeatsPastTheCreditLimit() throws Exception {
+		CourseSystem system = new CourseSystem();
+		Section[] sections = new Section[4];
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = new Section(i, "double " + i, 1, 2);
+			system.addSection(sections[i]);
+		}
+		// The freshman reaches the limit after three sections, so the senior keeps the last seat
+		Student freshman = new Student(0, "freshman", Seniority.Freshman, preferences(sections));
+		Student senior = new Student(1, "senior", Seniority.Senior, preferences(sections[3]));
+		system.addStudent(freshman);
+		system.addStudent(senior);
+
+		new DeferredAcceptanceAlgorithm(system, 3L).runAlgorithm();
+
+		assertThat(sections[0].getEnrolled()).containsExactly(freshman);
+		assertThat(sections[2].getEnrolled()).containsExactly(freshman);
+		assertThat(system.getEnrolledCredits(freshman)).isEqualTo(6.0);
+		assertThat(sections[3].getEnrolled()).containsExactly(senior);
+	}
+
+	@Test
+	public void fromName_selectsDeferredAcceptance() {
+		assertThat(AlgorithmType.fromName("deferred-acceptance")).isEqualTo(AlgorithmType.DEFERRED_ACCEPTANCE);
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : Arrays.asList(sections))
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
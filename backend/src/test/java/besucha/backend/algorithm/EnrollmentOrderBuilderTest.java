@@ -0,0 +1,37 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.EnrollmentOrderBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class EnrollmentOrderBuilderTest {
+
+	@Test
+	public void sortByPriority_highPriorityThenLowCreditsThenInputOrder() {
+		int[] priority = {3, 7, 3, -1, 7, 3};
+		int[] creditLoad = {2, 4, 0, 0, 1, 2};
+		int[] items = {0, 1, 2, 3, 4, 5};
+
+		new EnrollmentOrderBuilder().sortByPriority(items, items.length, priority, creditLoad);
+
+		assertThat(items).containsExactly(4, 1, 2, 0, 5, 3);
+	}
+
+	@Test
+	public void groupBy_keepsOrderWithinGroups() {
+		int[] group = {1, 0, 1, 2, 0};
+		int[] items = {4, 3, 2, 1, 0};
+
+		int[] groupStart = new EnrollmentOrderBuilder().groupBy(items, items.length, group, 4);
+
+		assertThat(items).containsExactly(4, 1, 2, 0, 3);
+		assertThat(groupStart).containsExactly(0, 2, 4, 5, 5);
+	}
+}
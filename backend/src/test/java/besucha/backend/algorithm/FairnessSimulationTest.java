@@ -0,0 +1,95 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class FairnessSimulationTest {
+
+	@Test
+	public void run_tiedStudents_splitTheSeatAndLeaveCourseSystemUntouched() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		Student first = new Student(0, "first", Seniority.Junior, preferences(section));
+		Student second = new Student(1, "second", Seniority.Junior, preferences(section));
+		CourseSystem system = createCourseSystem(Arrays.asList(first, second), section);
+
+		FairnessReport report = new FairnessSimulation(system, AlgorithmType.BALANCED).run(400, 1L);
+
+		assertThat(report.getNumRuns()).isEqualTo(400);
+		double firstOdds = report.getEnrollmentProbability(first, section);
+		assertThat(firstOdds + report.getEnrollmentProbability(second, section)).isEqualTo(1.0);
+		assertThat(firstOdds).isCloseTo(0.5, within(0.1));
+		assertThat(report.getSatisfaction(Seniority.Junior).getMean()).isEqualTo(0.5);
+		assertThat(report.getWaitlistLengthHistogram()[1]).isEqualTo(400);
+		assertThat(section.getEnrolled()).isEmpty();
+		assertThat(section.getWaitlist()).isEmpty();
+	}
+
+	@Test
+	public void run_higherPriorityAlwaysWins() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		Student senior = new Student(0, "senior", Seniority.Senior, preferences(section));
+		Student freshman = new Student(1, "freshman", Seniority.Freshman, preferences(section));
+		CourseSystem system = createCourseSystem(Arrays.asList(senior, freshman), section);
+
+		FairnessReport report = new FairnessSimulation(system, AlgorithmType.BALANCED).run(50, 3L);
+
+		// Lower seniority ordinals are enrolled first, so no draw of the lottery changes the outcome
+		assertThat(report.getEnrollmentProbability(freshman, section)).isEqualTo(1.0);
+		assertThat(report.getSatisfaction(Seniority.Senior).getMean()).isEqualTo(0.0);
+		assertThat(report.getSatisfaction(Seniority.Freshman).getStandardDeviation()).isEqualTo(0.0);
+	}
+
+	@Test
+	public void run_sameSeeds_sameOutcomesWhateverTheThreads() throws Exception {
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < 6; i++)
+			sections.add(new Section(i, "section" + i, 2, 1));
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			Section[] picks = { sections.get(i % 6), sections.get((i + 1) % 6), sections.get((i * 5 + 3) % 6) };
+			students.add(new Student(i, "student" + i, Seniority.values()[i % 4], preferences(picks)));
+		}
+		CourseSystem system = createCourseSystem(students, sections.toArray(new Section[0]));
+
+		FairnessReport single = new FairnessSimulation(system, AlgorithmType.BALANCED, new ForkJoinPool(1)).run(60, 11L);
+		FairnessReport parallel = new FairnessSimulation(system, AlgorithmType.BALANCED, new ForkJoinPool(4)).run(60, 11L);
+
+		for (Student student : students)
+			for (Section section : sections)
+				assertThat(parallel.getEnrollmentProbability(student, section))
+						.isEqualTo(single.getEnrollmentProbability(student, section));
+		assertThat(parallel.getWaitlistLengthHistogram()).isEqualTo(single.getWaitlistLengthHistogram());
+		assertThat(parallel.getSatisfaction(Seniority.Sophomore).getMean())
+				.isCloseTo(single.getSatisfaction(Seniority.Sophomore).getMean(), within(1e-12));
+	}
+
+	private CourseSystem createCourseSystem(List<Student> students, Section... sections) throws Exception {
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : sections)
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
@@ -0,0 +1,166 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class IncrementalEnrollmentTest {
+
+	private final int studentsPerCampus = 12;
+	private final int sectionsPerCampus = 4;
+	private final int capacity = 5;
+
+	@Test
+	public void apply_capacityChange_promotesFromTheWaitlistInOrder() throws Exception {
+		CourseSystem system = createEnrolledCourseSystem(3);
+		List<List<Student>> before = snapshot(system);
+		Section section = system.getAllSections().get(0);
+		List<Student> enrolled = new ArrayList<>(section.getEnrolled());
+		List<Student> waitlist = new ArrayList<>(section.getWaitlist());
+
+		EnrollmentDelta delta = new IncrementalEnrollment(system)
+				.apply(new ChangeSet().setCapacity(0, capacity + 2));
+
+		assertThat(delta.getEnrolledRemoved()).isEmpty();
+		assertThat(delta.getEnrolledAdded()).extracting(EnrollmentDelta.Row::getStudent)
+				.containsExactlyInAnyOrderElementsOf(waitlist.subList(0, 2));
+		assertThat(section.getEnrolled()).containsAll(enrolled).hasSize(capacity + 2);
+		assertThat(section.getWaitlist()).isEqualTo(waitlist.subList(2, waitlist.size()));
+		// every other section keeps its rows exactly
+		assertThat(snapshot(system).subList(1, before.size())).isEqualTo(before.subList(1, before.size()));
+		assertConsistent(system);
+	}
+
+	@Test
+	public void apply_newPreferences_leaveOldSectionsAndJoinNewOnes() throws Exception {
+		CourseSystem system = createEnrolledCourseSystem(3);
+		Student mover = system.getAllStudents().get(0);
+		Section target = system.getAllSections().get(sectionsPerCampus);
+		List<Student> targetWaitlist = new ArrayList<>(target.getWaitlist());
+
+		EnrollmentDelta delta = new IncrementalEnrollment(system)
+				.apply(new ChangeSet().setPreferences(mover.getId(), target.getId()));
+
+		for (Section section : system.getAllSections().subList(0, sectionsPerCampus))
+			assertThat(section.getEnrolled()).doesNotContain(mover);
+		assertThat(delta.getEnrolledRemoved()).extracting(EnrollmentDelta.Row::getStudent).containsOnly(mover);
+		// the target is full, and it is the student's first choice while everyone waiting ranked
+		// it lower, so the student waits at the front
+		targetWaitlist.add(0, mover);
+		assertThat(target.getWaitlist()).isEqualTo(targetWaitlist);
+		assertThat(system.getEnrolledCredits(mover)).isEqualTo(0.0);
+		assertConsistent(system);
+	}
+
+	@Test
+	public void apply_newPreferences_lastChoiceWaitsByPriority() throws Exception {
+		CourseSystem system = createEnrolledCourseSystem(3);
+		Student mover = system.getAllStudents().get(0);
+		List<Section> campus = system.getAllSections().subList(sectionsPerCampus, 2 * sectionsPerCampus);
+		Section target = campus.get(0);
+		List<Student> targetWaitlist = new ArrayList<>(target.getWaitlist());
+
+		new IncrementalEnrollment(system).apply(new ChangeSet().setPreferences(mover.getId(),
+				campus.get(1).getId(), campus.get(2).getId(), campus.get(3).getId(), target.getId()));
+
+		// the freshman's last choice ranks below the others' higher choices, but above the
+		// sophomores' last choices, so they wait behind the first and ahead of the second
+		int firstSophomore = 0;
+		while (targetWaitlist.get(firstSophomore).getSeniority() != Seniority.Sophomore)
+			firstSophomore++;
+		assertThat(firstSophomore).isPositive();
+		targetWaitlist.add(firstSophomore, mover);
+		assertThat(target.getWaitlist()).isEqualTo(targetWaitlist);
+		assertConsistent(system);
+	}
+
+	@Test
+	public void apply_newPreferences_noOtherStudentLosesASeat() throws Exception {
+		CourseSystem system = createEnrolledCourseSystem(1);
+		Student mover = system.getAllStudents().get(0);
+		Section kept = system.getAllSections().get(1);
+		List<List<Student>> enrolledBefore = new ArrayList<>();
+		for (Section section : system.getAllSections())
+			enrolledBefore.add(new ArrayList<>(section.getEnrolled()));
+
+		// everyone shares the campus, so a full run would reshuffle them all
+		EnrollmentDelta delta = new IncrementalEnrollment(system)
+				.apply(new ChangeSet().setPreferences(mover.getId(), kept.getId()));
+
+		for (int i = 0; i < sectionsPerCampus; i++) {
+			List<Student> others = new ArrayList<>(enrolledBefore.get(i));
+			others.remove(mover);
+			assertThat(system.getAllSections().get(i).getEnrolled()).containsAll(others);
+		}
+		assertThat(delta.getEnrolledRemoved()).extracting(EnrollmentDelta.Row::getStudent).containsOnly(mover);
+		assertConsistent(system);
+	}
+
+	@Test
+	public void apply_unknownSection_throwsBeforeChangingAnything() throws Exception {
+		CourseSystem system = createEnrolledCourseSystem(2);
+		List<List<Student>> before = snapshot(system);
+		ChangeSet changes = new ChangeSet().setCapacity(0, 1).setPreferences(0, 999);
+
+		assertThatThrownBy(() -> new IncrementalEnrollment(system).apply(changes))
+				.isInstanceOf(SectionDoesNotExistException.class);
+		assertThat(system.getAllSections().get(0).getCapacity()).isEqualTo(capacity);
+		assertThat(snapshot(system)).isEqualTo(before);
+	}
+
+	private void assertConsistent(CourseSystem system) {
+		for (Section section : system.getAllSections()) {
+			assertThat(section.getEnrolled()).hasSizeLessThanOrEqualTo(section.getCapacity());
+			for (Student student : section.getEnrolled())
+				assertThat(system.isEnrolled(student, section)).isTrue();
+		}
+		for (Student student : system.getAllStudents())
+			assertThat(system.getEnrolledCredits(student)).isLessThan(6);
+	}
+
+	private List<List<Student>> snapshot(CourseSystem system) {
+		List<List<Student>> lists = new ArrayList<>();
+		for (Section section : system.getAllSections()) {
+			List<Student> rows = new ArrayList<>(section.getEnrolled());
+			rows.addAll(section.getWaitlist());
+			lists.add(rows);
+		}
+		return lists;
+	}
+
+	// methods to create an enrolled course system of disjoint campuses
+
+	private CourseSystem createEnrolledCourseSystem(int campuses) throws Exception {
+		CourseSystem system = new CourseSystem();
+		int sectionId = 0, studentId = 0;
+
+		for (int campus = 0; campus < campuses; campus++) {
+			List<Section> sections = new ArrayList<>();
+			for (int i = 0; i < sectionsPerCampus; i++) {
+				Section section = new Section(sectionId++, "section" + sectionId, capacity, 1);
+				sections.add(section);
+				system.addSection(section);
+			}
+			for (int i = 0; i < studentsPerCampus; i++) {
+				List<Preference> preferences = new ArrayList<>();
+				for (int j = 0; j < sectionsPerCampus; j++)
+					preferences.add(new Preference(sections.get((i + j) % sectionsPerCampus), false));
+				system.addStudent(new Student(studentId++, "student" + studentId, Seniority.values()[i % 4], preferences));
+			}
+		}
+		new BalancedConflictAlgorithm(system, 3L).runAlgorithm();
+		return system;
+	}
+}
@@ -0,0 +1,198 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class LiveEnrollmentTest {
+
+	@Test
+	public void swap_movesSeatAndCredits() throws Exception {
+		Section from = new Section(0, "from", 1, 1);
+		Section to = new Section(1, "to", 1, 2);
+		Student student = new Student(0, "student", Seniority.Senior, new ArrayList<>());
+		from.getEnrolled().add(student);
+		CourseSystem system = createCourseSystem(Arrays.asList(student), Arrays.asList(from, to));
+
+		LiveEnrollment live = new LiveEnrollment(system);
+		assertThat(live.swap(student, from, to)).isTrue();
+		assertThat(live.swap(student, from, to)).isFalse();
+		EnrollmentDelta delta = live.takeChanges();
+		live.close();
+
+		assertThat(from.getEnrolled()).isEmpty();
+		assertThat(to.getEnrolled()).containsExactly(student);
+		assertThat(system.getEnrolledCredits(student)).isEqualTo(2.0);
+		assertThat(delta.getEnrolledAdded()).extracting(EnrollmentDelta.Row::getSection).containsExactly(to);
+		assertThat(delta.getEnrolledRemoved()).extracting(EnrollmentDelta.Row::getSection).containsExactly(from);
+	}
+
+	@Test
+	public void enroll_waitlistedStudent_leavesTheWaitlist() throws Exception {
+		Section section = new Section(0, "section", 2, 1);
+		Student first = new Student(0, "first", Seniority.Senior, new ArrayList<>());
+		Student second = new Student(1, "second", Seniority.Senior, new ArrayList<>());
+		section.getEnrolled().add(first);
+		section.getWaitlist().add(second);
+		CourseSystem system = createCourseSystem(Arrays.asList(first, second), Arrays.asList(section));
+
+		LiveEnrollment live = new LiveEnrollment(system);
+		assertThat(live.enroll(second, section)).isTrue();
+		EnrollmentDelta delta = live.takeChanges();
+		live.close();
+
+		assertThat(section.getEnrolled()).containsExactly(first, second);
+		assertThat(section.getWaitlist()).isEmpty();
+		assertThat(delta.getEnrolledAdded()).extracting(EnrollmentDelta.Row::getStudent).containsExactly(second);
+		assertThat(delta.getWaitlistRemoved()).extracting(EnrollmentDelta.Row::getStudent).containsExactly(second);
+		assertThat(delta.getNumStudents()).isEqualTo(1);
+	}
+
+	@Test
+	public void enroll_sameStudentManySectionsAtOnce_staysUnderMaxCredits() throws Exception {
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < 64; i++)
+			sections.add(new Section(i, "section" + i, 1000, 1));
+		Student student = new Student(0, "student", Seniority.Senior, new ArrayList<>());
+		CourseSystem system = createCourseSystem(Arrays.asList(student), sections);
+		LiveEnrollment live = new LiveEnrollment(system, 4);
+
+		runConcurrently(8, thread -> {
+			for (int i = 0; i < sections.size(); i++)
+				live.enroll(student, sections.get((i + thread * 8) % sections.size()));
+		});
+		live.close();
+
+		assertThat(live.getEnrolledCredits(student)).isEqualTo(system.getMaxCredits());
+		assertThat(system.getEnrolledCredits(student)).isEqualTo(system.getMaxCredits());
+	}
+
+	@Test
+	public void stress_randomRequests_neverOverfillSectionsOrCredits() throws Exception {
+		Random random = new Random(7);
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < 40; i++)
+			sections.add(new Section(i, "section" + i, 1 + random.nextInt(20), 0.5 + random.nextInt(3) * 0.5));
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 500; i++)
+			students.add(new Student(i, "student" + i, Seniority.Junior, new ArrayList<>()));
+		CourseSystem system = createCourseSystem(students, sections);
+		LiveEnrollment live = new LiveEnrollment(system, 8);
+
+		// A reader checks seat counts throughout, without locking
+		AtomicBoolean running = new AtomicBoolean(true), overfilled = new AtomicBoolean(false);
+		Thread monitor = new Thread(() -> {
+			while (running.get())
+				for (Section section : sections)
+					if (live.getSeatsTaken(section) > section.getCapacity())
+						overfilled.set(true);
+		});
+		monitor.start();
+		List<EnrollmentDelta> deltas = new ArrayList<>();
+		runConcurrently(8, thread -> {
+			Random threadRandom = new Random(thread);
+			for (int i = 0; i < 20000; i++) {
+				Student student = students.get(threadRandom.nextInt(students.size()));
+				Section section = sections.get(threadRandom.nextInt(sections.size()));
+				int kind = threadRandom.nextInt(3);
+				if (kind == 0)
+					live.enroll(student, section);
+				else if (kind == 1)
+					live.drop(student, section);
+				else
+					live.swap(student, section, sections.get(threadRandom.nextInt(sections.size())));
+				if (thread == 0 && i % 1000 == 0)
+					deltas.add(live.takeChanges());
+			}
+		});
+		running.set(false);
+		monitor.join();
+		deltas.add(live.takeChanges());
+		live.close();
+
+		assertThat(overfilled.get()).isFalse();
+		for (Section section : sections) {
+			assertThat(section.getEnrolled().size()).isLessThanOrEqualTo(section.getCapacity());
+			assertThat(live.getSeatsTaken(section)).isEqualTo(section.getEnrolled().size());
+			assertThat(section.getEnrolled()).doesNotHaveDuplicates();
+		}
+		for (Student student : students) {
+			double credits = 0, largest = 0;
+			for (Section section : sections) {
+				if (section.getEnrolled().contains(student)) {
+					credits += section.getCreditWeight();
+					largest = Math.max(largest, section.getCreditWeight());
+				}
+			}
+			assertThat(live.getEnrolledCredits(student)).isEqualTo(credits);
+			assertThat(system.getEnrolledCredits(student)).isEqualTo(credits);
+			// The last section added was taken while under the max
+			assertThat(credits - largest).isLessThan(system.getMaxCredits());
+		}
+
+		// The last delta a row appears in says where it ended up
+		for (Section section : sections) {
+			for (Student student : students) {
+				Boolean lastSeen = null;
+				for (EnrollmentDelta delta : deltas) {
+					for (EnrollmentDelta.Row row : delta.getEnrolledAdded())
+						if (row.getStudent() == student && row.getSection() == section) lastSeen = true;
+					for (EnrollmentDelta.Row row : delta.getEnrolledRemoved())
+						if (row.getStudent() == student && row.getSection() == section) lastSeen = false;
+				}
+				if (lastSeen != null)
+					assertThat(lastSeen).isEqualTo(section.getEnrolled().contains(student));
+			}
+		}
+	}
+
+	private interface Worker {
+		void run(int thread);
+	}
+
+	private void runConcurrently(int numThreads, Worker worker) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				worker.run(thread);
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures)
+			future.get();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private CourseSystem createCourseSystem(List<Student> students, List<Section> sections) throws Exception {
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+}
@@ -0,0 +1,98 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class MinCostFlowAlgorithmTest {
+
+	@Test
+	public void runAlgorithm_fillsEverySeatThatCanBeFilled() throws Exception {
+		Section popular = new Section(0, "popular", 1, 1);
+		Section backup = new Section(1, "backup", 1, 1);
+		Section load = new Section(2, "load", 1, 4);
+
+		// The freshman ranks ahead on priority but only has room for one more section; taking the
+		// popular seat greedily would leave the senior with nothing
+		Student freshman = new Student(0, "freshman", Seniority.Freshman, preferences(popular, backup));
+		Student senior = new Student(1, "senior", Seniority.Senior, preferences(popular));
+		load.getEnrolled().add(freshman);
+
+		CourseSystem system = new CourseSystem();
+		system.addStudent(freshman);
+		system.addStudent(senior);
+		system.addSection(popular);
+		system.addSection(backup);
+		system.addSection(load);
+
+		new MinCostFlowAlgorithm(system, 3L).runAlgorithm();
+
+		assertThat(popular.getEnrolled()).containsExactly(senior);
+		assertThat(backup.getEnrolled()).containsExactly(freshman);
+		assertThat(system.getEnrolledCredits(freshman)).isEqualTo(5.0);
+		// Like a balanced run, a student at their credit limit still waits for the seat they lost
+		assertThat(popular.getWaitlist()).containsExactly(freshman);
+	}
+
+	@Test
+	public void runAlgorithm_fillsCreditsLeftWithHalfCreditSections() throws Exception {
+		CourseSystem system = new CourseSystem();
+		Section[] sections = new Section[10];
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = new Section(i, "half " + i, 1, 0.5);
+			system.addSection(sections[i]);
+		}
+		Student student = new Student(0, "student", Seniority.Senior, preferences(sections));
+		system.addStudent(student);
+
+		new MinCostFlowAlgorithm(system, 3L).runAlgorithm();
+
+		assertThat(system.getEnrolledCredits(student)).isEqualTo(5.0);
+		for (Section section : sections)
+			assertThat(section.getEnrolled()).containsExactly(student);
+	}
+
+	@Test
+	public void runAlgorithm_leavesNoAssignedSeatEmptyWithMultiCreditSections() throws Exception {
+		CourseSystem system = new CourseSystem();
+		Section[] sections = new Section[4];
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = new Section(i, "double " + i, 1, 2);
+			system.addSection(sections[i]);
+		}
+		// The freshman can only take three of the four; the last seat belongs to the senior
+		Student freshman = new Student(0, "freshman", Seniority.Freshman, preferences(sections));
+		Student senior = new Student(1, "senior", Seniority.Senior, preferences(sections[3]));
+		system.addStudent(freshman);
+		system.addStudent(senior);
+
+		new MinCostFlowAlgorithm(system, 3L).runAlgorithm();
+
+		assertThat(system.getEnrolledCredits(freshman)).isEqualTo(6.0);
+		assertThat(sections[3].getEnrolled()).containsExactly(senior);
+	}
+
+	@Test
+	public void fromName_acceptsDashedNames() {
+		assertThat(AlgorithmType.fromName("min-cost-flow")).isEqualTo(AlgorithmType.MIN_COST_FLOW);
+		assertThat(AlgorithmType.fromName("Balanced")).isEqualTo(AlgorithmType.BALANCED);
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : Arrays.asList(sections))
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
@@ -0,0 +1,88 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class ParallelComponentAlgorithmTest {
+
+	private final int studentsPerCampus = 12;
+	private final int sectionsPerCampus = 4;
+	private final int capacity = 5;
+
+	@Test
+	public void partition_disjointCampuses_areSeparateComponents() throws Exception {
+		CourseSystem system = createCourseSystem(3);
+		ComponentPartitioner partitioner = new ComponentPartitioner(system);
+
+		assertThat(partitioner.numComponents()).isEqualTo(3);
+		for (int comp = 0; comp < 3; comp++) {
+			assertThat(partitioner.getStudents(comp)).hasSize(studentsPerCampus);
+			assertThat(partitioner.getSections(comp)).hasSize(sectionsPerCampus);
+		}
+	}
+
+	@Test
+	public void runAlgorithm_enrollsEveryComponent_andSyncsState() throws Exception {
+		CourseSystem system = createCourseSystem(3);
+		new ParallelComponentAlgorithm(system, 11L, new ForkJoinPool(2)).runAlgorithm();
+
+		for (Section section : system.getAllSections()) {
+			assertThat(section.getEnrolled()).hasSize(capacity);
+			for (Student student : section.getEnrolled())
+				assertThat(system.isEnrolled(student, section)).isTrue();
+		}
+		for (Student student : system.getAllStudents())
+			assertThat(system.getEnrolledCredits(student)).isLessThan(6);
+	}
+
+	@Test
+	public void runAlgorithm_onePart_drawsTheSameLotteryAsBalanced() throws Exception {
+		CourseSystem parallel = createCourseSystem(3);
+		CourseSystem balanced = createCourseSystem(3);
+		new ParallelComponentAlgorithm(parallel, 11L, new ForkJoinPool(2)).runAlgorithm();
+		new BalancedConflictAlgorithm(balanced, 11L).runAlgorithm();
+
+		for (int i = 0; i < parallel.getAllSections().size(); i++) {
+			assertThat(parallel.getAllSections().get(i).getEnrolled()).extracting(Student::getId)
+					.isEqualTo(balanced.getAllSections().get(i).getEnrolled().stream().map(Student::getId).collect(Collectors.toList()));
+			assertThat(parallel.getAllSections().get(i).getWaitlist()).extracting(Student::getId)
+					.isEqualTo(balanced.getAllSections().get(i).getWaitlist().stream().map(Student::getId).collect(Collectors.toList()));
+		}
+	}
+
+	// methods to create a course system of disjoint campuses
+
+	private CourseSystem createCourseSystem(int campuses) throws Exception {
+		CourseSystem system = new CourseSystem();
+		int sectionId = 0, studentId = 0;
+
+		for (int campus = 0; campus < campuses; campus++) {
+			List<Section> sections = new ArrayList<>();
+			for (int i = 0; i < sectionsPerCampus; i++) {
+				Section section = new Section(sectionId++, "section" + sectionId, capacity, 1);
+				sections.add(section);
+				system.addSection(section);
+			}
+			for (int i = 0; i < studentsPerCampus; i++) {
+				List<Preference> preferences = new ArrayList<>();
+				for (int j = 0; j < sectionsPerCampus; j++)
+					preferences.add(new Preference(sections.get((i + j) % sectionsPerCampus), false));
+				system.addStudent(new Student(studentId++, "student" + studentId, Seniority.values()[i % 4], preferences));
+			}
+		}
+		return system;
+	}
+}
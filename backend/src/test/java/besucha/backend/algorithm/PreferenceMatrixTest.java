@@ -0,0 +1,65 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class PreferenceMatrixTest {
+
+	@Test
+	public void buildMatrix_readsRanksAndDemand() throws Exception {
+		Section a = new Section(0, "a", 10, 1), b = new Section(1, "b", 10, 1), c = new Section(2, "c", 10, 1);
+		Section unregistered = new Section(3, "unregistered", 10, 1);
+
+		Student first = new Student(0, "first", Seniority.Senior,
+				preferences(Arrays.asList(b, unregistered, a, b), true));
+		Student second = new Student(1, "second", Seniority.Freshman,
+				preferences(Arrays.asList(a, c), false));
+
+		CourseSystem system = new CourseSystem();
+		system.addSection(a);
+		system.addSection(b);
+		system.addSection(c);
+		system.addStudent(first);
+		system.addStudent(second);
+
+		EnrollmentState state = system.getEnrollmentState();
+		PreferenceMatrix matrix = system.getPreferenceMatrix();
+		int stud0 = state.indexOf(first), stud1 = state.indexOf(second);
+
+		// unregistered sections and repeated sections are left out, ranks keep their list positions
+		assertThat(matrix.numEntries()).isEqualTo(4);
+		assertThat(matrix.rowEnd(stud0) - matrix.rowStart(stud0)).isEqualTo(2);
+		assertThat(matrix.getRank(stud0, state.indexOf(b))).isEqualTo(0);
+		assertThat(matrix.getRank(stud0, state.indexOf(a))).isEqualTo(2);
+		assertThat(matrix.getRank(stud0, state.indexOf(c))).isEqualTo(-1);
+		assertThat(matrix.isRequired(matrix.findEntry(stud0, state.indexOf(a)))).isTrue();
+		assertThat(matrix.isRequired(matrix.findEntry(stud1, state.indexOf(a)))).isFalse();
+
+		assertThat(matrix.getDemand(state.indexOf(a))).isEqualTo(2);
+		assertThat(matrix.getDemand(state.indexOf(b))).isEqualTo(1);
+		assertThat(matrix.getDemand(state.indexOf(c))).isEqualTo(1);
+
+		int sectA = state.indexOf(a);
+		for (int slot = matrix.columnStart(sectA); slot < matrix.columnEnd(sectA); slot++)
+			assertThat(matrix.getSection(matrix.getRequesterEntry(slot))).isEqualTo(sectA);
+	}
+
+	private List<Preference> preferences(List<Section> sections, boolean isRequired) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : sections)
+			preferences.add(new Preference(section, isRequired));
+		return preferences;
+	}
+}
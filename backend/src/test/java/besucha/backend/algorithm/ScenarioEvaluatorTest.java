@@ -0,0 +1,116 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class ScenarioEvaluatorTest {
+
+	@Test
+	public void fork_changesOnEitherSide_doNotReachTheOther() throws Exception {
+		Section section = new Section(0, "section", 2, 1);
+		Student first = new Student(0, "first", Seniority.Junior, preferences(section));
+		Student second = new Student(1, "second", Seniority.Junior, preferences(section));
+		CourseSystem system = createCourseSystem(Arrays.asList(first, second), section);
+		system.enroll(first, section);
+
+		CourseSystem fork = system.fork();
+		Section forkSection = fork.getAllSections().get(0);
+		Student forkSecond = fork.getAllStudents().get(1);
+		assertThat(forkSection.getEnrolled()).extracting(Student::getId).containsExactly(0);
+		assertThat(fork.enroll(forkSecond, forkSection)).isTrue();
+		system.getEnrollmentState().markDropped(0, 0);
+		section.getEnrolled().clear();
+
+		assertThat(section.getEnrolled()).isEmpty();
+		assertThat(system.getEnrolledCredits(second)).isEqualTo(0.0);
+		assertThat(forkSection.getEnrolled()).extracting(Student::getId).containsExactly(0, 1);
+		assertThat(fork.getEnrolledCredits(fork.getAllStudents().get(0))).isEqualTo(1.0);
+		assertThat(fork.getEnrolledCredits(forkSecond)).isEqualTo(1.0);
+	}
+
+	@Test
+	public void evaluate_reportsEachScenarioAndLeavesCourseSystemAsItWas() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			students.add(new Student(i, "student" + i, Seniority.Junior, preferences(section)));
+		CourseSystem system = createCourseSystem(students, section);
+		new BalancedConflictAlgorithm(system, 5L).runAlgorithm();
+		List<Student> enrolled = new ArrayList<>(section.getEnrolled());
+		List<Student> waitlist = new ArrayList<>(section.getWaitlist());
+
+		List<EnrollmentDelta> deltas = new ScenarioEvaluator(system).evaluate(Arrays.asList(
+				new ChangeSet().setCapacity(0, 3),
+				new ChangeSet().setCapacity(0, 1),
+				new ChangeSet().setCapacity(0, 10)));
+
+		assertThat(deltas).hasSize(3);
+		assertThat(deltas.get(0).getEnrolledAdded()).hasSize(2);
+		assertThat(deltas.get(1).getEnrolledAdded()).isEmpty();
+		assertThat(deltas.get(1).getEnrolledRemoved()).isEmpty();
+		assertThat(deltas.get(2).getEnrolledAdded()).hasSize(3);
+		assertThat(deltas.get(2).getWaitlistRemoved()).hasSize(3);
+		assertThat(section.getCapacity()).isEqualTo(1);
+		assertThat(section.getEnrolled()).isEqualTo(enrolled);
+		assertThat(section.getWaitlist()).isEqualTo(waitlist);
+	}
+
+	@Test
+	public void evaluate_matchesApplyingTheScenarioToTheCourseSystemItself() throws Exception {
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < 6; i++)
+			sections.add(new Section(i, "section" + i, 2, 1));
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 24; i++) {
+			Section[] picks = { sections.get(i % 3), sections.get((i + 1) % 3), sections.get(3 + i % 3) };
+			students.add(new Student(i, "student" + i, Seniority.values()[i % 4], preferences(picks)));
+		}
+		CourseSystem system = createCourseSystem(students, sections.toArray(new Section[0]));
+		new BalancedConflictAlgorithm(system, 9L).runAlgorithm();
+		ChangeSet scenario = new ChangeSet().setCapacity(1, 5).setCapacity(4, 0);
+
+		EnrollmentDelta forked = new ScenarioEvaluator(system).evaluate(Arrays.asList(scenario)).get(0);
+		EnrollmentDelta direct = new IncrementalEnrollment(system).apply(scenario);
+
+		assertThat(rows(forked.getEnrolledAdded())).isEqualTo(rows(direct.getEnrolledAdded()));
+		assertThat(rows(forked.getEnrolledRemoved())).isEqualTo(rows(direct.getEnrolledRemoved()));
+		assertThat(rows(forked.getWaitlistSaved())).isEqualTo(rows(direct.getWaitlistSaved()));
+		assertThat(rows(forked.getWaitlistRemoved())).isEqualTo(rows(direct.getWaitlistRemoved()));
+	}
+
+	private List<String> rows(List<EnrollmentDelta.Row> rows) {
+		List<String> result = new ArrayList<>();
+		for (EnrollmentDelta.Row row : rows)
+			result.add(row.getStudent().getId() + "/" + row.getSection().getId() + "/" + row.getPosition());
+		result.sort(null);
+		return result;
+	}
+
+	private CourseSystem createCourseSystem(List<Student> students, Section... sections) throws Exception {
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : sections)
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
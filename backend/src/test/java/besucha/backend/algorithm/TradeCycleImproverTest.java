@@ -0,0 +1,161 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class TradeCycleImproverTest {
+
+	@Test
+	public void improve_swapsSeatsBothStudentsPrefer() throws Exception {
+		Section first = new Section(0, "first", 1, 1);
+		Section second = new Section(1, "second", 1, 1);
+		Student student0 = new Student(0, "student0", Seniority.Junior, preferences(second, first));
+		Student student1 = new Student(1, "student1", Seniority.Junior, preferences(first, second));
+		CourseSystem system = createCourseSystem(Arrays.asList(student0, student1), first, second);
+		system.enroll(student0, first);
+		system.enroll(student1, second);
+		system.addToWaitlist(student0, second);
+		system.addToWaitlist(student1, first);
+
+		TradeCycleImprover improver = new TradeCycleImprover(system);
+		EnrollmentDelta delta = improver.improve();
+
+		assertThat(first.getEnrolled()).containsExactly(student1);
+		assertThat(second.getEnrolled()).containsExactly(student0);
+		assertThat(first.getWaitlist()).isEmpty();
+		assertThat(second.getWaitlist()).isEmpty();
+		assertThat(improver.getNumStudentsImproved()).isEqualTo(2);
+		assertThat(improver.getNumCycles()).isEqualTo(1);
+		assertThat(delta.getEnrolledAdded()).hasSize(2);
+		assertThat(delta.getWaitlistRemoved()).hasSize(2);
+	}
+
+	@Test
+	public void improve_tradesAroundCycleAndKeepsOthersInPlace() throws Exception {
+		Section a = new Section(0, "a", 1, 1);
+		Section b = new Section(1, "b", 1, 1);
+		Section c = new Section(2, "c", 1, 1);
+		Student holdsA = new Student(0, "holdsA", Seniority.Junior, preferences(b, a));
+		Student holdsB = new Student(1, "holdsB", Seniority.Junior, preferences(c, b));
+		Student holdsC = new Student(2, "holdsC", Seniority.Junior, preferences(a, c));
+		Student seatless = new Student(3, "seatless", Seniority.Junior, preferences(a));
+		CourseSystem system = createCourseSystem(Arrays.asList(holdsA, holdsB, holdsC, seatless), a, b, c);
+		system.enroll(holdsA, a);
+		system.enroll(holdsB, b);
+		system.enroll(holdsC, c);
+		system.addToWaitlist(seatless, a);
+		system.addToWaitlist(holdsC, a);
+		system.addToWaitlist(holdsA, b);
+		system.addToWaitlist(holdsB, c);
+
+		TradeCycleImprover improver = new TradeCycleImprover(system);
+		improver.improve();
+
+		assertThat(a.getEnrolled()).containsExactly(holdsC);
+		assertThat(b.getEnrolled()).containsExactly(holdsA);
+		assertThat(c.getEnrolled()).containsExactly(holdsB);
+		assertThat(a.getWaitlist()).containsExactly(seatless);
+		assertThat(improver.getNumTrades()).isEqualTo(3);
+	}
+
+	@Test
+	public void improve_cycleWithAStudentTwiceFoundFirst_stillTradesAnotherCycle() throws Exception {
+		Section a = new Section(0, "a", 1, 1);
+		Section b = new Section(1, "b", 1, 1);
+		Section c = new Section(2, "c", 1, 1);
+		Section d = new Section(3, "d", 1, 1);
+		// The search meets a, b, c, d with twoSeats getting both a and c before the a, d swap
+		Student twoSeats = new Student(0, "twoSeats", Seniority.Junior, preferences(a, b, c, d));
+		Student holdsC = new Student(1, "holdsC", Seniority.Junior, preferences(b, c));
+		Student holdsA = new Student(2, "holdsA", Seniority.Junior, preferences(d, a));
+		CourseSystem system = createCourseSystem(Arrays.asList(twoSeats, holdsC, holdsA), a, b, c, d);
+		system.enroll(twoSeats, b);
+		system.enroll(twoSeats, d);
+		system.enroll(holdsC, c);
+		system.enroll(holdsA, a);
+		system.addToWaitlist(twoSeats, a);
+		system.addToWaitlist(holdsC, b);
+		system.addToWaitlist(twoSeats, c);
+		system.addToWaitlist(holdsA, d);
+
+		TradeCycleImprover improver = new TradeCycleImprover(system);
+		improver.improve();
+
+		assertThat(a.getEnrolled()).containsExactly(twoSeats);
+		assertThat(d.getEnrolled()).containsExactly(holdsA);
+		assertThat(b.getEnrolled()).containsExactly(twoSeats);
+		assertThat(c.getEnrolled()).containsExactly(holdsC);
+		assertThat(improver.getNumCycles()).isEqualTo(1);
+	}
+
+	@Test
+	public void improve_afterAlgorithm_makesNoOneWorseAndLeavesNothingToTrade() throws Exception {
+		Random random = new Random(11);
+		List<Section> sections = new ArrayList<>();
+		for (int i = 0; i < 12; i++)
+			sections.add(new Section(i, "section" + i, 3, 1 + i % 2));
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			List<Section> picks = new ArrayList<>(sections);
+			Collections.shuffle(picks, random);
+			students.add(new Student(i, "student" + i, Seniority.values()[i % 4], preferences(picks.subList(0, 6).toArray(new Section[0]))));
+		}
+		CourseSystem system = createCourseSystem(students, sections.toArray(new Section[0]));
+		new BalancedConflictAlgorithm(system, 4L).runAlgorithm();
+		int[] before = rankSums(system);
+		int[] counts = sections.stream().mapToInt(section -> section.getEnrolled().size()).toArray();
+
+		TradeCycleImprover improver = new TradeCycleImprover(system);
+		improver.improve();
+		int[] after = rankSums(system);
+
+		int improved = 0;
+		for (int i = 0; i < students.size(); i++) {
+			assertThat(after[i]).isLessThanOrEqualTo(before[i]);
+			if (after[i] < before[i]) improved++;
+		}
+		assertThat(improved).isEqualTo(improver.getNumStudentsImproved());
+		assertThat(sections.stream().mapToInt(section -> section.getEnrolled().size()).toArray()).isEqualTo(counts);
+		TradeCycleImprover again = new TradeCycleImprover(system);
+		again.improve();
+		assertThat(again.getNumTrades()).isZero();
+	}
+
+	private int[] rankSums(CourseSystem system) {
+		int[] sums = new int[system.getAllStudents().size()];
+		for (Section section : system.getAllSections())
+			for (Student student : section.getEnrolled())
+				sums[student.getId()] += student.getPreferenceRank(section);
+		return sums;
+	}
+
+	private CourseSystem createCourseSystem(List<Student> students, Section... sections) throws Exception {
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : sections)
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
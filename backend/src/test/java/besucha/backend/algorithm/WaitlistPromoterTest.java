@@ -0,0 +1,128 @@
+package besucha.backend.algorithm;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.model.algorithm.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class WaitlistPromoterTest {
+
+	@Test
+	public void drop_promotesFrontOfWaitlist() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		Student dropping = new Student(0, "dropping", Seniority.Senior, preferences(section));
+		Student senior = new Student(1, "senior", Seniority.Senior, preferences(section));
+		Student freshman = new Student(2, "freshman", Seniority.Freshman, preferences(section));
+		// the enrollment algorithm ranked the waitlist, so its order stands
+		section.getEnrolled().add(dropping);
+		section.getWaitlist().addAll(Arrays.asList(senior, freshman));
+		CourseSystem system = createCourseSystem(Arrays.asList(dropping, senior, freshman), section);
+
+		WaitlistPromoter promoter = new WaitlistPromoter(system);
+		assertThat(promoter.drop(dropping, section)).isTrue();
+		EnrollmentDelta delta = promoter.flush();
+
+		assertThat(section.getEnrolled()).containsExactly(senior);
+		assertThat(section.getWaitlist()).containsExactly(freshman);
+		assertThat(system.getEnrolledCredits(dropping)).isEqualTo(0.0);
+		assertThat(delta.getEnrolledRemoved()).extracting(EnrollmentDelta.Row::getStudent).containsExactly(dropping);
+		assertThat(delta.getEnrolledAdded()).extracting(EnrollmentDelta.Row::getStudent).containsExactly(senior);
+		assertThat(delta.getWaitlistRemoved()).extracting(EnrollmentDelta.Row::getStudent).containsExactly(senior);
+		assertThat(delta.getWaitlistSaved()).extracting(EnrollmentDelta.Row::getStudent).containsExactly(freshman);
+		assertThat(delta.getWaitlistSaved()).extracting(EnrollmentDelta.Row::getPosition).containsExactly(0);
+	}
+
+	@Test
+	public void setCapacity_promotesIntoEveryNewSeat() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		List<Student> students = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			students.add(new Student(i, "student" + i, Seniority.Junior, preferences(section)));
+		section.getEnrolled().add(students.get(0));
+		section.getWaitlist().addAll(students.subList(1, 4));
+		CourseSystem system = createCourseSystem(students, section);
+
+		WaitlistPromoter promoter = new WaitlistPromoter(system);
+		promoter.setCapacity(section, 3);
+		EnrollmentDelta delta = promoter.flush();
+
+		assertThat(section.getEnrolled()).containsExactly(students.get(0), students.get(1), students.get(2));
+		assertThat(section.getWaitlist()).containsExactly(students.get(3));
+		assertThat(delta.getNumStudents()).isEqualTo(2);
+	}
+
+	@Test
+	public void promotion_atMaxCredits_tradesUpAndCascades() throws Exception {
+		Section wanted = new Section(0, "wanted", 1, 1);
+		Section backup = new Section(1, "backup", 1, 1);
+		Section load = new Section(2, "load", 5, 4);
+		Student trader = new Student(0, "trader", Seniority.Senior, preferences(wanted, backup));
+		Student waiting = new Student(1, "waiting", Seniority.Senior, preferences(backup));
+		Student holder = new Student(2, "holder", Seniority.Senior, preferences(wanted));
+		load.getEnrolled().add(trader);
+		backup.getEnrolled().add(trader);
+		wanted.getEnrolled().add(holder);
+		wanted.getWaitlist().add(trader);
+		backup.getWaitlist().add(waiting);
+		CourseSystem system = createCourseSystem(Arrays.asList(trader, waiting, holder), wanted, backup, load);
+
+		WaitlistPromoter promoter = new WaitlistPromoter(system);
+		promoter.drop(holder, wanted);
+		promoter.flush();
+
+		assertThat(wanted.getEnrolled()).containsExactly(trader);
+		assertThat(backup.getEnrolled()).containsExactly(waiting);
+		assertThat(system.getEnrolledCredits(trader)).isEqualTo(5.0);
+		assertThat(wanted.getWaitlist()).isEmpty();
+		assertThat(backup.getWaitlist()).isEmpty();
+	}
+
+	@Test
+	public void drop_givesUpTheRequest_soLaterUpdatesDoNotEnrollAgain() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		Section other = new Section(1, "other", 1, 1);
+		Student dropping = new Student(0, "dropping", Seniority.Senior, preferences(section, other));
+		Student waiting = new Student(1, "waiting", Seniority.Senior, preferences(section));
+		section.getEnrolled().add(dropping);
+		section.getWaitlist().add(waiting);
+		CourseSystem system = createCourseSystem(Arrays.asList(dropping, waiting), section, other);
+
+		WaitlistPromoter promoter = new WaitlistPromoter(system);
+		promoter.drop(dropping, section);
+		promoter.flush();
+		// a seat opens for anyone still asking for the section
+		new IncrementalEnrollment(system).apply(new ChangeSet().setCapacity(0, 3));
+
+		assertThat(dropping.getPreferences()).extracting(Preference::getSection).containsExactly(other);
+		assertThat(section.getEnrolled()).containsExactly(waiting);
+		CourseSystem rerun = system.copyWithoutEnrollments();
+		new BalancedConflictAlgorithm(rerun, 5L).runAlgorithm();
+		assertThat(rerun.getAllSections().get(0).getEnrolled()).extracting(Student::getId).containsExactly(1);
+	}
+
+	private CourseSystem createCourseSystem(List<Student> students, Section... sections) throws Exception {
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : sections)
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
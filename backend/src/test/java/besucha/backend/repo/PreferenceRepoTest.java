@@ -0,0 +1,61 @@
+package besucha.backend.repo;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.dao.PreferenceDao;
+import besucha.backend.dao.PreferenceRow;
+import besucha.backend.dao.SectionDao;
+import besucha.backend.dao.StudentDao;
+import besucha.backend.model.algorithm.Seniority;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class PreferenceRepoTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private PreferenceRepo preferenceRepo;
+
+	@Test
+	public void streamAllRows_ordersByStudentAndRank() {
+		SectionDao one = entityManager.persist(new SectionDao(1, "one", 1, 1.0));
+		SectionDao two = entityManager.persist(new SectionDao(2, "two", 1, 1.0));
+		StudentDao later = entityManager.persist(new StudentDao(2, "later", Seniority.Junior, "later@example.com"));
+		StudentDao first = entityManager.persist(new StudentDao(1, "first", Seniority.Senior, "first@example.com"));
+		entityManager.persist(new PreferenceDao(later, one, false, 1));
+		entityManager.persist(new PreferenceDao(first, two, false, 1));
+		entityManager.persist(new PreferenceDao(later, two, true, 0));
+		entityManager.persist(new PreferenceDao(first, one, false, 0));
+		entityManager.flush();
+
+		List<PreferenceRow> rows;
+		try (Stream<PreferenceRow> stream = preferenceRepo.streamAllRows()) {
+			rows = stream.collect(Collectors.toList());
+		}
+
+		assertThat(rows).extracting(PreferenceRow::getStudentId, PreferenceRow::getSectionId,
+				PreferenceRow::isRequired, PreferenceRow::getPreferenceRank).containsExactly(
+				tuple(1, 1, false, 0), tuple(1, 2, false, 1), tuple(2, 2, true, 0), tuple(2, 1, false, 1));
+	}
+
+	@Test
+	public void streamAllRows_noPreferences_isEmpty() {
+		try (Stream<PreferenceRow> stream = preferenceRepo.streamAllRows()) {
+			assertThat(stream).isEmpty();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package besucha.backend.repo;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.dao.EnrolledDao;
+import besucha.backend.dao.PreferenceDao;
+import besucha.backend.dao.SectionDao;
+import besucha.backend.dao.StudentDao;
+import besucha.backend.dao.WaitlistDao;
+import besucha.backend.model.algorithm.Seniority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class StatisticsQueriesTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EnrolledRepo enrolledRepo;
+
+	@Autowired
+	private WaitlistRepo waitlistRepo;
+
+	@Autowired
+	private PreferenceRepo preferenceRepo;
+
+	private SectionDao one, two, half;
+	private StudentDao full, light, idle;
+
+	@BeforeEach
+	public void setUp() {
+		one = entityManager.persist(new SectionDao(1, "one", 1, 1.0));
+		two = entityManager.persist(new SectionDao(2, "two", 1, 2.0));
+		half = entityManager.persist(new SectionDao(3, "half", 1, 0.5));
+		full = entityManager.persist(new StudentDao(1, "full", Seniority.Senior, "full@example.com"));
+		light = entityManager.persist(new StudentDao(2, "light", Seniority.Junior, "light@example.com"));
+		idle = entityManager.persist(new StudentDao(3, "idle", Seniority.Sophomore, "idle@example.com"));
+	}
+
+	@Test
+	public void countStudentsWithCreditsBelow_countsStudentsEnrolledInNothing() {
+		entityManager.persist(new EnrolledDao(full, one));
+		entityManager.persist(new EnrolledDao(full, two));
+		entityManager.persist(new EnrolledDao(light, half));
+		entityManager.flush();
+
+		// full has 3 credits, light 0.5 and idle none
+		assertThat(enrolledRepo.countStudentsWithCreditsBelow(3.0)).isEqualTo(2);
+		assertThat(enrolledRepo.countStudentsWithCreditsBelow(3.5)).isEqualTo(3);
+		assertThat(enrolledRepo.countStudentsWithCreditsBelow(0.5)).isEqualTo(1);
+	}
+
+	@Test
+	public void countStudentsWithCreditsBelow_nothingEnrolled_countsEveryStudent() {
+		entityManager.flush();
+
+		assertThat(enrolledRepo.countStudentsWithCreditsBelow(1.0)).isEqualTo(3);
+	}
+
+	@Test
+	public void waitlistQueries_countAndFindSectionsByWaitlistSize() {
+		entityManager.persist(new WaitlistDao(full, two, 0));
+		entityManager.persist(new WaitlistDao(light, two, 1));
+		entityManager.persist(new WaitlistDao(idle, two, 2));
+		entityManager.persist(new WaitlistDao(light, one, 0));
+		entityManager.persist(new WaitlistDao(idle, one, 1));
+		entityManager.flush();
+
+		assertThat(waitlistRepo.countSectionsWithWaitlistOfAtLeast(3)).isEqualTo(1);
+		assertThat(waitlistRepo.countSectionsWithWaitlistOfAtLeast(2)).isEqualTo(2);
+		assertThat(waitlistRepo.countSectionsWithWaitlistOfAtLeast(0)).isEqualTo(3);
+		assertThat(waitlistRepo.countSectionsWithWaitlistOfAtLeast(4)).isEqualTo(0);
+
+		List<Object[]> rows = waitlistRepo.findSectionsWithWaitlistOfAtLeast(2);
+		assertThat(rows).hasSize(2);
+		assertThat(rows.get(0)).containsExactly(two, 3L);
+		assertThat(rows.get(1)).containsExactly(one, 2L);
+		assertThat(waitlistRepo.findSectionsWithWaitlistOfAtLeast(3)).hasSize(1);
+	}
+
+	@Test
+	public void findMostRequestedSections_returnsMostRequestedFirst() {
+		entityManager.persist(new PreferenceDao(full, two, false, 0));
+		entityManager.persist(new PreferenceDao(light, two, false, 0));
+		entityManager.persist(new PreferenceDao(idle, two, true, 0));
+		entityManager.persist(new PreferenceDao(full, one, false, 1));
+		entityManager.persist(new PreferenceDao(light, one, false, 1));
+		entityManager.persist(new PreferenceDao(idle, half, false, 1));
+		entityManager.flush();
+
+		assertThat(preferenceRepo.findMostRequestedSections(PageRequest.of(0, 2))).containsExactly(two, one);
+		assertThat(preferenceRepo.findMostRequestedSections(PageRequest.of(0, 3))).containsExactly(two, one, half);
+	}
+}
@@ -2,6 +2,7 @@ package besucha.backend.service;
 
 import besucha.backend.BackendApplication;
 import besucha.backend.TestContextLoader;
+import besucha.backend.dao.PreferenceRow;
 import besucha.backend.exception.PreferenceDoesNotExistException;
 import besucha.backend.exception.SectionDoesNotExistException;
 import besucha.backend.exception.StudentDoesNotExistException;
@@ -12,13 +13,18 @@ import besucha.backend.service.accessdao.StudentService;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -46,7 +52,7 @@ public class CourseSystemCreatorTest {
 
 		sectionList.add(new Section());
 		studentList.add(new Student());
-		preferenceList.add(new Preference());
+		preferenceList.add(new Preference(sectionList.get(0), false));
 
 		// mocks for the method that verifies whether or not course system can be created
 		when(studentService.count()).thenReturn((long) 1);
@@ -55,15 +61,58 @@ public class CourseSystemCreatorTest {
 
 		when(sectionService.getAllSections()).thenReturn(sectionList);
 		when(studentService.getAllStudents()).thenReturn(studentList);
-		when(preferenceService.getPreferences(studentList.get(0), sectionList))
-				.thenReturn(preferenceList);
+		when(preferenceService.getAllPreferenceRows()).thenReturn(Stream.of(new PreferenceRow(0, 0, false, 0)));
 
-		studentList.get(0).setPreferences(preferenceList);
-		CourseSystem expected = new CourseSystem(new SectionList(sectionList), new StudentList(studentList));
+		CourseSystem actual = courseSystemCreator.createCourseSystem();
+
+		assertThat(actual.getAllSections()).isEqualTo(sectionList);
+		assertThat(actual.getAllStudents()).isEqualTo(studentList);
+		assertThat(actual.getAllStudents().get(0).getPreferences()).extracting(Preference::getSection)
+				.containsExactly(preferenceList.get(0).getSection());
+	}
+
+	@Test
+	public void createCourseSystem_attachesPreferencesInRankOrder() throws Exception {
+		List<Section> sectionList = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			sectionList.add(new Section(i, "section" + i, 25, 1.0));
+		}
+		List<Student> studentList = new ArrayList<>();
+		studentList.add(new Student(7, "first", Seniority.Senior, new ArrayList<>()));
+		studentList.add(new Student(8, "second", Seniority.Junior, new ArrayList<>()));
+
+		when(studentService.count()).thenReturn((long) 2);
+		when(sectionService.count()).thenReturn((long) 3);
+		when(preferenceService.count()).thenReturn((long) 4);
+		when(sectionService.getAllSections()).thenReturn(sectionList);
+		when(studentService.getAllStudents()).thenReturn(studentList);
+		when(preferenceService.getAllPreferenceRows()).thenReturn(Stream.of(new PreferenceRow(7, 2, true, 0),
+				new PreferenceRow(7, 0, false, 1), new PreferenceRow(8, 1, false, 0), new PreferenceRow(8, 2, false, 1)));
 
 		CourseSystem actual = courseSystemCreator.createCourseSystem();
 
-		assertThat(actual.getAllSections()).isEqualTo(expected.getAllSections());
-		assertThat(actual.getAllStudents()).isEqualTo(expected.getAllStudents());
+		List<Preference> first = actual.getAllStudents().get(0).getPreferences();
+		assertThat(first).extracting(Preference::getSection).containsExactly(sectionList.get(2), sectionList.get(0));
+		assertThat(first.get(0).isRequired()).isTrue();
+		assertThat(actual.getAllStudents().get(1).getPreferences()).extracting(Preference::getSection)
+				.containsExactly(sectionList.get(1), sectionList.get(2));
+		verify(preferenceService, never()).getPreferences(Mockito.any(), Mockito.any());
+	}
+
+	@Test
+	public void createCourseSystem_throwsForUnknownSection() {
+		List<Section> sectionList = new ArrayList<>();
+		sectionList.add(new Section(1, "section", 25, 1.0));
+		List<Student> studentList = new ArrayList<>();
+		studentList.add(new Student(1, "student", Seniority.Senior, new ArrayList<>()));
+
+		when(studentService.count()).thenReturn((long) 1);
+		when(sectionService.count()).thenReturn((long) 1);
+		when(preferenceService.count()).thenReturn((long) 1);
+		when(sectionService.getAllSections()).thenReturn(sectionList);
+		when(studentService.getAllStudents()).thenReturn(studentList);
+		when(preferenceService.getAllPreferenceRows()).thenReturn(Stream.of(new PreferenceRow(1, 9, false, 0)));
+
+		assertThrows(SectionDoesNotExistException.class, () -> courseSystemCreator.createCourseSystem());
 	}
 }
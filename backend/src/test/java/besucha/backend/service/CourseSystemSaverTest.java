@@ -2,10 +2,15 @@ package besucha.backend.service;
 
 import besucha.backend.BackendApplication;
 import besucha.backend.TestContextLoader;
+import besucha.backend.dao.StudentSectionKey;
+import besucha.backend.model.algorithm.AlgorithmType;
+import besucha.backend.model.algorithm.CourseSystem;
+import besucha.backend.model.algorithm.EnrollmentDelta;
 import besucha.backend.model.algorithm.Section;
 import besucha.backend.model.algorithm.Seniority;
 import besucha.backend.model.algorithm.Student;
 import besucha.backend.service.accessdao.EnrolledService;
+import besucha.backend.service.accessdao.EnrollmentResultWriter;
 import besucha.backend.service.accessdao.WaitlistService;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -15,8 +20,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -32,6 +39,9 @@ public class CourseSystemSaverTest {
 	@Mock
 	private WaitlistService waitlistService;
 
+	@Mock
+	private EnrollmentResultWriter enrollmentResultWriter;
+
 	@InjectMocks
 	private CourseSystemSaver courseSystemSaver;
 
@@ -63,6 +73,54 @@ public class CourseSystemSaverTest {
 		verify(enrolledService, times(1)).save(1, 1);
 	}
 
+	@Test
+	public void saveEnrollmentDelta_onlyTouchesChangedRows() {
+		Section section = new Section(1, "title", 25, 1.0);
+		Student stays = new Student(1, "stays", Seniority.Senior, new ArrayList<>());
+		Student leaves = new Student(2, "leaves", Seniority.Senior, new ArrayList<>());
+		Student joins = new Student(3, "joins", Seniority.Senior, new ArrayList<>());
+		section.getEnrolled().add(stays);
+		section.getEnrolled().add(joins);
+		section.getWaitlist().add(leaves);
+
+		EnrollmentDelta delta = new EnrollmentDelta();
+		delta.compare(section, Arrays.asList(stays, leaves), new ArrayList<>());
+		courseSystemSaver.saveEnrollmentDelta(delta);
+
+		verify(enrollmentResultWriter, times(1)).replaceRows(
+				Mockito.argThat(rows -> rows.equals(Arrays.asList(new StudentSectionKey(2, 1)))),
+				Mockito.argThat(List::isEmpty),
+				Mockito.argThat(rows -> rows.equals(Arrays.asList(new StudentSectionKey(3, 1)))),
+				Mockito.argThat(rows -> rows.size() == 1
+						&& rows.get(0).getWaitlistId().equals(new StudentSectionKey(2, 1)) && rows.get(0).getPosition() == 0));
+		verify(enrolledService, never()).save(Mockito.anyInt(), Mockito.anyInt());
+		verify(enrolledService, never()).delete(Mockito.anyInt(), Mockito.anyInt());
+	}
+
+	@Test
+	public void saveEnrollmentResults_writesEveryRowInOneBatch() throws Exception {
+		Section section = new Section(1, "title", 2, 1.0);
+		List<Student> students = createListStudent(3);
+		CourseSystem system = new CourseSystem();
+		for (Student student : students) {
+			system.addStudent(student);
+		}
+		system.addSection(section);
+		section.getEnrolled().add(students.get(0));
+		section.getEnrolled().add(students.get(1));
+		section.getWaitlist().add(students.get(2));
+
+		courseSystemSaver.saveEnrollmentResults(system, 42L, AlgorithmType.PARALLEL);
+
+		verify(enrollmentResultWriter, times(1)).replaceAll(
+				Mockito.argThat(rows -> rows.equals(Arrays.asList(new StudentSectionKey(0, 1), new StudentSectionKey(1, 1)))),
+				Mockito.argThat(rows -> rows.size() == 1
+						&& rows.get(0).getWaitlistId().equals(new StudentSectionKey(2, 1)) && rows.get(0).getPosition() == 0),
+				Mockito.argThat(run -> run.getSeed() == 42L && run.getAlgorithm().equals("PARALLEL")));
+		verify(enrolledService, never()).save(Mockito.anyInt(), Mockito.anyInt());
+		verify(waitlistService, never()).save(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+	}
+
 	private List<Student> createListStudent(int size) {
 		List<Student> list = new ArrayList<>();
 
@@ -0,0 +1,106 @@
+package besucha.backend.service;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.dao.EnrolledDao;
+import besucha.backend.dao.SectionDao;
+import besucha.backend.dao.StudentDao;
+import besucha.backend.dao.WaitlistDao;
+import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.model.algorithm.*;
+import besucha.backend.service.accessdao.EnrolledService;
+import besucha.backend.service.accessdao.PreferenceService;
+import besucha.backend.service.accessdao.SectionService;
+import besucha.backend.service.accessdao.WaitlistService;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class CourseSystemUpdaterTest {
+
+	@Mock
+	private CourseSystemCreator courseSystemCreator;
+
+	@Mock
+	private CourseSystemSaver courseSystemSaver;
+
+	@Mock
+	private EnrolledService enrolledService;
+
+	@Mock
+	private WaitlistService waitlistService;
+
+	@Mock
+	private SectionService sectionService;
+
+	@Mock
+	private PreferenceService preferenceService;
+
+	@InjectMocks
+	private CourseSystemUpdater courseSystemUpdater;
+
+	@Test
+	public void promoteWaitlists_drop_savesPreferencesWithoutTheSection() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		Section other = new Section(1, "other", 1, 1);
+		Student dropping = new Student(0, "dropping", Seniority.Senior, preferences(section, other));
+		Student waiting = new Student(1, "waiting", Seniority.Senior, preferences(section));
+		when(courseSystemCreator.createCourseSystem()).thenReturn(createCourseSystem(Arrays.asList(dropping, waiting), section, other));
+		when(enrolledService.getAllEnrolled()).thenReturn(Collections.singletonList(
+				new EnrolledDao(new StudentDao(0), new SectionDao(0))));
+		when(waitlistService.getAllWaitlisted()).thenReturn(Collections.singletonList(
+				new WaitlistDao(new StudentDao(1), new SectionDao(0), 0)));
+
+		courseSystemUpdater.promoteWaitlists(new ChangeSet().drop(0, 0));
+
+		verify(preferenceService, times(1)).replacePreferences(Mockito.argThat(student -> student.getId() == 0
+				&& student.getPreferences().size() == 1 && student.getPreferences().get(0).getSection().getId() == 1));
+		verify(preferenceService, never()).replacePreferences(Mockito.argThat(student -> student.getId() == 1));
+		verify(courseSystemSaver, times(1)).saveEnrollmentDelta(Mockito.argThat(delta -> delta.getEnrolledAdded().size() == 1
+				&& delta.getEnrolledAdded().get(0).getStudent().getId() == 1));
+	}
+
+	@Test
+	public void updateEnrollment_resultForUnknownSection_throws() throws Exception {
+		Section section = new Section(0, "section", 1, 1);
+		Student student = new Student(0, "student", Seniority.Senior, preferences(section));
+		when(courseSystemCreator.createCourseSystem()).thenReturn(createCourseSystem(Collections.singletonList(student), section));
+		when(enrolledService.getAllEnrolled()).thenReturn(Collections.singletonList(
+				new EnrolledDao(new StudentDao(0), new SectionDao(7))));
+
+		assertThrows(SectionDoesNotExistException.class, () -> courseSystemUpdater.updateEnrollment(new ChangeSet()));
+		verify(courseSystemSaver, never()).saveEnrollmentDelta(Mockito.any());
+	}
+
+	private CourseSystem createCourseSystem(List<Student> students, Section... sections) throws Exception {
+		CourseSystem system = new CourseSystem();
+		for (Student student : students)
+			system.addStudent(student);
+		for (Section section : sections)
+			system.addSection(section);
+		return system;
+	}
+
+	private List<Preference> preferences(Section... sections) {
+		List<Preference> preferences = new ArrayList<>();
+		for (Section section : sections)
+			preferences.add(new Preference(section, false));
+		return preferences;
+	}
+}
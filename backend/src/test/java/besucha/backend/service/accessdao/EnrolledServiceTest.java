@@ -15,7 +15,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -73,7 +75,7 @@ public class EnrolledServiceTest {
 		ArrayList<EnrolledDao> list = new ArrayList<>();
 		list.add(enrolledDao);
 
-		when(enrolledRepo.findAll()).thenReturn(list);
+		when(enrolledRepo.findByStudentId(1)).thenReturn(list);
 
 		List<SectionDao> actual = enrolledService.getEnrolledSections(studentDao);
 		assertThat(actual.size()).isEqualTo(1);
@@ -88,14 +90,30 @@ public class EnrolledServiceTest {
 		ArrayList<EnrolledDao> list = new ArrayList<>();
 		list.add(enrolledDao);
 
-		when(studentService.getStudentDao(1)).thenReturn(studentDao);
-		when(enrolledRepo.findAll()).thenReturn(list);
+		when(enrolledRepo.findByStudentId(1)).thenReturn(list);
 
-		List<SectionDao> actual = enrolledService.getEnrolledSections(studentDao);
+		List<SectionDao> actual = enrolledService.getEnrolledSections(1);
 		assertThat(actual.size()).isEqualTo(1);
 		assertThat(actual.get(0)).isEqualTo(sectionDao);
 	}
 	
+	@Test
+	public void getEnrolledSectionsByStudent_groupsOneQueryByStudent() {
+		StudentDao first = new StudentDao(1, "first", Seniority.Senior, "email");
+		StudentDao second = new StudentDao(2, "second", Seniority.Junior, "email");
+		SectionDao sectionA = new SectionDao(1, "a", 25, 1.0);
+		SectionDao sectionB = new SectionDao(2, "b", 25, 1.0);
+		List<EnrolledDao> list = Arrays.asList(new EnrolledDao(first, sectionA), new EnrolledDao(first, sectionB),
+				new EnrolledDao(second, sectionB));
+
+		when(enrolledRepo.findAllOrderByStudentId()).thenReturn(list);
+
+		Map<Integer, List<SectionDao>> actual = enrolledService.getEnrolledSectionsByStudent();
+		assertThat(actual.get(1)).containsExactly(sectionA, sectionB);
+		assertThat(actual.get(2)).containsExactly(sectionB);
+		verify(enrolledRepo, never()).findAll();
+	}
+
 	public EnrolledDao createEnrolledDao() {
 		SectionDao sectionDao = new SectionDao(1, "section", 25, 1.0);
 		StudentDao studentDao = new StudentDao(1, "student", Seniority.Senior, "email");
@@ -0,0 +1,104 @@
+package besucha.backend.service.accessdao;
+
+import besucha.backend.BackendApplication;
+import besucha.backend.TestContextLoader;
+import besucha.backend.dao.EnrolledDao;
+import besucha.backend.dao.SectionDao;
+import besucha.backend.dao.StudentDao;
+import besucha.backend.dao.StudentSectionKey;
+import besucha.backend.dao.WaitlistDao;
+import besucha.backend.model.algorithm.Seniority;
+import besucha.backend.repo.EnrolledRepo;
+import besucha.backend.repo.WaitlistRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(EnrollmentResultWriter.class)
+@ContextConfiguration(classes = BackendApplication.class, loader = TestContextLoader.class)
+public class EnrollmentResultWriterTest {
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EnrollmentResultWriter enrollmentResultWriter;
+
+	@Autowired
+	private EnrolledRepo enrolledRepo;
+
+	@Autowired
+	private WaitlistRepo waitlistRepo;
+
+	private SectionDao one, two;
+	private StudentDao first, second, third;
+
+	@BeforeEach
+	public void setUp() {
+		one = entityManager.persist(new SectionDao(1, "one", 1, 1.0));
+		two = entityManager.persist(new SectionDao(2, "two", 1, 1.0));
+		first = entityManager.persist(new StudentDao(1, "first", Seniority.Senior, "first@example.com"));
+		second = entityManager.persist(new StudentDao(2, "second", Seniority.Junior, "second@example.com"));
+		third = entityManager.persist(new StudentDao(3, "third", Seniority.Sophomore, "third@example.com"));
+	}
+
+	@Test
+	public void replaceRows_changesOnlyTheGivenRows() {
+		entityManager.persist(new EnrolledDao(first, one));
+		entityManager.persist(new EnrolledDao(second, two));
+		entityManager.persist(new WaitlistDao(second, one, 0));
+		entityManager.persist(new WaitlistDao(third, one, 1));
+		entityManager.persist(new WaitlistDao(first, two, 0));
+		entityManager.flush();
+
+		// first drops one and second is promoted into it, so third moves up
+		enrollmentResultWriter.replaceRows(
+				Arrays.asList(new StudentSectionKey(1, 1)),
+				Arrays.asList(new StudentSectionKey(2, 1)),
+				Arrays.asList(new StudentSectionKey(2, 1)),
+				Arrays.asList(waitlistRow(3, 1, 0)));
+
+		assertThat(enrolledRepo.findAll()).extracting(EnrolledDao::getEnrolledId)
+				.containsExactlyInAnyOrder(new StudentSectionKey(2, 1), new StudentSectionKey(2, 2));
+		List<WaitlistDao> waitlisted = new ArrayList<>();
+		waitlistRepo.findAll().forEach(waitlisted::add);
+		assertThat(waitlisted).extracting(WaitlistDao::getWaitlistId)
+				.containsExactlyInAnyOrder(new StudentSectionKey(3, 1), new StudentSectionKey(1, 2));
+		assertThat(waitlisted).filteredOn(row -> row.getWaitlistId().equals(new StudentSectionKey(3, 1)))
+				.extracting(WaitlistDao::getPosition).containsExactly(0);
+	}
+
+	@Test
+	public void replaceRows_keysNotInDb_areSkipped() {
+		entityManager.persist(new EnrolledDao(first, one));
+		entityManager.flush();
+
+		enrollmentResultWriter.replaceRows(
+				Arrays.asList(new StudentSectionKey(3, 2)),
+				Arrays.asList(new StudentSectionKey(3, 1)),
+				Collections.emptyList(),
+				Collections.emptyList());
+
+		assertThat(enrolledRepo.findAll()).extracting(EnrolledDao::getEnrolledId)
+				.containsExactly(new StudentSectionKey(1, 1));
+		assertThat(waitlistRepo.count()).isZero();
+	}
+
+	private WaitlistDao waitlistRow(int studentId, int sectionId, int position) {
+		WaitlistDao row = new WaitlistDao(new StudentSectionKey(studentId, sectionId));
+		row.setPosition(position);
+		return row;
+	}
+}
@@ -4,8 +4,10 @@ import besucha.backend.BackendApplication;
 import besucha.backend.dao.PreferenceDao;
 import besucha.backend.dao.SectionDao;
 import besucha.backend.dao.StudentDao;
+import besucha.backend.dao.StudentSectionKey;
 import besucha.backend.exception.DuplicationException;
 import besucha.backend.exception.SectionDoesNotExistException;
+import besucha.backend.exception.StudentDoesNotExistException;
 import besucha.backend.model.algorithm.Section;
 import besucha.backend.model.algorithm.Seniority;
 import besucha.backend.model.algorithm.Student;
@@ -18,10 +20,14 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -52,12 +58,10 @@ public class PreferenceServiceTest {
 	@Test
 	public void isValid_returnsFalseIfPreferenceAlreadyInDb() {
 		PreferenceDao preferenceDao = new PreferenceDao(new StudentDao(1), new SectionDao(2), true, 5);
-		List<PreferenceDao> list = new ArrayList<>();
-		list.add(preferenceDao);
 
 		when(studentService.doesObjectExistInDb(preferenceDao.getStudent())).thenReturn(true);
 		when(sectionService.doesObjectExistInDb(preferenceDao.getSection())).thenReturn(true);
-		when(preferenceRepo.findAll()).thenReturn(list);
+		when(preferenceRepo.existsByStudentStudentIdAndSectionSectionId(1, 2)).thenReturn(true);
 		assertThat(preferenceService.isValid(preferenceDao)).isEqualTo(false);
 
 	}
@@ -74,8 +78,8 @@ public class PreferenceServiceTest {
 
 	@Test
 	public void doesExistInDb_returnsFalse() {
-		when(preferenceRepo.findAll()).thenReturn(new ArrayList<>());
-		assertThat(preferenceService.doesObjectExistInDb(new PreferenceDao())).isEqualTo(false);
+		when(preferenceRepo.existsByStudentStudentIdAndSectionSectionId(1, 2)).thenReturn(false);
+		assertThat(preferenceService.doesObjectExistInDb(new PreferenceDao(new StudentDao(1), new SectionDao(2)))).isEqualTo(false);
 	}
 
 	@Test
@@ -83,10 +87,8 @@ public class PreferenceServiceTest {
 		StudentDao studentDao = new StudentDao(1);
 		SectionDao sectionDao = new SectionDao(2);
 		PreferenceDao preferenceDao = new PreferenceDao(studentDao, sectionDao);
-		List<PreferenceDao> preferenceDaoList = new ArrayList<>();
-		preferenceDaoList.add(preferenceDao);
 
-		when(preferenceRepo.findAll()).thenReturn(preferenceDaoList);
+		when(preferenceRepo.existsByStudentStudentIdAndSectionSectionId(1, 2)).thenReturn(true);
 
 		assertThat(preferenceService.doesObjectExistInDb(preferenceDao)).isEqualTo(true);
 
@@ -117,12 +119,10 @@ public class PreferenceServiceTest {
 	@Test
 	public void savePreferenceDao_throwsDuplicationException() {
 		PreferenceDao preferenceDao = new PreferenceDao(new StudentDao(1), new SectionDao(2), true, 3);
-		List<PreferenceDao> list = new ArrayList<>();
-		list.add(preferenceDao);
 
 		when(studentService.doesObjectExistInDb(preferenceDao.getStudent())).thenReturn(true);
 		when(sectionService.doesObjectExistInDb(preferenceDao.getSection())).thenReturn(true);
-		when(preferenceRepo.findAll()).thenReturn(list);
+		when(preferenceRepo.existsByStudentStudentIdAndSectionSectionId(1, 2)).thenReturn(true);
 
 		assertThrows(DuplicationException.class, () -> preferenceService.save(preferenceDao));
 	}
@@ -177,6 +177,60 @@ public class PreferenceServiceTest {
 		verify(preferenceRepo, times(1)).save(Mockito.any(PreferenceDao.class));
 	}
 
+	@Test
+	public void saveAll_savesBatchAgainstPreloadedIds() throws Exception {
+		Map<Integer, StudentDao> students = new HashMap<>();
+		students.put(1, new StudentDao(1, "student", Seniority.Freshman, ""));
+		Map<Integer, SectionDao> sections = new HashMap<>();
+		sections.put(1, new SectionDao(1, "a", 25, 1.0));
+		sections.put(2, new SectionDao(2, "b", 25, 1.0));
+
+		when(studentService.getStudentDaoMap()).thenReturn(students);
+		when(sectionService.getSectionDaoMap()).thenReturn(sections);
+		when(preferenceRepo.findAllKeys()).thenReturn(new ArrayList<>());
+
+		preferenceService.saveAll(Arrays.asList(new PreferenceDao(new StudentDao(1), new SectionDao(1), true, 0),
+				new PreferenceDao(new StudentDao(1), new SectionDao(2), false, 1)));
+
+		verify(preferenceRepo, times(1)).saveAll(Mockito.argThat(rows -> ((List<PreferenceDao>) rows).size() == 2
+				&& ((List<PreferenceDao>) rows).get(1).getSection() == sections.get(2)));
+		verify(preferenceRepo, never()).findAll();
+		verify(studentService, never()).doesObjectExistInDb(Mockito.anyInt());
+	}
+
+	@Test
+	public void saveAll_throwsOnDuplicatesInBatchOrDbAndOnUnknownIds() {
+		Map<Integer, StudentDao> students = new HashMap<>();
+		students.put(1, new StudentDao(1, "student", Seniority.Freshman, ""));
+		Map<Integer, SectionDao> sections = new HashMap<>();
+		sections.put(1, new SectionDao(1, "a", 25, 1.0));
+		sections.put(2, new SectionDao(2, "b", 25, 1.0));
+
+		when(studentService.getStudentDaoMap()).thenReturn(students);
+		when(sectionService.getSectionDaoMap()).thenReturn(sections);
+		when(preferenceRepo.findAllKeys()).thenReturn(Arrays.asList(new StudentSectionKey(1, 2)));
+
+		assertThrows(DuplicationException.class, () -> preferenceService.saveAll(Arrays.asList(
+				new PreferenceDao(new StudentDao(1), new SectionDao(1)), new PreferenceDao(new StudentDao(1), new SectionDao(1)))));
+		assertThrows(DuplicationException.class, () -> preferenceService.saveAll(Arrays.asList(
+				new PreferenceDao(new StudentDao(1), new SectionDao(2)))));
+		assertThrows(StudentDoesNotExistException.class, () -> preferenceService.saveAll(Arrays.asList(
+				new PreferenceDao(new StudentDao(7), new SectionDao(1)))));
+		assertThrows(SectionDoesNotExistException.class, () -> preferenceService.saveAll(Arrays.asList(
+				new PreferenceDao(new StudentDao(1), new SectionDao(7)))));
+		verify(preferenceRepo, never()).saveAll(Mockito.any());
+	}
+
+	@Test
+	public void mostRequestedSections_asksForFirstPageOfSections() {
+		List<SectionDao> sections = Arrays.asList(new SectionDao(3, "popular", 25, 1.0), new SectionDao(1, "less", 25, 1.0));
+
+		when(preferenceRepo.findMostRequestedSections(PageRequest.of(0, 2))).thenReturn(sections);
+
+		assertThat(preferenceService.mostRequestedSections(2)).containsExactlyElementsOf(sections);
+		verify(preferenceRepo, never()).findAll();
+	}
+
 	@Test
 	public void getPreferences_returnsListPreferences() throws SectionDoesNotExistException {
 		List<Section> sections = createSectionList(5);
@@ -15,6 +15,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ContextConfiguration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -79,6 +81,47 @@ public class WaitlistServiceTest {
 
 	}
 
+	@Test
+	public void getWaitlistedStudentsBySection_returnsWaitlistInOrder() {
+		SectionDao sectionDao = new SectionDao(1, "title", 25, 1.0);
+		StudentDao first = new StudentDao(1, "first", Seniority.Senior, "email");
+		StudentDao second = new StudentDao(2, "second", Seniority.Junior, "email");
+		List<WaitlistDao> list = Arrays.asList(new WaitlistDao(second, sectionDao, 0), new WaitlistDao(first, sectionDao, 1));
+
+		when(waitlistRepo.findBySectionId(1)).thenReturn(list);
+
+		assertThat(waitlistService.getWaitlistedStudentsBySection(sectionDao)).containsExactly(second, first);
+		verify(waitlistRepo, never()).findAll();
+	}
+
+	@Test
+	public void getWaitlistedSectionsByStudent_groupsOneQueryByStudent() {
+		StudentDao studentDao = new StudentDao(1, "name", Seniority.Senior, "email");
+		SectionDao sectionA = new SectionDao(1, "a", 25, 1.0);
+		SectionDao sectionB = new SectionDao(2, "b", 25, 1.0);
+		List<WaitlistDao> list = Arrays.asList(new WaitlistDao(studentDao, sectionA, 3), new WaitlistDao(studentDao, sectionB, 0));
+
+		when(waitlistRepo.findAllOrderByStudentId()).thenReturn(list);
+
+		Map<Integer, List<SectionDao>> actual = waitlistService.getWaitlistedSectionsByStudent();
+		assertThat(actual).containsOnlyKeys(1);
+		assertThat(actual.get(1)).containsExactly(sectionA, sectionB);
+	}
+
+	@Test
+	public void buildLongWaitlistMap_keepsQueryOrder() {
+		SectionDao longest = new SectionDao(1, "longest", 25, 1.0);
+		SectionDao shorter = new SectionDao(2, "shorter", 25, 1.0);
+		List<Object[]> rows = Arrays.asList(new Object[] { longest, 9L }, new Object[] { shorter, 5L });
+
+		when(waitlistRepo.findSectionsWithWaitlistOfAtLeast(5)).thenReturn(rows);
+
+		Map<SectionDao, Integer> actual = waitlistService.buildLongWaitlistMap(5);
+		assertThat(actual.keySet()).containsExactly(longest, shorter);
+		assertThat(actual.get(longest)).isEqualTo(9);
+		verify(waitlistRepo, never()).findAll();
+	}
+
 	public WaitlistDao createWaitlistDao() {
 		SectionDao sectionDao = new SectionDao(1, "section", 25, 1.0);
 		StudentDao studentDao = new StudentDao(1, "student", Seniority.Senior, "email");
@@ -30,16 +30,12 @@ public class FindLongestWaitlistsTest {
 
 	@Test
 	public void findLongestWaitlist_createsMap() {
-		Map<SectionDao, Integer> map = new HashMap<>();
 		SectionDao section1 = new SectionDao(1, "", 25, 1.0);
-		SectionDao section2 = new SectionDao(2, "", 25, 1.0);
-		map.put(section1, 100);
-		map.put(section2, 2);
 
-		Map<SectionDao, Integer> expected = new HashMap<>();
-		expected.put(section1, 100);
+		Map<SectionDao, Integer> map = new HashMap<>();
+		map.put(section1, 100);
 
-		given(waitlistService.buildWaitlistMap()).willReturn(map);
+		given(waitlistService.buildLongWaitlistMap(generateStatistics.LARGE_WAITLIST_SIZE)).willReturn(map);
 
 		Map<SectionDao, Integer> actual = generateStatistics.findLongestWaitlists();
 